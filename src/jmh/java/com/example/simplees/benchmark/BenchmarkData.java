@@ -0,0 +1,61 @@
+package com.example.simplees.benchmark;
+
+import com.example.simplees.entity.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基准测试数据
+ * 字段取值接近真实用户数据，保证每次运行的输入一致
+ *
+ * @author Simple-ES
+ */
+final class BenchmarkData {
+
+    private static final String[] CITIES = {"北京", "上海", "广州", "深圳", "杭州", "成都"};
+
+    private BenchmarkData() {
+    }
+
+    static User user(int i) {
+        return User.builder()
+            .id("user-" + i)
+            .username("user_" + i)
+            .email("user" + i + "@example.com")
+            .age(18 + i % 50)
+            .gender(i % 2 == 0 ? "male" : "female")
+            .city(CITIES[i % CITIES.length])
+            .bio("这是第" + i + "个用户的个人简介，喜欢编程、阅读和旅行，经常在周末参加技术分享活动。")
+            .tags(Arrays.asList("java", "elasticsearch", "tag" + i % 10))
+            .createTime(LocalDateTime.of(2025, 7, 25, 10, 30, 0).plusMinutes(i))
+            .updateTime(LocalDateTime.of(2025, 7, 25, 10, 30, 0).plusMinutes(i))
+            .isActive(i % 10 != 0)
+            .score(i * 1.5)
+            .build();
+    }
+
+    static List<User> users(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(user(i));
+        }
+        return users;
+    }
+
+    static Map<String, Object> userData(int i) {
+        Map<String, Object> userData = new HashMap<>();
+        userData.put("username", "user_" + i);
+        userData.put("email", "user" + i + "@example.com");
+        userData.put("age", 18 + i % 50);
+        userData.put("gender", i % 2 == 0 ? "male" : "female");
+        userData.put("city", CITIES[i % CITIES.length]);
+        userData.put("bio", "这是第" + i + "个用户的个人简介");
+        userData.put("score", "88.5");
+        return userData;
+    }
+}
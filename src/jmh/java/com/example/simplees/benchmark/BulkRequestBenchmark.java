@@ -0,0 +1,83 @@
+package com.example.simplees.benchmark;
+
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.json.NdJsonpSerializable;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.example.simplees.config.ElasticsearchConfig;
+import com.example.simplees.entity.User;
+import jakarta.json.stream.JsonGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量写入请求构建基准测试
+ * 分别测量BulkRequest对象构建，以及构建后序列化为NDJSON请求体（即实际发送的字节）
+ *
+ * @author Simple-ES
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BulkRequestBenchmark {
+
+    @Param({"1000", "10000"})
+    private int docs;
+
+    private JacksonJsonpMapper mapper;
+
+    private List<User> users;
+
+    @Setup
+    public void setup() {
+        mapper = ElasticsearchConfig.createJsonpMapper();
+        users = BenchmarkData.users(docs);
+    }
+
+    @Benchmark
+    public BulkRequest buildBulkRequest() {
+        return build();
+    }
+
+    @Benchmark
+    public int buildAndSerializeBulkRequest() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(docs * 512);
+        writeNdJson(build(), out);
+        return out.size();
+    }
+
+    private BulkRequest build() {
+        BulkRequest.Builder br = new BulkRequest.Builder();
+        for (User user : users) {
+            br.operations(op -> op
+                .index(idx -> idx
+                    .index("user")
+                    .id(user.getId())
+                    .document(user)
+                )
+            );
+        }
+        return br.build();
+    }
+
+    /**
+     * 与RestClientTransport相同的NDJSON写法：每个值一行
+     */
+    private void writeNdJson(NdJsonpSerializable value, ByteArrayOutputStream out) {
+        Iterator<?> values = value._serializables();
+        while (values.hasNext()) {
+            Object item = values.next();
+            if (item instanceof NdJsonpSerializable && item != value) {
+                writeNdJson((NdJsonpSerializable) item, out);
+            } else {
+                JsonGenerator generator = mapper.jsonProvider().createGenerator(out);
+                mapper.serialize(item, generator);
+                generator.close();
+                out.write('\n');
+            }
+        }
+    }
+}
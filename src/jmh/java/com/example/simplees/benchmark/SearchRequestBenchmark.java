@@ -0,0 +1,57 @@
+package com.example.simplees.benchmark;
+
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import com.example.simplees.service.UserService;
+import com.example.simplees.util.CursorUtils;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * searchUsers查询构建基准测试
+ * 只测量bool查询与排序、分页参数的构建，不发送请求
+ *
+ * @author Simple-ES
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SearchRequestBenchmark {
+
+    private UserService userService;
+
+    private String cursor;
+
+    private List<String> fields;
+
+    @Setup
+    public void setup() {
+        // buildSearchRequest不依赖注入的组件，直接实例化即可
+        userService = new UserService();
+        fields = Arrays.asList("id", "username", "city");
+        cursor = CursorUtils.encode(Arrays.asList(FieldValue.of(1753410600000L), FieldValue.of("user-42")));
+    }
+
+    @Benchmark
+    public SearchRequest keywordOnly() {
+        return userService.buildSearchRequest("java", null, null, null, null, null, 1, 10, null, null, "10000");
+    }
+
+    @Benchmark
+    public SearchRequest allFilters() {
+        return userService.buildSearchRequest("java", 20, 30, "male", "北京", true, 3, 10, null, null, "10000");
+    }
+
+    @Benchmark
+    public SearchRequest allFiltersWithProjection() {
+        return userService.buildSearchRequest("java", 20, 30, "male", "北京", true, 3, 10, null, fields, "10000");
+    }
+
+    @Benchmark
+    public SearchRequest allFiltersWithCursor() {
+        return userService.buildSearchRequest("java", 20, 30, "male", "北京", true, 1, 10, cursor, null, "10000");
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.simplees.benchmark;
+
+import com.example.simplees.entity.User;
+import com.example.simplees.util.UserConverter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 接口Map数据到User转换的基准测试（UserController的写入入口）
+ *
+ * @author Simple-ES
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UserConversionBenchmark {
+
+    private Map<String, Object> userData;
+
+    @Setup
+    public void setup() {
+        userData = BenchmarkData.userData(42);
+    }
+
+    @Benchmark
+    public User fromMap() {
+        return UserConverter.fromMap(userData);
+    }
+}
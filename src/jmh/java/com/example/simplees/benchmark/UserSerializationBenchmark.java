@@ -0,0 +1,56 @@
+package com.example.simplees.benchmark;
+
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.example.simplees.config.ElasticsearchConfig;
+import com.example.simplees.entity.User;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.json.stream.JsonParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * User文档序列化/反序列化基准测试
+ * 使用与ElasticsearchClient相同的JacksonJsonpMapper配置
+ *
+ * @author Simple-ES
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UserSerializationBenchmark {
+
+    private JacksonJsonpMapper mapper;
+
+    private User user;
+
+    private byte[] json;
+
+    @Setup
+    public void setup() {
+        mapper = ElasticsearchConfig.createJsonpMapper();
+        user = BenchmarkData.user(42);
+        json = serialize(user);
+    }
+
+    @Benchmark
+    public byte[] serializeUser() {
+        return serialize(user);
+    }
+
+    @Benchmark
+    public User deserializeUser() {
+        JsonParser parser = mapper.jsonProvider().createParser(new ByteArrayInputStream(json));
+        return mapper.deserialize(parser, User.class);
+    }
+
+    private byte[] serialize(User value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        JsonGenerator generator = mapper.jsonProvider().createGenerator(out);
+        mapper.serialize(value, generator);
+        generator.close();
+        return out.toByteArray();
+    }
+}
@@ -31,6 +31,7 @@ public class SimpleEsDemoApplication {
         System.out.println("📝 这是一个简单的Elasticsearch操作演示项目");
         System.out.println("🔗 访问地址: http://localhost:8080");
         System.out.println("📊 健康检查: http://localhost:8080/actuator/health");
+        System.out.println("📈 指标监控: http://localhost:8080/actuator/prometheus");
         System.out.println("==========================================");
     }
 }
\ No newline at end of file
@@ -1 +1,15 @@
- 
\ No newline at end of file
+package com.example.simplees.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 标记作为文档_id的字段
+ * 未标注时使用名为id的字段
+ *
+ * @author Simple-ES
+ */
+@Documented
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Id {
+}
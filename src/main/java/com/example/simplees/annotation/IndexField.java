@@ -1 +1,69 @@
- 
\ No newline at end of file
+package com.example.simplees.annotation;
+
+import com.example.simplees.constant.FieldType;
+import com.example.simplees.constant.IndexOptions;
+
+import java.lang.annotation.*;
+
+/**
+ * 字段的索引映射配置，由IndexMappingGenerator生成映射
+ * 未标注的字段按Java类型推断并使用ES默认值；关闭不需要的索引结构可以减少磁盘和堆内存占用
+ *
+ * @author Simple-ES
+ */
+@Documented
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface IndexField {
+
+    /**
+     * 字段类型，默认按Java类型推断
+     */
+    FieldType type() default FieldType.AUTO;
+
+    /**
+     * 是否建倒排索引，false时不能按该字段查询（仍可排序、聚合），适合只用于展示或统计的字段
+     */
+    boolean index() default true;
+
+    /**
+     * 是否生成doc_values，false时不能排序、聚合和用于脚本，适合只用于查询的keyword和数值字段；text字段没有doc_values
+     */
+    boolean docValues() default true;
+
+    /**
+     * 是否保存长度归一化因子（norms），只对text有效；false时每个文档省1字节，算分不再考虑字段长度
+     */
+    boolean norms() default true;
+
+    /**
+     * refresh时预先构建全局序号，用于频繁terms聚合的keyword字段，把首次聚合的开销挪到写入侧
+     */
+    boolean eagerGlobalOrdinals() default false;
+
+    /**
+     * 倒排索引记录的信息
+     */
+    IndexOptions indexOptions() default IndexOptions.DEFAULT;
+
+    /**
+     * 分词器，只对text有效，为空时使用默认分词器
+     */
+    String analyzer() default "";
+
+    /**
+     * 查询时的分词器，只对text有效，为空时与analyzer一致
+     */
+    String searchAnalyzer() default "";
+
+    /**
+     * 日期格式，只对date有效，为空时使用yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||epoch_millis
+     */
+    String format() default "";
+
+    /**
+     * text字段附带的keyword子字段（字段名.keyword）的ignore_above，小于等于0表示不生成子字段；
+     * keyword字段本身超过该长度时不建索引
+     */
+    int ignoreAbove() default 0;
+}
@@ -1 +1,20 @@
- 
\ No newline at end of file
+package com.example.simplees.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 实体对应的索引名
+ * 未标注时使用类名小写作为索引名
+ *
+ * @author Simple-ES
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface IndexName {
+
+    /**
+     * 索引名（也可以是别名）
+     */
+    String value();
+}
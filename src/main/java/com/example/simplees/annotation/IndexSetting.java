@@ -0,0 +1,46 @@
+package com.example.simplees.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 实体对应索引的设置，由IndexMappingGenerator生成settings
+ * 未标注时使用IndexMappingUtil.getDefaultIndexSettings()
+ *
+ * @author Simple-ES
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface IndexSetting {
+
+    /**
+     * 主分片数
+     */
+    int shards() default 1;
+
+    /**
+     * 副本数
+     */
+    int replicas() default 0;
+
+    /**
+     * 刷新间隔，写多读少的索引可以调大以减少段的生成
+     */
+    String refreshInterval() default "1s";
+
+    /**
+     * from + size允许的最大值
+     */
+    int maxResultWindow() default 10000;
+
+    /**
+     * 存储压缩方式，为空时使用默认的LZ4；best_compression以少量CPU换取更小的_source存储
+     */
+    String codec() default "";
+
+    /**
+     * 路由分区大小，大于1时同一路由值的文档分散到这么多个分片上，避免单个路由值过大形成热点分片；
+     * 必须小于主分片数，且实体需要有@Routing字段；分区路由的索引每次读写都必须带路由值
+     */
+    int routingPartitionSize() default 1;
+}
@@ -0,0 +1,19 @@
+package com.example.simplees.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 标记作为路由键（_routing）的字段
+ * 同一路由值的文档写入同一分片（或同一组分片，见IndexSetting.routingPartitionSize），
+ * 按该字段过滤的查询只需访问这些分片；字段为空的文档按_id路由。
+ * 按ID读写时需要传入写入时的路由值才能定位到文档：不带路由值的按ID读取、删除（含请求合并的_mget）
+ * 只在单分片索引上可靠，增加分片数前调用方必须总是传入路由值。
+ * 局部更新未指定路由值时使用文档中的路由字段；文档写入后路由字段不能再修改，每个实体最多一个
+ *
+ * @author Simple-ES
+ */
+@Documented
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Routing {
+}
@@ -1,21 +1,40 @@
 package com.example.simplees.config;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.json.jackson.JacksonJsonpMapper;
 import co.elastic.clients.transport.ElasticsearchTransport;
-import co.elastic.clients.transport.rest_client.RestClientTransport;
+import com.example.simplees.metrics.EsMetrics;
+import com.example.simplees.util.FieldUtils;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpHost;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.CredentialsProvider;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.message.BasicHeader;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
 /**
  * Elasticsearch客户端配置
  * 负责创建和配置ElasticsearchClient
@@ -24,18 +43,33 @@ import org.springframework.context.annotation.Configuration;
  */
 @Slf4j
 @Configuration
-public class ElasticsearchConfig {
+public class ElasticsearchConfig implements InitializingBean {
+
+    /**
+     * 文档中LocalDateTime的格式，与IndexMappingUtil中date字段的format一致
+     */
+    public static final String DATE_TIME_PATTERN = "yyyy-MM-dd HH:mm:ss";
 
     @Autowired
     private SimpleEsProperties properties;
 
+    @Autowired
+    private EsMetrics metrics;
+
+    @Override
+    public void afterPropertiesSet() {
+        // LambdaWrapper默认使用的字段名规则
+        FieldUtils.setMapUnderscoreToCamelCase(properties.isMapUnderscoreToCamelCase());
+    }
+
     /**
-     * 创建ElasticsearchClient Bean
+     * 创建ElasticsearchTransport Bean
+     * 同步和异步客户端共享同一个Transport（以及底层的RestClient连接池）
      * 
-     * @return ElasticsearchClient实例
+     * @return ElasticsearchTransport实例
      */
-    @Bean
-    public ElasticsearchClient elasticsearchClient() {
+    @Bean(destroyMethod = "close")
+    public ElasticsearchTransport elasticsearchTransport() {
         log.info("开始配置Elasticsearch客户端...");
         log.info("ES服务器地址: {}:{}", properties.getHost(), properties.getPort());
         
@@ -43,17 +77,25 @@ public class ElasticsearchConfig {
             // 1. 创建RestClient
             RestClient restClient = createRestClient();
             
-            // 2. 创建Transport
-            ElasticsearchTransport transport = new RestClientTransport(
-                restClient, 
-                new JacksonJsonpMapper()
-            );
-            
-            // 3. 创建ElasticsearchClient
-            ElasticsearchClient client = new ElasticsearchClient(transport);
-            
-            log.info("Elasticsearch客户端配置成功");
-            return client;
+            // 2. 创建Transport（启用压缩时在发送前按大小压缩请求体）
+            ElasticsearchTransport transport;
+            SimpleEsProperties.Compression compression = properties.getCompression();
+            if (compression.isEnabled()) {
+                log.info("ES请求压缩已启用: minSizeBytes={}, level={}",
+                        compression.getMinSizeBytes(), compression.getLevel());
+                transport = new GzipRestClientTransport(restClient, createJsonpMapper(), compression, metrics);
+            } else {
+                transport = new MeteredRestClientTransport(restClient, createJsonpMapper(), metrics);
+            }
+
+            // 3. 查询日志（采样 + 慢查询）
+            if (properties.isPrintDsl()) {
+                SimpleEsProperties.QueryLog queryLog = properties.getQueryLog();
+                log.info("ES查询日志已启用: sampleRate={}, slowThresholdMs={}",
+                        queryLog.getSampleRate(), queryLog.getSlowThresholdMs());
+                transport = new QueryLoggingTransport(transport, queryLog);
+            }
+            return transport;
             
         } catch (Exception e) {
             log.error("Elasticsearch客户端配置失败", e);
@@ -61,6 +103,54 @@ public class ElasticsearchConfig {
         }
     }
 
+    /**
+     * 创建文档序列化使用的JsonpMapper
+     * LocalDateTime按索引映射中的日期格式读写；null字段不输出，局部更新依赖这一点
+     * 
+     * @return JacksonJsonpMapper实例
+     */
+    public static JacksonJsonpMapper createJsonpMapper() {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(DATE_TIME_PATTERN);
+        JavaTimeModule timeModule = new JavaTimeModule();
+        timeModule.addSerializer(LocalDateTime.class, new LocalDateTimeSerializer(formatter));
+        timeModule.addDeserializer(LocalDateTime.class, new LocalDateTimeDeserializer(formatter));
+
+        ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(timeModule)
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(SerializationFeature.INDENT_OUTPUT)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        return new JacksonJsonpMapper(objectMapper);
+    }
+
+    /**
+     * 创建ElasticsearchClient Bean
+     * 
+     * @param transport 共享的Transport
+     * @return ElasticsearchClient实例
+     */
+    @Bean
+    public ElasticsearchClient elasticsearchClient(ElasticsearchTransport transport) {
+        ElasticsearchClient client = new ElasticsearchClient(transport);
+        log.info("Elasticsearch客户端配置成功");
+        return client;
+    }
+
+    /**
+     * 创建ElasticsearchAsyncClient Bean
+     * 非阻塞调用，请求返回CompletableFuture，不占用调用线程等待ES响应
+     * 
+     * @param transport 共享的Transport
+     * @return ElasticsearchAsyncClient实例
+     */
+    @Bean
+    public ElasticsearchAsyncClient elasticsearchAsyncClient(ElasticsearchTransport transport) {
+        ElasticsearchAsyncClient client = new ElasticsearchAsyncClient(transport);
+        log.info("Elasticsearch异步客户端配置成功");
+        return client;
+    }
+
     /**
      * 创建RestClient
      * 
@@ -78,23 +168,76 @@ public class ElasticsearchConfig {
             requestConfigBuilder
                 .setConnectTimeout(properties.getConnectTimeout())
                 .setSocketTimeout(properties.getSocketTimeout())
+                .setConnectionRequestTimeout(properties.getConnectionRequestTimeout())
         );
 
+        // 请求ES压缩响应体（RestClient收到gzip响应会自动解压）
+        if (properties.getCompression().isAcceptEncoding()) {
+            builder.setDefaultHeaders(new Header[]{new BasicHeader(HttpHeaders.ACCEPT_ENCODING, "gzip")});
+        }
+
         // 配置认证（如果提供了用户名和密码）
+        CredentialsProvider credentialsProvider = null;
         if (properties.getUsername() != null && !properties.getUsername().isEmpty()) {
-            CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+            credentialsProvider = new BasicCredentialsProvider();
             credentialsProvider.setCredentials(
                 AuthScope.ANY,
                 new UsernamePasswordCredentials(properties.getUsername(), properties.getPassword())
             );
             
-            builder.setHttpClientConfigCallback(httpClientBuilder -> 
-                httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider)
-            );
-            
             log.info("已配置ES认证: 用户名={}", properties.getUsername());
         }
 
+        // 配置连接池、I/O线程和保活策略（HttpClientConfigCallback只能设置一次，认证也在这里完成）
+        IOReactorConfig ioReactorConfig = createIoReactorConfig();
+        CredentialsProvider finalCredentialsProvider = credentialsProvider;
+        builder.setHttpClientConfigCallback(httpClientBuilder -> {
+            httpClientBuilder
+                .setMaxConnTotal(properties.getMaxConnTotal())
+                .setMaxConnPerRoute(properties.getMaxConnPerRoute())
+                .setDefaultIOReactorConfig(ioReactorConfig)
+                .setKeepAliveStrategy(createKeepAliveStrategy());
+            if (finalCredentialsProvider != null) {
+                httpClientBuilder.setDefaultCredentialsProvider(finalCredentialsProvider);
+            }
+            return httpClientBuilder;
+        });
+
+        log.info("ES连接池配置: maxConnTotal={}, maxConnPerRoute={}, ioThreadCount={}, keepAliveMs={}",
+                properties.getMaxConnTotal(), properties.getMaxConnPerRoute(),
+                ioReactorConfig.getIoThreadCount(), properties.getKeepAliveMs());
+
         return builder.build();
     }
+
+    /**
+     * 创建I/O Reactor配置
+     * 
+     * @return IOReactorConfig实例
+     */
+    private IOReactorConfig createIoReactorConfig() {
+        int ioThreadCount = properties.getIoThreadCount() > 0
+            ? properties.getIoThreadCount()
+            : Runtime.getRuntime().availableProcessors();
+        return IOReactorConfig.custom()
+            .setIoThreadCount(ioThreadCount)
+            .setTcpNoDelay(properties.isTcpNoDelay())
+            .setSoKeepAlive(properties.isSoKeepAlive())
+            .setConnectTimeout(properties.getConnectTimeout())
+            .build();
+    }
+
+    /**
+     * 创建连接保活策略
+     * 服务端返回了Keep-Alive时取两者中较小的值，否则使用配置值
+     * 
+     * @return 保活策略
+     */
+    private ConnectionKeepAliveStrategy createKeepAliveStrategy() {
+        long keepAliveMs = properties.getKeepAliveMs();
+        return (response, context) -> {
+            long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAliveMs) : keepAliveMs;
+        };
+    }
 }
@@ -0,0 +1,145 @@
+package com.example.simplees.config;
+
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.transport.TransportOptions;
+import co.elastic.clients.transport.http.TransportHttpClient;
+import co.elastic.clients.transport.rest_client.RestClientHttpClient;
+import com.example.simplees.metrics.EsMetrics;
+import org.elasticsearch.client.RestClient;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 支持请求体gzip压缩的Transport
+ * 与RestClientTransport相同，只是在请求发出前对超过阈值的请求体做gzip压缩并加上Content-Encoding头。
+ * RestClient自带的setCompressionEnabled会压缩所有请求（包括几十字节的get/delete），
+ * 这里按大小决定，小请求直接发送，避免无谓的CPU开销。
+ * 请求体字节数在压缩之后统计，es.client.request.bytes反映实际发送的大小，压缩前的大小见es.client.compression.*
+ *
+ * @author Simple-ES
+ */
+public class GzipRestClientTransport extends MeteredRestClientTransport {
+
+    public GzipRestClientTransport(RestClient restClient, JsonpMapper mapper,
+                                   SimpleEsProperties.Compression compression, EsMetrics metrics) {
+        super(restClient, mapper, new GzipHttpClient(
+            new RequestBytesHttpClient(new RestClientHttpClient(restClient), metrics), compression, metrics));
+    }
+
+    /**
+     * 在统计请求体大小之前压缩请求体
+     */
+    private static class GzipHttpClient implements TransportHttpClient {
+
+        private static final String CONTENT_ENCODING = "Content-Encoding";
+
+        private static final String GZIP = "gzip";
+
+        private final TransportHttpClient delegate;
+
+        private final int minSizeBytes;
+
+        private final int level;
+
+        private final EsMetrics metrics;
+
+        GzipHttpClient(TransportHttpClient delegate, SimpleEsProperties.Compression compression, EsMetrics metrics) {
+            this.delegate = delegate;
+            this.minSizeBytes = compression.getMinSizeBytes();
+            this.level = compression.getLevel();
+            this.metrics = metrics;
+        }
+
+        @Override
+        public TransportOptions createOptions(TransportOptions options) {
+            return delegate.createOptions(options);
+        }
+
+        @Override
+        public Response performRequest(String endpointId, Node node, Request request,
+                                       TransportOptions options) throws IOException {
+            return delegate.performRequest(endpointId, node, compress(request), options);
+        }
+
+        @Override
+        public CompletableFuture<Response> performRequestAsync(String endpointId, Node node, Request request,
+                                                               TransportOptions options) {
+            Request compressed;
+            try {
+                compressed = compress(request);
+            } catch (IOException e) {
+                CompletableFuture<Response> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                return failed;
+            }
+            return delegate.performRequestAsync(endpointId, node, compressed, options);
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        /**
+         * 请求体不小于阈值时压缩，压缩后没有变小则仍发送原请求
+         */
+        private Request compress(Request request) throws IOException {
+            Iterable<ByteBuffer> body = request.body();
+            if (body == null || request.headers().containsKey(CONTENT_ENCODING)) {
+                return request;
+            }
+            long originalBytes = 0;
+            for (ByteBuffer buffer : body) {
+                originalBytes += buffer.remaining();
+            }
+            if (originalBytes < minSizeBytes) {
+                return request;
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.min(originalBytes / 4 + 64, Integer.MAX_VALUE));
+            try (GZIPOutputStream gzip = new LeveledGzipOutputStream(out, level)) {
+                for (ByteBuffer buffer : body) {
+                    write(buffer.duplicate(), gzip);
+                }
+            }
+            if (out.size() >= originalBytes) {
+                return request;
+            }
+            metrics.recordCompression(EsMetrics.endpointOf(request.path()), originalBytes, out.size());
+
+            Map<String, String> headers = new HashMap<>(request.headers());
+            headers.put(CONTENT_ENCODING, GZIP);
+            return new Request(request.method(), request.path(), request.queryParams(), headers,
+                Collections.singletonList(ByteBuffer.wrap(out.toByteArray())));
+        }
+
+        private static void write(ByteBuffer buffer, OutputStream out) throws IOException {
+            if (buffer.hasArray()) {
+                out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            } else {
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * 可指定压缩级别的GZIPOutputStream，默认级别对CPU开销较大
+     */
+    private static class LeveledGzipOutputStream extends GZIPOutputStream {
+
+        LeveledGzipOutputStream(OutputStream out, int level) throws IOException {
+            super(out, 8192);
+            def.setLevel(level);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.simplees.config;
+
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.transport.ElasticsearchTransportBase;
+import co.elastic.clients.transport.TransportOptions;
+import co.elastic.clients.transport.http.TransportHttpClient;
+import co.elastic.clients.transport.rest_client.RestClientHttpClient;
+import com.example.simplees.metrics.EsMetrics;
+import org.elasticsearch.client.RestClient;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 统计请求体大小的Transport
+ * 与RestClientTransport相同，只是在交给RestClient之前按bulk/search/other统计请求体的字节数。
+ * 客户端发送的是分段的请求体（Content-Length为-1），HTTP拦截器拿不到大小，只能在这一层对各段求和
+ *
+ * @author Simple-ES
+ */
+public class MeteredRestClientTransport extends ElasticsearchTransportBase {
+
+    private final RestClient restClient;
+
+    public MeteredRestClientTransport(RestClient restClient, JsonpMapper mapper, EsMetrics metrics) {
+        this(restClient, mapper, new RequestBytesHttpClient(new RestClientHttpClient(restClient), metrics));
+    }
+
+    protected MeteredRestClientTransport(RestClient restClient, JsonpMapper mapper, TransportHttpClient httpClient) {
+        super(httpClient, null, mapper);
+        this.restClient = restClient;
+    }
+
+    public RestClient restClient() {
+        return restClient;
+    }
+
+    /**
+     * 在RestClientHttpClient外层统计实际发送的请求体字节数
+     */
+    static class RequestBytesHttpClient implements TransportHttpClient {
+
+        private final TransportHttpClient delegate;
+
+        private final EsMetrics metrics;
+
+        RequestBytesHttpClient(TransportHttpClient delegate, EsMetrics metrics) {
+            this.delegate = delegate;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public TransportOptions createOptions(TransportOptions options) {
+            return delegate.createOptions(options);
+        }
+
+        @Override
+        public Response performRequest(String endpointId, Node node, Request request,
+                                       TransportOptions options) throws IOException {
+            record(request);
+            return delegate.performRequest(endpointId, node, request, options);
+        }
+
+        @Override
+        public CompletableFuture<Response> performRequestAsync(String endpointId, Node node, Request request,
+                                                               TransportOptions options) {
+            record(request);
+            return delegate.performRequestAsync(endpointId, node, request, options);
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        private void record(Request request) {
+            Iterable<ByteBuffer> body = request.body();
+            if (body == null) {
+                return;
+            }
+            long bytes = 0;
+            for (ByteBuffer buffer : body) {
+                bytes += buffer.remaining();
+            }
+            metrics.recordRequestBytes(EsMetrics.endpointOf(request.path()), bytes);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.simplees.config;
+
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.CountResponse;
+import co.elastic.clients.elasticsearch.core.DeleteByQueryResponse;
+import co.elastic.clients.elasticsearch.core.UpdateByQueryResponse;
+import co.elastic.clients.elasticsearch.core.msearch.MultiSearchResult;
+import co.elastic.clients.elasticsearch.core.search.ResponseBody;
+import co.elastic.clients.elasticsearch.core.search.TotalHits;
+import co.elastic.clients.elasticsearch.core.search.TotalHitsRelation;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.JsonpSerializable;
+import co.elastic.clients.json.JsonpUtils;
+import co.elastic.clients.transport.ElasticsearchTransport;
+import co.elastic.clients.transport.Endpoint;
+import co.elastic.clients.transport.TransportOptions;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 记录查询日志的Transport装饰器（printDsl）
+ * 只对查询类请求生效：按采样率或耗时超过慢查询阈值时才记录，未命中的请求只多一次计时；
+ * DSL序列化和日志输出在单独的后台线程完成，队列满时直接丢弃，不会阻塞或拖慢请求线程。
+ * 记录内容：操作、索引、客户端耗时、ES返回的took、命中数、调用方，以及DSL
+ *
+ * @author Simple-ES
+ */
+@Slf4j
+public class QueryLoggingTransport implements ElasticsearchTransport {
+
+    /**
+     * 需要记录的端点，写入类请求（index、bulk等）的请求体是文档内容，不在这里记录
+     */
+    private static final Set<String> QUERY_ENDPOINTS = new HashSet<>(Arrays.asList(
+        "es/search", "es/msearch", "es/count", "es/scroll", "es/update_by_query", "es/delete_by_query"));
+
+    private static final String APP_PACKAGE = "com.example.simplees.";
+
+    private final ElasticsearchTransport delegate;
+
+    private final double sampleRate;
+
+    private final long slowThresholdNanos;
+
+    private final ThreadPoolExecutor logExecutor;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    public QueryLoggingTransport(ElasticsearchTransport delegate, SimpleEsProperties.QueryLog queryLog) {
+        this.delegate = delegate;
+        this.sampleRate = queryLog.getSampleRate();
+        this.slowThresholdNanos = queryLog.getSlowThresholdMs() > 0
+            ? TimeUnit.MILLISECONDS.toNanos(queryLog.getSlowThresholdMs())
+            : Long.MAX_VALUE;
+        this.logExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queryLog.getQueueCapacity()),
+            runnable -> {
+                Thread thread = new Thread(runnable, "es-query-log");
+                thread.setDaemon(true);
+                return thread;
+            },
+            (runnable, executor) -> dropped.incrementAndGet());
+    }
+
+    @Override
+    public <RequestT, ResponseT, ErrorT> ResponseT performRequest(
+            RequestT request, Endpoint<RequestT, ResponseT, ErrorT> endpoint,
+            TransportOptions options) throws IOException {
+        if (!QUERY_ENDPOINTS.contains(endpoint.id())) {
+            return delegate.performRequest(request, endpoint, options);
+        }
+
+        boolean sampled = isSampled();
+        long start = System.nanoTime();
+        ResponseT response = null;
+        Throwable error = null;
+        try {
+            response = delegate.performRequest(request, endpoint, options);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            if (sampled || elapsed >= slowThresholdNanos) {
+                // 同步调用仍在调用方线程上，此时取调用栈即可得到调用方
+                submit(request, endpoint, response, error, elapsed, new Throwable().getStackTrace());
+            }
+        }
+    }
+
+    @Override
+    public <RequestT, ResponseT, ErrorT> CompletableFuture<ResponseT> performRequestAsync(
+            RequestT request, Endpoint<RequestT, ResponseT, ErrorT> endpoint, TransportOptions options) {
+        if (!QUERY_ENDPOINTS.contains(endpoint.id())) {
+            return delegate.performRequestAsync(request, endpoint, options);
+        }
+
+        boolean sampled = isSampled();
+        // 回调在I/O线程上执行，调用栈只能在提交时获取；取栈有开销，未采样的慢查询只记录提交线程
+        StackTraceElement[] stack = sampled ? new Throwable().getStackTrace() : null;
+        String submitThread = Thread.currentThread().getName();
+        long start = System.nanoTime();
+        CompletableFuture<ResponseT> future = delegate.performRequestAsync(request, endpoint, options);
+        future.whenComplete((response, error) -> {
+            long elapsed = System.nanoTime() - start;
+            if (sampled || elapsed >= slowThresholdNanos) {
+                submit(request, endpoint, response, error, elapsed,
+                    stack != null ? stack : new StackTraceElement[]{
+                        new StackTraceElement("async", submitThread, null, -1)});
+            }
+        });
+        return future;
+    }
+
+    private boolean isSampled() {
+        return sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    /**
+     * 请求线程上只收集引用，格式化在日志线程中完成
+     */
+    private <RequestT> void submit(RequestT request, Endpoint<RequestT, ?, ?> endpoint, Object response,
+                                   Throwable error, long elapsedNanos, StackTraceElement[] stack) {
+        boolean slow = elapsedNanos >= slowThresholdNanos;
+        logExecutor.execute(() -> {
+            try {
+                write(request, endpoint, response, error, elapsedNanos, slow, stack);
+            } catch (Exception e) {
+                log.debug("输出查询日志失败: {}", e.getMessage());
+            }
+        });
+        long droppedCount = dropped.get();
+        if (droppedCount > 0 && dropped.compareAndSet(droppedCount, 0)) {
+            log.warn("查询日志队列已满，丢弃 {} 条", droppedCount);
+        }
+    }
+
+    private <RequestT> void write(RequestT request, Endpoint<RequestT, ?, ?> endpoint, Object response,
+                                  Throwable error, long elapsedNanos, boolean slow, StackTraceElement[] stack) {
+        String url = endpoint.requestUrl(request);
+        String dsl = request instanceof JsonpSerializable
+            ? JsonpUtils.toJsonString((JsonpSerializable) request, delegate.jsonpMapper())
+            : "";
+        String message = "[{}] op={} index={} latency={}ms took={} hits={} caller={} {} {} {}";
+        Object[] args = {
+            slow ? "ES慢查询" : "ES查询采样",
+            endpoint.id().substring(endpoint.id().indexOf('/') + 1),
+            indexOf(url),
+            TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+            tookOf(response),
+            error != null ? "error:" + error.getClass().getSimpleName() : hitsOf(response),
+            callerOf(stack),
+            endpoint.method(request),
+            url,
+            dsl
+        };
+        if (slow) {
+            log.warn(message, args);
+        } else {
+            log.info(message, args);
+        }
+    }
+
+    /**
+     * 路径的第一段为索引名（多个索引以逗号分隔），以下划线开头的是_search等全局端点
+     */
+    private static String indexOf(String url) {
+        String path = url.startsWith("/") ? url.substring(1) : url;
+        int slash = path.indexOf('/');
+        String first = slash >= 0 ? path.substring(0, slash) : path;
+        return first.isEmpty() || first.startsWith("_") ? "_all" : first;
+    }
+
+    private static Object tookOf(Object response) {
+        if (response instanceof ResponseBody) {
+            return ((ResponseBody<?>) response).took() + "ms";
+        }
+        if (response instanceof MultiSearchResult) {
+            return ((MultiSearchResult<?>) response).took() + "ms";
+        }
+        if (response instanceof UpdateByQueryResponse) {
+            return ((UpdateByQueryResponse) response).took() + "ms";
+        }
+        if (response instanceof DeleteByQueryResponse) {
+            return ((DeleteByQueryResponse) response).took() + "ms";
+        }
+        if (response instanceof BulkResponse) {
+            return ((BulkResponse) response).took() + "ms";
+        }
+        return "-";
+    }
+
+    private static Object hitsOf(Object response) {
+        if (response instanceof ResponseBody) {
+            TotalHits total = ((ResponseBody<?>) response).hits().total();
+            if (total == null) {
+                return ((ResponseBody<?>) response).hits().hits().size() + "(未统计总数)";
+            }
+            return total.value() + (total.relation() == TotalHitsRelation.Gte ? "+" : "");
+        }
+        if (response instanceof CountResponse) {
+            return ((CountResponse) response).count();
+        }
+        if (response instanceof MultiSearchResult) {
+            return ((MultiSearchResult<?>) response).responses().size() + "个子查询";
+        }
+        return "-";
+    }
+
+    /**
+     * 调用方：调用栈中第一个不属于Transport、Mapper和指标封装的应用类方法
+     */
+    private static String callerOf(StackTraceElement[] stack) {
+        for (StackTraceElement frame : stack) {
+            String className = frame.getClassName();
+            if ("async".equals(className)) {
+                return "async@" + frame.getMethodName();
+            }
+            if (className.startsWith(APP_PACKAGE)
+                && !className.startsWith(APP_PACKAGE + "config.")
+                && !className.startsWith(APP_PACKAGE + "mapper.")
+                && !className.startsWith(APP_PACKAGE + "metrics.")) {
+                return className.substring(className.lastIndexOf('.') + 1)
+                    + "." + frame.getMethodName() + ":" + frame.getLineNumber();
+            }
+        }
+        return "unknown";
+    }
+
+    @Override
+    public JsonpMapper jsonpMapper() {
+        return delegate.jsonpMapper();
+    }
+
+    @Override
+    public TransportOptions options() {
+        return delegate.options();
+    }
+
+    @Override
+    public void close() throws IOException {
+        logExecutor.shutdown();
+        delegate.close();
+    }
+}
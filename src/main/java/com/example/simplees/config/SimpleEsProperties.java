@@ -44,14 +44,415 @@ public class SimpleEsProperties {
      * 套接字超时时间（毫秒）
      */
     private int socketTimeout = 60000;
+
+    /**
+     * 从连接池获取连接的超时时间（毫秒），池满时请求在客户端排队的最长时间。
+     * 默认-1与RestClient一致，不限制排队时间；设为正数后池满超时的请求会直接失败
+     */
+    private int connectionRequestTimeout = -1;
+
+    /**
+     * 连接池最大连接数
+     */
+    private int maxConnTotal = 100;
+
+    /**
+     * 每个节点（route）的最大连接数
+     */
+    private int maxConnPerRoute = 50;
+
+    /**
+     * I/O线程数，小于等于0时使用CPU核数
+     */
+    private int ioThreadCount = 0;
+
+    /**
+     * 空闲连接保活时间（毫秒），需小于ES及中间网络设备的空闲断连时间
+     */
+    private long keepAliveMs = 60000;
+
+    /**
+     * 是否启用TCP_NODELAY
+     */
+    private boolean tcpNoDelay = true;
+
+    /**
+     * 是否启用SO_KEEPALIVE
+     */
+    private boolean soKeepAlive = true;
     
     /**
-     * 是否启用DSL打印
+     * 是否启用DSL打印（查询日志），采样率和慢查询阈值见queryLog
      */
     private boolean printDsl = true;
+
+    /**
+     * 查询日志配置
+     */
+    private QueryLog queryLog = new QueryLog();
+
+    /**
+     * 查询日志配置
+     * 只记录被采样或超过慢查询阈值的查询，DSL的序列化和输出在后台线程完成
+     */
+    @Data
+    public static class QueryLog {
+
+        /**
+         * 采样率（0-1），0表示只记录慢查询
+         */
+        private double sampleRate = 0.01;
+
+        /**
+         * 慢查询阈值（毫秒），客户端耗时达到该值的查询以WARN级别记录，小于等于0表示不记录慢查询
+         */
+        private long slowThresholdMs = 500;
+
+        /**
+         * 待输出日志的队列长度，队列满时丢弃新的日志
+         */
+        private int queueCapacity = 1000;
+    }
     
     /**
      * 是否启用驼峰转下划线
+     * 启用后LambdaWrapper中User::getCreateTime对应的ES字段为create_time，需与文档实际存储的字段名一致
+     */
+    private boolean mapUnderscoreToCamelCase = false;
+
+    /**
+     * 搜索配置
      */
-    private boolean mapUnderscoreToCamelCase = true;
+    private Search search = new Search();
+
+    /**
+     * 搜索配置
+     */
+    @Data
+    public static class Search {
+
+        /**
+         * 默认的总数统计方式：true精确计数，false不计数，正整数表示最多精确计数到该值
+         * 精确计数需要访问全部匹配文档，宽泛的关键词搜索建议使用上限
+         */
+        private String trackTotalHits = "10000";
+    }
+
+    /**
+     * 批量写入配置
+     */
+    private Bulk bulk = new Bulk();
+
+    /**
+     * 批量写入（BulkIngester）配置
+     * 满足任意一个条件即触发flush：文档数、字节数、等待时间
+     */
+    @Data
+    public static class Bulk {
+
+        /**
+         * 单个bulk请求最多包含的文档数
+         */
+        private int maxOperations = 1000;
+
+        /**
+         * 单个bulk请求最大字节数，需小于ES的http.max_content_length
+         */
+        private long maxSizeBytes = 5 * 1024 * 1024;
+
+        /**
+         * 最长等待时间（毫秒），到时即使未攒满也会发送
+         */
+        private long flushIntervalMs = 1000;
+
+        /**
+         * 同时在途的bulk请求数，达到上限后写入方会被阻塞（背压）
+         */
+        private int maxConcurrentRequests = 2;
+    }
+
+    /**
+     * 本地缓存配置
+     */
+    private Cache cache = new Cache();
+
+    /**
+     * 本地读缓存（Caffeine）配置
+     * 用于findById/findByEmail的热点数据，写操作会主动失效对应条目
+     */
+    @Data
+    public static class Cache {
+
+        /**
+         * 是否启用本地缓存
+         */
+        private boolean enabled = true;
+
+        /**
+         * 最大缓存条目数
+         */
+        private long maximumSize = 10000;
+
+        /**
+         * 写入后过期时间（秒）
+         */
+        private long expireAfterWriteSeconds = 300;
+
+        /**
+         * 写入后异步刷新时间（秒），小于等于0表示不刷新
+         */
+        private long refreshAfterWriteSeconds = 60;
+    }
+
+    /**
+     * 请求合并配置
+     */
+    private Coalesce coalesce = new Coalesce();
+
+    /**
+     * 请求合并配置
+     * 窗口内并发的findById合并为一次_mget，小型搜索合并为一次_msearch
+     */
+    @Data
+    public static class Coalesce {
+
+        /**
+         * 是否启用请求合并
+         */
+        private boolean enabled = false;
+
+        /**
+         * 合并窗口（毫秒），从窗口内第一个请求开始计时，每个请求最多因此多等待这么久
+         */
+        private long windowMs = 2;
+
+        /**
+         * 单次_mget最多包含的ID数，攒满立即发送
+         */
+        private int maxBatchSize = 100;
+
+        /**
+         * 单次_msearch最多包含的搜索数，攒满立即发送
+         */
+        private int maxSearchBatchSize = 20;
+
+        /**
+         * size不超过该值的搜索才参与合并，大结果集的搜索单独发送
+         */
+        private int maxSearchSize = 50;
+    }
+
+    /**
+     * 写入合并配置
+     */
+    private GroupCommit groupCommit = new GroupCommit();
+
+    /**
+     * 写入合并（group commit）配置
+     * 窗口内并发的单条createUser合并为一次_bulk，ES端一次请求、一次translog同步写入多条文档
+     */
+    @Data
+    public static class GroupCommit {
+
+        /**
+         * 是否启用写入合并
+         */
+        private boolean enabled = false;
+
+        /**
+         * 合并窗口（毫秒），从窗口内第一条写入开始计时，每次写入最多因此多等待这么久
+         */
+        private long windowMs = 2;
+
+        /**
+         * 单次_bulk最多包含的文档数，攒满立即发送
+         */
+        private int maxBatchSize = 200;
+    }
+
+    /**
+     * 请求压缩配置
+     */
+    private Compression compression = new Compression();
+
+    /**
+     * 客户端与ES之间的gzip压缩配置
+     * bulk等JSON请求体字段名大量重复，压缩率通常很高；小请求压缩收益不抵CPU开销，低于阈值时不压缩
+     */
+    @Data
+    public static class Compression {
+
+        /**
+         * 是否压缩请求体
+         */
+        private boolean enabled = false;
+
+        /**
+         * 是否发送Accept-Encoding: gzip，让ES压缩响应体
+         */
+        private boolean acceptEncoding = false;
+
+        /**
+         * 请求体不小于该字节数时才压缩
+         */
+        private int minSizeBytes = 1024;
+
+        /**
+         * 压缩级别（1-9），级别越高压缩率越高、CPU开销越大
+         */
+        private int level = 1;
+    }
+
+    /**
+     * 按查询批量更新/删除配置
+     */
+    private ByQuery byQuery = new ByQuery();
+
+    /**
+     * update_by_query/delete_by_query配置
+     * 任务以后台方式运行并自动切片，通过限速避免批量修改挤占线上查询的资源
+     */
+    @Data
+    public static class ByQuery {
+
+        /**
+         * 每秒最多处理的文档数，小于等于0表示不限速
+         */
+        private long requestsPerSecond = 1000;
+    }
+
+    /**
+     * 索引重建配置
+     */
+    private Reindex reindex = new Reindex();
+
+    /**
+     * 索引重建配置
+     * 新版本索引在后台切片复制，完成后补齐增量并原子切换别名
+     */
+    @Data
+    public static class Reindex {
+
+        /**
+         * 全量复制每秒最多处理的文档数，小于等于0表示不限速，运行中可通过rethrottle调整
+         */
+        private long requestsPerSecond = 5000;
+
+        /**
+         * 轮询复制进度的间隔（毫秒）
+         */
+        private long pollIntervalMs = 1000;
+
+        /**
+         * 增量补齐的最大轮数
+         */
+        private int catchUpMaxPasses = 3;
+
+        /**
+         * 一轮补齐的文档数不超过该值时停止补齐并切换别名
+         */
+        private long catchUpThreshold = 100;
+
+        /**
+         * 补齐时在上一轮开始时间基础上往前多取的秒数，覆盖进行中的写入和时钟误差
+         */
+        private long catchUpMarginSeconds = 5;
+
+        /**
+         * 切换别名前比对删除时每页的文档数，不能超过max_result_window（10000）
+         */
+        private int deleteCheckBatchSize = 5000;
+
+        /**
+         * 切换别名后是否删除旧索引，保留时可通过再次切换别名回滚
+         */
+        private boolean deleteOldIndex = false;
+    }
+
+    /**
+     * 时序索引滚动配置
+     */
+    private Rollover rollover = new Rollover();
+
+    /**
+     * 时序索引滚动配置
+     * 任一条件满足时滚动到新索引，条件为空表示不按该项判断
+     */
+    @Data
+    public static class Rollover {
+
+        /**
+         * 是否启用后台定时滚动
+         */
+        private boolean enabled = true;
+
+        /**
+         * 检查滚动条件的间隔（秒）
+         */
+        private long checkIntervalSeconds = 60;
+
+        /**
+         * 单个索引的最大文档数
+         */
+        private Long maxDocs = 20_000_000L;
+
+        /**
+         * 单个主分片的最大大小，建议10gb~50gb
+         */
+        private String maxPrimaryShardSize = "30gb";
+
+        /**
+         * 单个索引的最长写入时间
+         */
+        private String maxAge = "1d";
+
+        /**
+         * 时序索引的主分片数
+         */
+        private int numberOfShards = 1;
+
+        /**
+         * 时序索引的副本数
+         */
+        private int numberOfReplicas = 0;
+    }
+
+    /**
+     * 聚合统计配置
+     */
+    private Aggregation aggregation = new Aggregation();
+
+    /**
+     * 聚合统计（分面）配置
+     * 结果按查询条件缓存在本地，索引写入代数变化后自动失效
+     */
+    @Data
+    public static class Aggregation {
+
+        /**
+         * 是否启用本地结果缓存
+         */
+        private boolean cacheEnabled = true;
+
+        /**
+         * 最大缓存条目数
+         */
+        private long maximumSize = 1000;
+
+        /**
+         * 写入后过期时间（秒），兜底清理不再访问的条目
+         */
+        private long expireAfterWriteSeconds = 600;
+
+        /**
+         * 两次获取索引写入代数的最小间隔（毫秒），建议与索引的refresh_interval一致；
+         * 写入代数变化后的这段时间内新写入可能尚未可见，此时的结果不缓存
+         */
+        private long generationCheckIntervalMs = 1000;
+
+        /**
+         * terms类维度（city、gender、tags）默认返回的桶数
+         */
+        private int termsSize = 10;
+    }
 }
@@ -0,0 +1,48 @@
+package com.example.simplees.constant;
+
+/**
+ * 索引字段类型
+ * AUTO表示按Java类型推断：String为keyword、整数为integer/long、浮点为double/float、
+ * Boolean为boolean、日期时间为date，集合取元素类型
+ *
+ * @author Simple-ES
+ */
+public enum FieldType {
+
+    AUTO(null),
+
+    /**
+     * 精确值，用于过滤、排序和聚合
+     */
+    KEYWORD("keyword"),
+
+    /**
+     * 分词的全文字段，用于全文检索
+     */
+    TEXT("text"),
+
+    INTEGER("integer"),
+
+    LONG("long"),
+
+    FLOAT("float"),
+
+    DOUBLE("double"),
+
+    BOOLEAN("boolean"),
+
+    DATE("date");
+
+    private final String esType;
+
+    FieldType(String esType) {
+        this.esType = esType;
+    }
+
+    /**
+     * 映射中的type值
+     */
+    public String getEsType() {
+        return esType;
+    }
+}
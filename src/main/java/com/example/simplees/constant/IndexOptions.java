@@ -0,0 +1,48 @@
+package com.example.simplees.constant;
+
+/**
+ * 倒排索引记录的信息（index_options）
+ * 记录越少占用磁盘越小，但能支持的查询也越少
+ *
+ * @author Simple-ES
+ */
+public enum IndexOptions {
+
+    /**
+     * 使用字段类型的默认值（text为positions，其他为docs）
+     */
+    DEFAULT(null),
+
+    /**
+     * 只记录文档号，只能判断是否匹配，不参与词频算分
+     */
+    DOCS("docs"),
+
+    /**
+     * 记录文档号和词频，可以算分，不支持短语查询
+     */
+    FREQS("freqs"),
+
+    /**
+     * 额外记录词的位置，支持短语和邻近查询
+     */
+    POSITIONS("positions"),
+
+    /**
+     * 额外记录字符偏移，用于高亮加速
+     */
+    OFFSETS("offsets");
+
+    private final String esName;
+
+    IndexOptions(String esName) {
+        this.esName = esName;
+    }
+
+    /**
+     * 映射中的index_options值
+     */
+    public String getEsName() {
+        return esName;
+    }
+}
@@ -1 +1,105 @@
- 
\ No newline at end of file
+package com.example.simplees.constant;
+
+/**
+ * 查询条件类型
+ * 每种类型对应一种ES查询，并决定它在bool查询中所处的子句：
+ * 精确匹配和范围条件放在filter中（不参与算分，可被ES缓存），全文检索放在must中，取反条件放在must_not中
+ *
+ * @author Simple-ES
+ */
+public enum QueryType {
+
+    /**
+     * 等于（term）
+     */
+    EQ(Occur.FILTER),
+
+    /**
+     * 不等于（must_not + term）
+     */
+    NE(Occur.MUST_NOT),
+
+    /**
+     * 包含任一值（terms）
+     */
+    IN(Occur.FILTER),
+
+    /**
+     * 不包含任何值（must_not + terms）
+     */
+    NOT_IN(Occur.MUST_NOT),
+
+    /**
+     * 大于（range gt）
+     */
+    GT(Occur.FILTER),
+
+    /**
+     * 大于等于（range gte）
+     */
+    GE(Occur.FILTER),
+
+    /**
+     * 小于（range lt）
+     */
+    LT(Occur.FILTER),
+
+    /**
+     * 小于等于（range lte）
+     */
+    LE(Occur.FILTER),
+
+    /**
+     * 闭区间（range gte + lte）
+     */
+    BETWEEN(Occur.FILTER),
+
+    /**
+     * 前缀匹配（prefix）
+     */
+    PREFIX(Occur.FILTER),
+
+    /**
+     * 字段存在（exists）
+     */
+    EXISTS(Occur.FILTER),
+
+    /**
+     * 字段不存在（must_not + exists）
+     */
+    NOT_EXISTS(Occur.MUST_NOT),
+
+    /**
+     * 全文检索（match）
+     */
+    MATCH(Occur.MUST),
+
+    /**
+     * 短语检索（match_phrase）
+     */
+    MATCH_PHRASE(Occur.MUST),
+
+    /**
+     * 多字段全文检索（multi_match）
+     */
+    MULTI_MATCH(Occur.MUST);
+
+    private final Occur occur;
+
+    QueryType(Occur occur) {
+        this.occur = occur;
+    }
+
+    public Occur getOccur() {
+        return occur;
+    }
+
+    /**
+     * bool查询中的子句
+     */
+    public enum Occur {
+        MUST,
+        FILTER,
+        MUST_NOT
+    }
+}
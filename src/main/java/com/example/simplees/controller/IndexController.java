@@ -1,6 +1,7 @@
 package com.example.simplees.controller;
 
 import com.example.simplees.service.IndexService;
+import com.example.simplees.service.RolloverService;
 import com.example.simplees.util.IndexMappingUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,8 +24,12 @@ public class IndexController {
     @Autowired
     private IndexService indexService;
 
+    @Autowired
+    private RolloverService rolloverService;
+
     /**
      * 创建用户索引
+     * 实际创建user_v1，并通过别名user访问，之后可零停机重建
      */
     @PostMapping("/user")
     public Map<String, Object> createUserIndex() {
@@ -37,7 +42,8 @@ public class IndexController {
             String userMapping = IndexMappingUtil.getUserIndexMapping();
             
             // 创建索引
-            boolean success = indexService.createIndex("user", userMapping);
+            boolean success = indexService.createVersionedIndex("user", userMapping,
+                IndexMappingUtil.getUserIndexSettings());
             
             if (success) {
                 result.put("success", true);
@@ -59,6 +65,28 @@ public class IndexController {
         return result;
     }
 
+    /**
+     * 校验用户索引的映射与User实体注解生成的映射是否一致
+     */
+    @GetMapping("/user/mapping/validate")
+    public Map<String, Object> validateUserMapping() {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            Map<String, Object> validation = indexService.validateMapping("user", IndexMappingUtil.getUserIndexMapping());
+
+            result.put("success", true);
+            result.put("data", validation);
+
+        } catch (Exception e) {
+            log.error("校验用户索引映射时发生异常", e);
+            result.put("success", false);
+            result.put("message", "校验用户索引映射失败: " + e.getMessage());
+        }
+
+        return result;
+    }
+
     /**
      * 创建文章索引
      */
@@ -131,6 +159,80 @@ public class IndexController {
         return result;
     }
 
+    /**
+     * 初始化时序索引（索引模板 + 第一个索引 + 写入别名）
+     */
+    @PostMapping("/timeseries/{alias}")
+    public Map<String, Object> setupTimeSeries(@PathVariable String alias) {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            log.info("开始初始化时序索引: {}", alias);
+
+            boolean success = rolloverService.setup(alias);
+
+            result.put("success", success);
+            result.put("message", success ? "时序索引初始化成功" : "时序索引初始化失败");
+            result.put("alias", alias);
+
+        } catch (Exception e) {
+            log.error("初始化时序索引时发生异常", e);
+            result.put("success", false);
+            result.put("message", "初始化时序索引时发生异常: " + e.getMessage());
+        }
+
+        return result;
+    }
+
+    /**
+     * 滚动时序索引，默认按配置的条件判断，force=true时无条件滚动
+     */
+    @PostMapping("/timeseries/{alias}/rollover")
+    public Map<String, Object> rolloverTimeSeries(@PathVariable String alias,
+                                                  @RequestParam(defaultValue = "false") boolean force,
+                                                  @RequestParam(defaultValue = "false") boolean dryRun) {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            Map<String, Object> rollover = rolloverService.rollover(alias, force, dryRun);
+
+            if (rollover != null) {
+                result.put("success", true);
+                result.put("data", rollover);
+            } else {
+                result.put("success", false);
+                result.put("message", "滚动时序索引失败");
+            }
+
+        } catch (Exception e) {
+            log.error("滚动时序索引时发生异常", e);
+            result.put("success", false);
+            result.put("message", "滚动时序索引时发生异常: " + e.getMessage());
+        }
+
+        return result;
+    }
+
+    /**
+     * 获取时序索引列表
+     */
+    @GetMapping("/timeseries")
+    public Map<String, Object> getTimeSeries() {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            result.put("success", true);
+            result.put("data", rolloverService.getTimeSeries());
+
+        } catch (Exception e) {
+            log.error("获取时序索引列表时发生异常", e);
+            result.put("success", false);
+            result.put("message", "获取时序索引列表失败: " + e.getMessage());
+        }
+
+        return result;
+    }
+
     /**
      * 创建自定义索引
      */
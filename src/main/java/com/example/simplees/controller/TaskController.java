@@ -0,0 +1,74 @@
+package com.example.simplees.controller;
+
+import com.example.simplees.service.TaskService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ES后台任务控制器
+ * 查询和取消update-by-query、delete-by-query等接口返回的任务
+ *
+ * @author Simple-ES
+ */
+@Slf4j
+@RestController
+@RequestMapping("/task")
+public class TaskController {
+
+    @Autowired
+    private TaskService taskService;
+
+    /**
+     * 查询任务进度
+     */
+    @GetMapping("/{taskId}")
+    public Map<String, Object> getTask(@PathVariable String taskId) {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            Map<String, Object> task = taskService.getTask(taskId);
+
+            if (task != null) {
+                result.put("success", true);
+                result.put("message", "查询任务成功");
+                result.put("data", task);
+            } else {
+                result.put("success", false);
+                result.put("message", "任务不存在");
+            }
+
+        } catch (Exception e) {
+            log.error("查询任务时发生异常", e);
+            result.put("success", false);
+            result.put("message", "查询任务失败: " + e.getMessage());
+        }
+
+        return result;
+    }
+
+    /**
+     * 取消任务
+     */
+    @PostMapping("/{taskId}/cancel")
+    public Map<String, Object> cancelTask(@PathVariable String taskId) {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            boolean success = taskService.cancelTask(taskId);
+
+            result.put("success", success);
+            result.put("message", success ? "任务已取消" : "任务取消失败");
+
+        } catch (Exception e) {
+            log.error("取消任务时发生异常", e);
+            result.put("success", false);
+            result.put("message", "取消任务失败: " + e.getMessage());
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.simplees.controller;
+
+import com.example.simplees.entity.User;
+import com.example.simplees.exception.VersionConflictException;
+import com.example.simplees.service.UserAsyncService;
+import com.example.simplees.util.UserConverter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * 用户异步控制器
+ * 接口与UserController一致，但返回CompletableFuture，
+ * Tomcat工作线程在等待ES响应期间会被释放，慢查询不会耗尽线程池
+ *
+ * @author Simple-ES
+ */
+@Slf4j
+@RestController
+@RequestMapping("/async/user")
+public class UserAsyncController {
+
+    @Autowired
+    private UserAsyncService userAsyncService;
+
+    /**
+     * 创建单个用户
+     */
+    @PostMapping
+    public CompletableFuture<Map<String, Object>> createUser(@RequestBody Map<String, Object> userData) {
+        // 转换也放在future中，请求体字段类型错误时同样返回统一的失败响应
+        return CompletableFuture.completedFuture(userData)
+            .thenApply(UserConverter::fromMap)
+            .thenCompose(userAsyncService::createUser)
+            .thenApply(createdUser -> {
+                Map<String, Object> result = new HashMap<>();
+                result.put("success", true);
+                result.put("message", "用户创建成功");
+                result.put("data", createdUser);
+                return result;
+            })
+            .exceptionally(failure("创建用户失败"));
+    }
+
+    /**
+     * 根据ID查询用户
+     */
+    @GetMapping("/{id}")
+    public CompletableFuture<Map<String, Object>> getUserById(@PathVariable String id,
+                                                              @RequestParam(required = false) String city) {
+        return userAsyncService.findById(id, city)
+            .thenApply(this::singleUserResult)
+            .exceptionally(failure("查询用户失败"));
+    }
+
+    /**
+     * 根据用户名查询用户
+     */
+    @GetMapping("/search/username")
+    public CompletableFuture<Map<String, Object>> getUsersByUsername(@RequestParam String username) {
+        return userAsyncService.findByUsername(username)
+            .thenApply(users -> {
+                Map<String, Object> result = new HashMap<>();
+                result.put("success", true);
+                result.put("message", "查询用户成功");
+                result.put("data", users);
+                result.put("count", users.size());
+                return result;
+            })
+            .exceptionally(failure("查询用户失败"));
+    }
+
+    /**
+     * 根据邮箱查询用户
+     */
+    @GetMapping("/search/email")
+    public CompletableFuture<Map<String, Object>> getUserByEmail(@RequestParam String email) {
+        return userAsyncService.findByEmail(email)
+            .thenApply(this::singleUserResult)
+            .exceptionally(failure("查询用户失败"));
+    }
+
+    /**
+     * 复杂搜索用户
+     */
+    @GetMapping("/search")
+    public CompletableFuture<Map<String, Object>> searchUsers(
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) Integer minAge,
+            @RequestParam(required = false) Integer maxAge,
+            @RequestParam(required = false) String gender,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) Boolean isActive,
+            @RequestParam(defaultValue = "1") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) List<String> fields,
+            @RequestParam(required = false) String trackTotalHits) {
+
+        return userAsyncService.searchUsers(
+                keyword, minAge, maxAge, gender, city, isActive, page, size, cursor, fields, trackTotalHits)
+            .thenApply(searchResult -> {
+                Map<String, Object> result = new HashMap<>();
+                result.put("success", true);
+                result.put("message", "搜索用户成功");
+                result.putAll(searchResult);
+                return result;
+            })
+            .exceptionally(failure("搜索用户失败"));
+    }
+
+    /**
+     * 局部更新用户，参数含义与UserController.updateUser一致
+     */
+    @PutMapping("/{id}")
+    public CompletableFuture<Map<String, Object>> updateUser(@PathVariable String id,
+                                                             @RequestParam(required = false) String city,
+                                                             @RequestBody Map<String, Object> userData,
+                                                             @RequestParam(defaultValue = "false") boolean upsert,
+                                                             @RequestParam(required = false) Long ifSeqNo,
+                                                             @RequestParam(required = false) Long ifPrimaryTerm) {
+        return CompletableFuture.completedFuture(userData)
+            .thenApply(UserConverter::fromUpdateMap)
+            .thenCompose(changes -> userAsyncService.updateUser(id, city, changes, upsert, ifSeqNo, ifPrimaryTerm))
+            .thenApply(updateResult -> {
+                Map<String, Object> result = new HashMap<>();
+                if (updateResult == null) {
+                    result.put("success", false);
+                    result.put("message", "用户不存在");
+                    return result;
+                }
+                result.put("success", true);
+                result.put("message", "用户更新成功");
+                result.putAll(UserConverter.toUpdateResultMap(updateResult));
+                return result;
+            })
+            .exceptionally(failure("更新用户失败"));
+    }
+
+    /**
+     * 删除用户
+     */
+    @DeleteMapping("/{id}")
+    public CompletableFuture<Map<String, Object>> deleteUser(@PathVariable String id,
+                                                             @RequestParam(required = false) String city) {
+        return userAsyncService.deleteUser(id, city)
+            .thenApply(success -> {
+                Map<String, Object> result = new HashMap<>();
+                result.put("success", success);
+                result.put("message", success ? "用户删除成功" : "用户删除失败");
+                return result;
+            })
+            .exceptionally(failure("删除用户失败"));
+    }
+
+    /**
+     * 统计用户数量
+     */
+    @GetMapping("/count")
+    public CompletableFuture<Map<String, Object>> countUsers() {
+        return userAsyncService.countUsers()
+            .thenApply(count -> {
+                Map<String, Object> result = new HashMap<>();
+                result.put("success", true);
+                result.put("message", "统计用户数量成功");
+                result.put("count", count);
+                return result;
+            })
+            .exceptionally(failure("统计用户数量失败"));
+    }
+
+    private Map<String, Object> singleUserResult(User user) {
+        Map<String, Object> result = new HashMap<>();
+        if (user != null) {
+            result.put("success", true);
+            result.put("message", "查询用户成功");
+            result.put("data", user);
+        } else {
+            result.put("success", false);
+            result.put("message", "用户不存在");
+        }
+        return result;
+    }
+
+    /**
+     * 将异常转换为统一的失败响应
+     */
+    private Function<Throwable, Map<String, Object>> failure(String message) {
+        return e -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            // 异常详情已在service层记录
+            log.warn("{}: {}", message, cause.getMessage());
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", false);
+            if (cause.getCause() instanceof VersionConflictException) {
+                result.put("conflict", true);
+            }
+            result.put("message", cause.getMessage() != null && cause.getMessage().startsWith(message)
+                ? cause.getMessage()
+                : message + ": " + cause.getMessage());
+            return result;
+        };
+    }
+}
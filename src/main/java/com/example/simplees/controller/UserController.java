@@ -1,16 +1,32 @@
 package com.example.simplees.controller;
 
 import com.example.simplees.entity.User;
+import com.example.simplees.exception.VersionConflictException;
+import com.example.simplees.mapper.UpdateResult;
+import com.example.simplees.service.BulkIngestService;
+import com.example.simplees.service.UserAggregationService;
 import com.example.simplees.service.UserService;
+import com.example.simplees.util.JsonUtils;
+import com.example.simplees.util.UserConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.time.LocalDateTime;
+import javax.servlet.http.HttpServletRequest;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
 
 /**
  * 用户控制器
@@ -26,6 +42,15 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private BulkIngestService bulkIngestService;
+
+    @Autowired
+    private UserAggregationService userAggregationService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * 创建单个用户
      */
@@ -34,22 +59,10 @@ public class UserController {
         Map<String, Object> result = new HashMap<>();
         
         try {
-            log.info("开始创建用户，接收到的数据: {}", userData);
+            log.debug("开始创建用户，接收到的数据: {}", userData);
             
             // 手动构建User对象，避免Jackson序列化问题
-            User user = User.builder()
-                .id(UUID.randomUUID().toString())
-                .username((String) userData.get("username"))
-                .email((String) userData.get("email"))
-                .age(userData.get("age") != null ? Integer.valueOf(userData.get("age").toString()) : null)
-                .gender((String) userData.get("gender"))
-                .city((String) userData.get("city"))
-                .bio((String) userData.get("bio"))
-                .createTime(LocalDateTime.now())
-                .updateTime(LocalDateTime.now())
-                .isActive(true)
-                .score(userData.get("score") != null ? Double.valueOf(userData.get("score").toString()) : null)
-                .build();
+            User user = UserConverter.fromMap(userData);
             
             User createdUser = userService.createUser(user);
             
@@ -76,21 +89,9 @@ public class UserController {
         try {
             log.info("开始批量创建用户，数量: {}", usersData.size());
             
-            List<User> users = usersData.stream().map(userData -> {
-                return User.builder()
-                    .id(UUID.randomUUID().toString())
-                    .username((String) userData.get("username"))
-                    .email((String) userData.get("email"))
-                    .age(userData.get("age") != null ? Integer.valueOf(userData.get("age").toString()) : null)
-                    .gender((String) userData.get("gender"))
-                    .city((String) userData.get("city"))
-                    .bio((String) userData.get("bio"))
-                    .createTime(LocalDateTime.now())
-                    .updateTime(LocalDateTime.now())
-                    .isActive(true)
-                    .score(userData.get("score") != null ? Double.valueOf(userData.get("score").toString()) : null)
-                    .build();
-            }).collect(java.util.stream.Collectors.toList());
+            List<User> users = usersData.stream()
+                .map(UserConverter::fromMap)
+                .collect(java.util.stream.Collectors.toList());
             
             List<User> createdUsers = userService.createUsers(users);
             
@@ -98,6 +99,7 @@ public class UserController {
             result.put("message", "批量创建用户成功");
             result.put("data", createdUsers);
             result.put("count", createdUsers.size());
+            result.put("failed", users.size() - createdUsers.size());
             
         } catch (Exception e) {
             log.error("批量创建用户时发生异常", e);
@@ -108,17 +110,107 @@ public class UserController {
         return result;
     }
 
+    /**
+     * 流式导入用户（NDJSON，每行一个用户）
+     * 边读边写，不会把整个请求体加载到内存；bulkLoad=true时导入期间关闭索引刷新和副本。
+     * 无法解析的行计入所在分块的失败数，错误信息带行号，不中断导入
+     */
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", MediaType.TEXT_PLAIN_VALUE})
+    public Map<String, Object> importUsers(HttpServletRequest request,
+                                           @RequestParam(defaultValue = "1000") int chunkSize,
+                                           @RequestParam(defaultValue = "false") boolean bulkLoad,
+                                           @RequestParam(required = false) Long maxNumSegments) {
+        Map<String, Object> result = new HashMap<>();
+        
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8))) {
+            log.info("开始流式导入用户，分块大小: {}，批量导入模式: {}", chunkSize, bulkLoad);
+            
+            Iterator<User> users = new NdjsonUserIterator(reader.lines().iterator());
+            
+            List<Map<String, Object>> chunks = bulkLoad
+                ? userService.bulkLoadUsers(users, Math.max(1, chunkSize), maxNumSegments)
+                : userService.importUsers(users, Math.max(1, chunkSize));
+            
+            long total = 0;
+            long failed = 0;
+            for (Map<String, Object> chunk : chunks) {
+                total += (Integer) chunk.get("count");
+                failed += (Integer) chunk.get("failed");
+            }
+            
+            result.put("success", true);
+            result.put("message", "流式导入用户完成");
+            result.put("total", total);
+            result.put("failed", failed);
+            result.put("chunks", chunks);
+            
+        } catch (Exception e) {
+            log.error("流式导入用户时发生异常", e);
+            result.put("success", false);
+            result.put("message", "流式导入用户失败: " + e.getMessage());
+        }
+        
+        return result;
+    }
+
+    /**
+     * 获取批量写入统计信息
+     */
+    @GetMapping("/bulk/stats")
+    public Map<String, Object> getBulkStats() {
+        Map<String, Object> result = new HashMap<>();
+        
+        try {
+            result.put("success", true);
+            result.put("message", "获取批量写入统计成功");
+            result.put("data", bulkIngestService.getStats());
+            
+        } catch (Exception e) {
+            log.error("获取批量写入统计时发生异常", e);
+            result.put("success", false);
+            result.put("message", "获取批量写入统计失败: " + e.getMessage());
+        }
+        
+        return result;
+    }
+
+    /**
+     * 获取本地缓存统计信息
+     */
+    @GetMapping("/cache/stats")
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> result = new HashMap<>();
+        
+        try {
+            result.put("success", true);
+            result.put("message", "获取缓存统计成功");
+            Map<String, Object> stats = userService.getCacheStats();
+            stats.put("aggregation", userAggregationService.getCacheStats());
+            result.put("data", stats);
+            
+        } catch (Exception e) {
+            log.error("获取缓存统计时发生异常", e);
+            result.put("success", false);
+            result.put("message", "获取缓存统计失败: " + e.getMessage());
+        }
+        
+        return result;
+    }
+
     /**
      * 根据ID查询用户
+     * city为用户所在城市（路由值），传入时按城市路由读取，不传时按_id路由
      */
     @GetMapping("/{id}")
-    public Map<String, Object> getUserById(@PathVariable String id) {
+    public Map<String, Object> getUserById(@PathVariable String id,
+                                           @RequestParam(required = false) String city) {
         Map<String, Object> result = new HashMap<>();
         
         try {
-            log.info("根据ID查询用户: {}", id);
+            log.debug("根据ID查询用户: {}", id);
             
-            User user = userService.findById(id);
+            User user = userService.findById(id, city);
             
             if (user != null) {
                 result.put("success", true);
@@ -142,13 +234,16 @@ public class UserController {
      * 根据用户名查询用户
      */
     @GetMapping("/search/username")
-    public Map<String, Object> getUsersByUsername(@RequestParam String username) {
+    public Map<String, Object> getUsersByUsername(@RequestParam String username,
+                                                  @RequestParam(required = false) List<String> fields) {
         Map<String, Object> result = new HashMap<>();
         
         try {
-            log.info("根据用户名查询用户: {}", username);
+            log.debug("根据用户名查询用户: {}", username);
             
-            List<User> users = userService.findByUsername(username);
+            List<?> users = fields != null && !fields.isEmpty()
+                ? userService.findByUsername(username, fields)
+                : userService.findByUsername(username);
             
             result.put("success", true);
             result.put("message", "查询用户成功");
@@ -172,7 +267,7 @@ public class UserController {
         Map<String, Object> result = new HashMap<>();
         
         try {
-            log.info("根据邮箱查询用户: {}", email);
+            log.debug("根据邮箱查询用户: {}", email);
             
             User user = userService.findByEmail(email);
             
@@ -196,6 +291,8 @@ public class UserController {
 
     /**
      * 复杂搜索用户
+     * fields为逗号分隔的字段名（如id,username,city），指定时只返回这些字段；
+     * trackTotalHits为true（精确总数）、false（不统计总数）或计数上限，超过上限时totalIsLowerBound为true
      */
     @GetMapping("/search")
     public Map<String, Object> searchUsers(
@@ -206,15 +303,18 @@ public class UserController {
             @RequestParam(required = false) String city,
             @RequestParam(required = false) Boolean isActive,
             @RequestParam(defaultValue = "1") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) List<String> fields,
+            @RequestParam(required = false) String trackTotalHits) {
         
         Map<String, Object> result = new HashMap<>();
         
         try {
-            log.info("开始复杂搜索用户");
+            log.debug("开始复杂搜索用户");
             
             Map<String, Object> searchResult = userService.searchUsers(
-                keyword, minAge, maxAge, gender, city, isActive, page, size);
+                keyword, minAge, maxAge, gender, city, isActive, page, size, cursor, fields, trackTotalHits);
             
             result.put("success", true);
             result.put("message", "搜索用户成功");
@@ -230,52 +330,77 @@ public class UserController {
     }
 
     /**
-     * 更新用户
+     * 按条件统计用户分布（看板），条件参数与/search一致
+     * facets为逗号分隔的维度（city,gender,tags,age,score），不传时统计全部；
+     * 索引没有新写入时重复请求直接返回本地缓存的结果（cached=true）
+     */
+    @GetMapping("/facets")
+    public Map<String, Object> aggregateUsers(
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) Integer minAge,
+            @RequestParam(required = false) Integer maxAge,
+            @RequestParam(required = false) String gender,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) Boolean isActive,
+            @RequestParam(required = false) List<String> facets,
+            @RequestParam(required = false) Integer termsSize,
+            @RequestParam(defaultValue = "10") int ageInterval) {
+
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            Map<String, Object> facetResult = userAggregationService.aggregateUsers(
+                keyword, minAge, maxAge, gender, city, isActive, facets, termsSize, ageInterval);
+
+            result.put("success", true);
+            result.put("message", "统计用户分布成功");
+            result.putAll(facetResult);
+
+        } catch (Exception e) {
+            log.error("统计用户分布时发生异常", e);
+            result.put("success", false);
+            result.put("message", "统计用户分布失败: " + e.getMessage());
+        }
+
+        return result;
+    }
+
+    /**
+     * 局部更新用户
+     * 只发送请求中出现的字段，一次请求完成更新并返回更新后的文档；
+     * 传入ifSeqNo/ifPrimaryTerm（取自上一次更新的返回值）时，文档已被他人修改则更新失败并返回conflict=true；
+     * city为用户所在城市（路由值），传入时按城市路由，此时城市本身不能通过局部更新修改
      */
     @PutMapping("/{id}")
-    public Map<String, Object> updateUser(@PathVariable String id, @RequestBody Map<String, Object> userData) {
+    public Map<String, Object> updateUser(@PathVariable String id,
+                                          @RequestParam(required = false) String city,
+                                          @RequestBody Map<String, Object> userData,
+                                          @RequestParam(defaultValue = "false") boolean upsert,
+                                          @RequestParam(required = false) Long ifSeqNo,
+                                          @RequestParam(required = false) Long ifPrimaryTerm) {
         Map<String, Object> result = new HashMap<>();
         
         try {
-            log.info("开始更新用户: {}", id);
+            log.debug("开始更新用户: {}", id);
             
-            // 先查询现有用户
-            User existingUser = userService.findById(id);
-            if (existingUser == null) {
+            User changes = UserConverter.fromUpdateMap(userData);
+            UpdateResult<User> updateResult = userService.updateUser(id, city, changes, upsert, ifSeqNo, ifPrimaryTerm);
+            
+            if (updateResult == null) {
                 result.put("success", false);
                 result.put("message", "用户不存在");
                 return result;
             }
             
-            // 更新字段
-            if (userData.get("username") != null) {
-                existingUser.setUsername((String) userData.get("username"));
-            }
-            if (userData.get("email") != null) {
-                existingUser.setEmail((String) userData.get("email"));
-            }
-            if (userData.get("age") != null) {
-                existingUser.setAge(Integer.valueOf(userData.get("age").toString()));
-            }
-            if (userData.get("gender") != null) {
-                existingUser.setGender((String) userData.get("gender"));
-            }
-            if (userData.get("city") != null) {
-                existingUser.setCity((String) userData.get("city"));
-            }
-            if (userData.get("bio") != null) {
-                existingUser.setBio((String) userData.get("bio"));
-            }
-            if (userData.get("score") != null) {
-                existingUser.setScore(Double.valueOf(userData.get("score").toString()));
-            }
-            
-            User updatedUser = userService.updateUser(id, existingUser);
-            
             result.put("success", true);
             result.put("message", "用户更新成功");
-            result.put("data", updatedUser);
+            result.putAll(UserConverter.toUpdateResultMap(updateResult));
             
+        } catch (VersionConflictException e) {
+            log.warn("更新用户时发生版本冲突: {}", id);
+            result.put("success", false);
+            result.put("conflict", true);
+            result.put("message", "更新用户失败: " + e.getMessage());
         } catch (Exception e) {
             log.error("更新用户时发生异常", e);
             result.put("success", false);
@@ -285,17 +410,180 @@ public class UserController {
         return result;
     }
 
+    /**
+     * 按条件批量修改用户，例如 POST /user/update-by-query?city=北京 {"isActive": false}
+     * 条件参数与/search一致，请求立即返回ES任务ID，进度通过 GET /task/{taskId} 查询
+     */
+    @PostMapping("/update-by-query")
+    public Map<String, Object> updateUsersByQuery(
+            @RequestBody Map<String, Object> userData,
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) Integer minAge,
+            @RequestParam(required = false) Integer maxAge,
+            @RequestParam(required = false) String gender,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) Boolean isActive,
+            @RequestParam(required = false) Long requestsPerSecond) {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            User changes = UserConverter.fromUpdateMap(userData);
+            String taskId = userService.updateUsersByQuery(
+                keyword, minAge, maxAge, gender, city, isActive, changes, requestsPerSecond);
+
+            result.put("success", true);
+            result.put("message", "按条件更新用户任务已提交");
+            result.put("taskId", taskId);
+
+        } catch (Exception e) {
+            log.error("按条件更新用户时发生异常", e);
+            result.put("success", false);
+            result.put("message", "按条件更新用户失败: " + e.getMessage());
+        }
+
+        return result;
+    }
+
+    /**
+     * 按条件批量删除用户，条件参数与/search一致，请求立即返回ES任务ID
+     */
+    @PostMapping("/delete-by-query")
+    public Map<String, Object> deleteUsersByQuery(
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) Integer minAge,
+            @RequestParam(required = false) Integer maxAge,
+            @RequestParam(required = false) String gender,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) Boolean isActive,
+            @RequestParam(required = false) Long requestsPerSecond) {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            String taskId = userService.deleteUsersByQuery(
+                keyword, minAge, maxAge, gender, city, isActive, requestsPerSecond);
+
+            result.put("success", true);
+            result.put("message", "按条件删除用户任务已提交");
+            result.put("taskId", taskId);
+
+        } catch (Exception e) {
+            log.error("按条件删除用户时发生异常", e);
+            result.put("success", false);
+            result.put("message", "按条件删除用户失败: " + e.getMessage());
+        }
+
+        return result;
+    }
+
+    /**
+     * 重建用户索引（零停机）
+     * 请求体为新映射（可为空，使用默认用户映射），请求立即返回，进度通过GET /user/reindex查询
+     */
+    @PostMapping("/reindex")
+    public Map<String, Object> reindexUsers(@RequestBody(required = false) String mappings,
+                                            @RequestParam(required = false) Long requestsPerSecond) {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            Map<String, Object> progress = userService.reindexUsers(mappings, requestsPerSecond);
+
+            result.put("success", true);
+            result.put("message", "用户索引重建已开始");
+            result.put("data", progress);
+
+        } catch (Exception e) {
+            log.error("重建用户索引时发生异常", e);
+            result.put("success", false);
+            result.put("message", "重建用户索引失败: " + e.getMessage());
+        }
+
+        return result;
+    }
+
+    /**
+     * 查询用户索引重建进度
+     */
+    @GetMapping("/reindex")
+    public Map<String, Object> getReindexProgress() {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            Map<String, Object> progress = userService.getReindexProgress();
+
+            if (progress != null) {
+                result.put("success", true);
+                result.put("data", progress);
+            } else {
+                result.put("success", false);
+                result.put("message", "没有用户索引重建记录");
+            }
+
+        } catch (Exception e) {
+            log.error("查询用户索引重建进度时发生异常", e);
+            result.put("success", false);
+            result.put("message", "查询重建进度失败: " + e.getMessage());
+        }
+
+        return result;
+    }
+
+    /**
+     * 调整用户索引重建的限速
+     */
+    @PostMapping("/reindex/rethrottle")
+    public Map<String, Object> rethrottleReindex(@RequestParam long requestsPerSecond) {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            boolean success = userService.rethrottleReindex(requestsPerSecond);
+
+            result.put("success", success);
+            result.put("message", success ? "重建限速已调整" : "没有正在复制的重建任务");
+
+        } catch (Exception e) {
+            log.error("调整重建限速时发生异常", e);
+            result.put("success", false);
+            result.put("message", "调整重建限速失败: " + e.getMessage());
+        }
+
+        return result;
+    }
+
+    /**
+     * 取消用户索引重建，别名保持指向原索引
+     */
+    @PostMapping("/reindex/cancel")
+    public Map<String, Object> cancelReindex() {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            boolean success = userService.cancelReindex();
+
+            result.put("success", success);
+            result.put("message", success ? "已取消用户索引重建" : "没有进行中的重建任务");
+
+        } catch (Exception e) {
+            log.error("取消重建时发生异常", e);
+            result.put("success", false);
+            result.put("message", "取消重建失败: " + e.getMessage());
+        }
+
+        return result;
+    }
+
     /**
      * 删除用户
+     * city为用户所在城市（路由值），传入时按城市路由删除，不传时按_id路由
      */
     @DeleteMapping("/{id}")
-    public Map<String, Object> deleteUser(@PathVariable String id) {
+    public Map<String, Object> deleteUser(@PathVariable String id,
+                                          @RequestParam(required = false) String city) {
         Map<String, Object> result = new HashMap<>();
         
         try {
-            log.info("开始删除用户: {}", id);
+            log.debug("开始删除用户: {}", id);
             
-            boolean success = userService.deleteUser(id);
+            boolean success = userService.deleteUser(id, city);
             
             if (success) {
                 result.put("success", true);
@@ -318,13 +606,15 @@ public class UserController {
      * 获取所有用户
      */
     @GetMapping("/list")
-    public Map<String, Object> getAllUsers() {
+    public Map<String, Object> getAllUsers(@RequestParam(required = false) List<String> fields) {
         Map<String, Object> result = new HashMap<>();
         
         try {
-            log.info("获取所有用户");
+            log.debug("获取所有用户");
             
-            List<User> users = userService.getAllUsers();
+            List<?> users = fields != null && !fields.isEmpty()
+                ? userService.getAllUsers(fields)
+                : userService.getAllUsers();
             
             result.put("success", true);
             result.put("message", "获取用户列表成功");
@@ -340,6 +630,38 @@ public class UserController {
         return result;
     }
 
+    /**
+     * 流式导出全部用户（NDJSON，每行一个用户）
+     * 边查询边写出响应，内存中只保留一页数据
+     */
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public StreamingResponseBody exportUsers(@RequestParam(defaultValue = "1000") int pageSize) {
+        log.info("开始流式导出用户，每页: {}", pageSize);
+        
+        return out -> {
+            long count = 0;
+            try (Stream<User> users = userService.exportUsers(Math.max(1, pageSize));
+                 SequenceWriter writer = objectMapper.writer()
+                     .withRootValueSeparator("\n")
+                     .writeValues(new BufferedOutputStream(out))) {
+                Iterator<User> iterator = users.iterator();
+                while (iterator.hasNext()) {
+                    writer.write(iterator.next());
+                    count++;
+                }
+                // 分隔符只写在值之间，补上最后一行的换行
+                writer.flush();
+                if (count > 0) {
+                    out.write('\n');
+                }
+            } catch (Exception e) {
+                log.error("流式导出用户时发生异常，已导出: {}", count, e);
+                throw e;
+            }
+            log.info("流式导出用户完成，数量: {}", count);
+        };
+    }
+
     /**
      * 统计用户数量
      */
@@ -348,7 +670,7 @@ public class UserController {
         Map<String, Object> result = new HashMap<>();
         
         try {
-            log.info("统计用户数量");
+            log.debug("统计用户数量");
             
             long count = userService.countUsers();
             
@@ -364,4 +686,50 @@ public class UserController {
         
         return result;
     }
-}
\ No newline at end of file
+
+    /**
+     * 逐行解析NDJSON的用户迭代器，跳过空行
+     * 某一行解析失败时next()抛出带行号的IllegalArgumentException，该行已被消费，可以继续迭代后续行
+     */
+    private static final class NdjsonUserIterator implements Iterator<User> {
+
+        private final Iterator<String> lines;
+
+        private String nextLine;
+
+        private long lineNo;
+
+        private long nextLineNo;
+
+        NdjsonUserIterator(Iterator<String> lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (nextLine == null && lines.hasNext()) {
+                String line = lines.next();
+                lineNo++;
+                if (!line.trim().isEmpty()) {
+                    nextLine = line;
+                    nextLineNo = lineNo;
+                }
+            }
+            return nextLine != null;
+        }
+
+        @Override
+        public User next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String line = nextLine;
+            nextLine = null;
+            try {
+                return UserConverter.fromMap(JsonUtils.toMap(line));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("第 " + nextLineNo + " 行解析失败: " + e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -1,5 +1,12 @@
 package com.example.simplees.entity;
 
+import com.example.simplees.annotation.Id;
+import com.example.simplees.annotation.IndexField;
+import com.example.simplees.annotation.IndexName;
+import com.example.simplees.annotation.IndexSetting;
+import com.example.simplees.annotation.Routing;
+import com.example.simplees.constant.FieldType;
+import com.example.simplees.constant.IndexOptions;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -11,29 +18,35 @@ import java.util.List;
 /**
  * 用户实体类
  * 用于演示Elasticsearch索引操作
+ * 文档按城市路由，不带城市的按ID读取依赖单分片，修改分片数前见Routing的说明
  * 
  * @author Simple-ES
  */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
+@IndexName("user")
+@IndexSetting(shards = 1, replicas = 0, refreshInterval = "1s")
 public class User {
     
     /**
      * 用户ID - 将作为文档的唯一标识符
      * 注意：在ES中，如果不指定_id，ES会自动生成
      */
+    @Id
     private String id;
     
     /**
      * 用户名 - 用于全文搜索
      */
+    @IndexField(type = FieldType.TEXT, ignoreAbove = 256)
     private String username;
     
     /**
-     * 邮箱 - 用于精确匹配
+     * 邮箱 - 只用于精确匹配，不排序不聚合，关闭doc_values
      */
+    @IndexField(docValues = false)
     private String email;
     
     /**
@@ -42,23 +55,28 @@ public class User {
     private Integer age;
     
     /**
-     * 性别 - 枚举值，用于精确匹配
+     * 性别 - 枚举值，用于精确匹配和分布统计
      */
+    @IndexField(eagerGlobalOrdinals = true)
     private String gender;
     
     /**
-     * 城市 - 地理位置相关
+     * 城市 - 地理位置相关，用于过滤和分布统计；作为路由键，按城市过滤的搜索只访问该城市所在的分片
      */
+    @Routing
+    @IndexField(eagerGlobalOrdinals = true)
     private String city;
     
     /**
-     * 个人简介 - 长文本，用于全文搜索
+     * 个人简介 - 长文本，用于全文搜索；不做短语查询，只记录词频，不按长度算分
      */
+    @IndexField(type = FieldType.TEXT, norms = false, indexOptions = IndexOptions.FREQS)
     private String bio;
     
     /**
-     * 标签列表 - 数组类型，用于多值匹配
+     * 标签列表 - 数组类型，用于多值匹配和分布统计
      */
+    @IndexField(eagerGlobalOrdinals = true)
     private List<String> tags;
     
     /**
@@ -1 +1,18 @@
- 
\ No newline at end of file
+package com.example.simplees.exception;
+
+/**
+ * Simple-ES统一异常
+ * 包装ES调用的IOException和实体元数据错误，调用方无需处理受检异常
+ *
+ * @author Simple-ES
+ */
+public class SimpleEsException extends RuntimeException {
+
+    public SimpleEsException(String message) {
+        super(message);
+    }
+
+    public SimpleEsException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.simplees.exception;
+
+/**
+ * 乐观并发控制冲突
+ * 带if_seq_no/if_primary_term的写操作发现文档已被其他请求修改时抛出，调用方应重新读取后再提交
+ *
+ * @author Simple-ES
+ */
+public class VersionConflictException extends SimpleEsException {
+
+    public VersionConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1 +1,592 @@
- 
\ No newline at end of file
+package com.example.simplees.mapper;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Conflicts;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.Result;
+import co.elastic.clients.elasticsearch._types.SlicesCalculation;
+import co.elastic.clients.elasticsearch._types.query_dsl.FieldAndFormat;
+import co.elastic.clients.elasticsearch.core.*;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.mget.MultiGetResponseItem;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.SourceConfig;
+import co.elastic.clients.elasticsearch.core.search.TotalHits;
+import co.elastic.clients.json.JsonData;
+import com.example.simplees.exception.SimpleEsException;
+import com.example.simplees.exception.VersionConflictException;
+import com.example.simplees.metadata.EntityInfo;
+import com.example.simplees.metadata.EntityInfoHelper;
+import com.example.simplees.metrics.EsMetrics;
+import com.example.simplees.util.ProjectionUtils;
+import com.example.simplees.wrapper.LambdaWrapper;
+import com.example.simplees.wrapper.Wrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 通用Mapper
+ * 继承并指定实体类型即可获得单索引的增删改查，索引名、ID字段等元数据在创建Bean时解析一次：
+ * <pre>
+ * &#64;Component
+ * public class UserMapper extends BaseMapper&lt;User&gt; {
+ * }
+ * </pre>
+ * ES调用的IOException统一包装为SimpleEsException。
+ * 实体有@Routing字段时，写入按字段值路由（字段为空时按_id路由）；按ID读写时调用方传入路由值才发送routing，
+ * 否则与未自定义路由时相同；条件查询从路由字段上的eq/in条件推导路由，只访问相关分片
+ *
+ * @param <T> 实体类型
+ * @author Simple-ES
+ */
+@Slf4j
+public abstract class BaseMapper<T> {
+
+    /**
+     * selectList最多返回的文档数，与索引默认的max_result_window一致
+     */
+    private static final int MAX_RESULT_WINDOW = 10000;
+
+    /**
+     * 未指定seqNo/primaryTerm时，版本冲突后由ES在分片上重试的次数
+     */
+    private static final int DEFAULT_RETRY_ON_CONFLICT = 3;
+
+    @Autowired
+    protected ElasticsearchClient client;
+
+    @Autowired
+    protected EsMetrics metrics;
+
+    protected final EntityInfo<T> entityInfo;
+
+    protected BaseMapper() {
+        this.entityInfo = EntityInfoHelper.getEntityInfo(resolveEntityClass());
+    }
+
+    public EntityInfo<T> getEntityInfo() {
+        return entityInfo;
+    }
+
+    public String getIndexName() {
+        return entityInfo.getIndexName();
+    }
+
+    /**
+     * 插入文档（ID已存在时覆盖）
+     * 实体未设置ID时由ES生成并回写到实体
+     *
+     * @param entity 实体
+     * @return 是否新建了文档
+     */
+    public boolean insert(T entity) {
+        String id = entityInfo.getId(entity);
+        String routing = entityInfo.getRouting(entity);
+        IndexResponse response = execute("index", "插入文档", () -> client.index(i -> i
+            .index(getIndexName())
+            .id(id)
+            .routing(routing)
+            .document(entity)));
+        if (id == null) {
+            entityInfo.setId(entity, response.id());
+        }
+        return response.result() == Result.Created;
+    }
+
+    /**
+     * 批量插入，单个bulk请求同步发送
+     * 持续大批量写入请使用BulkIngestService
+     *
+     * @param entities 实体列表
+     * @return 写入成功的文档数
+     */
+    public int insertBatch(Collection<T> entities) {
+        if (entities.isEmpty()) {
+            return 0;
+        }
+        BulkRequest.Builder br = new BulkRequest.Builder();
+        for (T entity : entities) {
+            String id = entityInfo.getId(entity);
+            String routing = entityInfo.getRouting(entity);
+            br.operations(op -> op
+                .index(idx -> idx
+                    .index(getIndexName())
+                    .id(id)
+                    .routing(routing)
+                    .document(entity)
+                )
+            );
+        }
+        BulkResponse response = execute("bulk", "批量插入文档", () -> client.bulk(br.build()));
+        metrics.recordTook("bulk", response.took());
+
+        int failed = 0;
+        for (BulkResponseItem item : response.items()) {
+            if (item.error() != null) {
+                failed++;
+                log.warn("[{}] 文档写入失败: {}, {}", getIndexName(), item.id(), item.error().reason());
+            }
+        }
+        metrics.recordBulk(response.items().size(), failed);
+        return response.items().size() - failed;
+    }
+
+    /**
+     * 根据ID查询
+     *
+     * @param id 文档ID
+     * @return 实体，不存在时返回null
+     */
+    public T selectById(String id) {
+        return selectById(id, null);
+    }
+
+    /**
+     * 根据ID和路由值查询（实时读取，不依赖刷新）
+     * 文档写入时带了路由值的，读取时需要传入相同的值
+     *
+     * @param id 文档ID
+     * @param routing 路由值，为null时按_id路由
+     * @return 实体，不存在时返回null
+     */
+    public T selectById(String id, String routing) {
+        GetResponse<T> response = execute("get", "根据ID查询文档", () -> client.get(g -> g
+            .index(getIndexName())
+            .id(id)
+            .routing(routing), entityInfo.getEntityClass()));
+        return response.found() ? response.source() : null;
+    }
+
+    /**
+     * 根据ID批量查询（mget），不存在的ID会被跳过
+     *
+     * @param ids 文档ID列表
+     * @return 实体列表，顺序与ids一致
+     */
+    public List<T> selectBatchIds(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> idList = new ArrayList<>(ids);
+        MgetResponse<T> response = execute("mget", "根据ID批量查询文档", () -> client.mget(m -> m
+            .index(getIndexName())
+            .ids(idList), entityInfo.getEntityClass()));
+
+        List<T> entities = new ArrayList<>(idList.size());
+        for (MultiGetResponseItem<T> item : response.docs()) {
+            if (item.isResult() && item.result().found()) {
+                entities.add(item.result().source());
+            }
+        }
+        return entities;
+    }
+
+    /**
+     * 条件查询单个文档
+     *
+     * @param wrapper 查询条件
+     * @return 第一个匹配的实体，没有时返回null
+     */
+    public T selectOne(Wrapper<T> wrapper) {
+        List<T> entities = search(wrapper, 0, 1, entityInfo.getEntityClass()).hits().hits().stream()
+            .map(Hit::source)
+            .collect(Collectors.toList());
+        return entities.isEmpty() ? null : entities.get(0);
+    }
+
+    /**
+     * 条件查询列表
+     * 最多返回10000条，超过时请使用分页或PIT导出
+     *
+     * @param wrapper 查询条件
+     * @return 实体列表
+     */
+    public List<T> selectList(Wrapper<T> wrapper) {
+        return search(wrapper, 0, MAX_RESULT_WINDOW, entityInfo.getEntityClass()).hits().hits().stream()
+            .map(Hit::source)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * 条件分页查询（from/size）
+     *
+     * @param wrapper 查询条件
+     * @param page 页码，从1开始
+     * @param size 每页条数
+     * @return 分页结果
+     */
+    public PageResult<T> selectPage(Wrapper<T> wrapper, int page, int size) {
+        SearchResponse<T> response = search(wrapper, (page - 1) * size, size, entityInfo.getEntityClass());
+        List<T> records = response.hits().hits().stream()
+            .map(Hit::source)
+            .collect(Collectors.toList());
+        TotalHits totalHits = response.hits().total();
+        return new PageResult<>(records, totalHits != null ? totalHits.value() : 0, page, size);
+    }
+
+    /**
+     * 条件查询列表，结果为只含投影字段的Map（id + select/docValueFields指定的字段）
+     * 比反序列化为完整实体更省内存，适合列表页只展示少数字段的场景
+     *
+     * @param wrapper 查询条件（通常带select或docValueFields）
+     * @return 投影结果列表
+     */
+    public List<Map<String, Object>> selectMaps(Wrapper<T> wrapper) {
+        return search(wrapper, 0, MAX_RESULT_WINDOW, ProjectionUtils.MAP_CLASS).hits().hits().stream()
+            .map(ProjectionUtils::toMap)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * 条件分页查询，结果为投影Map
+     *
+     * @param wrapper 查询条件（通常带select或docValueFields）
+     * @param page 页码，从1开始
+     * @param size 每页条数
+     * @return 分页结果
+     */
+    public PageResult<Map<String, Object>> selectMapsPage(Wrapper<T> wrapper, int page, int size) {
+        SearchResponse<Map<String, Object>> response = search(wrapper, (page - 1) * size, size, ProjectionUtils.MAP_CLASS);
+        List<Map<String, Object>> records = response.hits().hits().stream()
+            .map(ProjectionUtils::toMap)
+            .collect(Collectors.toList());
+        TotalHits totalHits = response.hits().total();
+        return new PageResult<>(records, totalHits != null ? totalHits.value() : 0, page, size);
+    }
+
+    /**
+     * 根据ID局部更新，只更新实体中的非null字段
+     *
+     * @param entity 实体，必须设置ID
+     * @return 文档是否存在（内容未变化时也返回true）
+     */
+    public boolean updateById(T entity) {
+        String id = entityInfo.getId(entity);
+        if (id == null) {
+            throw new SimpleEsException("更新文档时ID不能为空: " + entityInfo.getEntityClass().getSimpleName());
+        }
+        UpdateResponse<T> response = execute("update", "更新文档", () -> client.update(u -> u
+            .index(getIndexName())
+            .id(id)
+            .doc(entity), entityInfo.getEntityClass()));
+        return response.result() == Result.Updated || response.result() == Result.NoOp;
+    }
+
+    /**
+     * 局部更新，一次请求完成更新并返回更新后的文档
+     * 传入ifSeqNo/ifPrimaryTerm时做乐观并发控制，文档已被修改则抛出VersionConflictException；
+     * 否则由ES在冲突时自动重试（retry_on_conflict）
+     *
+     * @param id 文档ID
+     * @param doc 需要修改的字段（实体中为null的字段不会发送）
+     * @param upsert 文档不存在时写入的完整文档，为null时不做upsert
+     * @param ifSeqNo 期望的seqNo
+     * @param ifPrimaryTerm 期望的primaryTerm
+     * @return 更新结果，文档不存在且未upsert时返回null
+     */
+    public UpdateResult<T> update(String id, Object doc, T upsert, Long ifSeqNo, Long ifPrimaryTerm) {
+        return update(id, null, doc, upsert, ifSeqNo, ifPrimaryTerm);
+    }
+
+    /**
+     * 按路由值局部更新，参数含义同update(id, doc, upsert, ifSeqNo, ifPrimaryTerm)
+     *
+     * @param routing 路由值，为null时按_id路由
+     * @return 更新结果，文档不存在且未upsert时返回null
+     */
+    public UpdateResult<T> update(String id, String routing, Object doc, T upsert, Long ifSeqNo, Long ifPrimaryTerm) {
+        UpdateRequest<T, Object> request = buildUpdateRequest(id, routing, doc, upsert, ifSeqNo, ifPrimaryTerm);
+        try {
+            UpdateResponse<T> response = execute("update", "更新文档",
+                () -> client.update(request, entityInfo.getEntityClass()));
+            return toUpdateResult(response);
+        } catch (ElasticsearchException e) {
+            if (isDocumentMissing(e)) {
+                return null;
+            }
+            throw translateUpdateException(e);
+        }
+    }
+
+    /**
+     * 构建局部更新请求（同步和异步调用共用）
+     * 未指定路由值时使用upsert文档（其次是doc）中的路由字段，与按实体写入时的路由一致；都没有时按_id路由
+     *
+     * @param routing 路由值，为null时从文档中获取
+     */
+    public UpdateRequest<T, Object> buildUpdateRequest(String id, String routing, Object doc, T upsert,
+                                                       Long ifSeqNo, Long ifPrimaryTerm) {
+        if ((ifSeqNo == null) != (ifPrimaryTerm == null)) {
+            throw new IllegalArgumentException("ifSeqNo和ifPrimaryTerm必须同时指定");
+        }
+        String effectiveRouting = routing != null ? routing : routingOf(upsert != null ? upsert : doc);
+        if (effectiveRouting != null) {
+            checkRoutingUnchanged(doc, effectiveRouting);
+            if (upsert != null) {
+                checkRoutingUnchanged(upsert, effectiveRouting);
+            }
+        }
+        return UpdateRequest.of(u -> {
+            u.index(getIndexName())
+                .id(id)
+                .routing(effectiveRouting)
+                .doc(doc)
+                .source(src -> src.fetch(true));
+            if (upsert != null) {
+                u.upsert(upsert);
+            }
+            // ES不允许retry_on_conflict与if_seq_no同时使用
+            if (ifSeqNo != null) {
+                u.ifSeqNo(ifSeqNo).ifPrimaryTerm(ifPrimaryTerm);
+            } else {
+                u.retryOnConflict(DEFAULT_RETRY_ON_CONFLICT);
+            }
+            return u;
+        });
+    }
+
+    /**
+     * 实体文档中的路由值，不是实体（如Map）或没有路由字段时返回null
+     */
+    private String routingOf(Object doc) {
+        return entityInfo.hasRouting() && entityInfo.getEntityClass().isInstance(doc)
+            ? entityInfo.getRouting(entityInfo.getEntityClass().cast(doc))
+            : null;
+    }
+
+    /**
+     * 文档所在分片由路由值决定，局部更新不能修改路由字段，否则文档内容与所在分片不一致
+     */
+    private void checkRoutingUnchanged(Object doc, String routing) {
+        if (!entityInfo.getEntityClass().isInstance(doc)) {
+            return;
+        }
+        String newRouting = entityInfo.getRouting(entityInfo.getEntityClass().cast(doc));
+        if (newRouting != null && !newRouting.equals(routing)) {
+            throw new IllegalArgumentException("路由字段 " + entityInfo.getRoutingFieldName()
+                + " 不能通过局部更新修改，请删除后重新写入");
+        }
+    }
+
+    public static <T> UpdateResult<T> toUpdateResult(UpdateResponse<T> response) {
+        T source = response.get() != null ? response.get().source() : null;
+        return new UpdateResult<>(source, response.seqNo(), response.primaryTerm(), response.result());
+    }
+
+    /**
+     * 是否为文档不存在（而不是索引不存在等其他404）
+     */
+    public static boolean isDocumentMissing(ElasticsearchException e) {
+        return e.status() == 404 && "document_missing_exception".equals(e.error().type());
+    }
+
+    /**
+     * 将版本冲突（409）转换为VersionConflictException，其他异常原样返回
+     */
+    public static RuntimeException translateUpdateException(ElasticsearchException e) {
+        if (e.status() == 409) {
+            return new VersionConflictException("文档已被其他请求修改，请重新获取后再更新", e);
+        }
+        return e;
+    }
+
+    /**
+     * 根据ID删除
+     *
+     * @param id 文档ID
+     * @return 是否删除了文档
+     */
+    public boolean deleteById(String id) {
+        return deleteById(id, null);
+    }
+
+    /**
+     * 根据ID和路由值删除
+     *
+     * @param id 文档ID
+     * @param routing 路由值，为null时按_id路由
+     * @return 是否删除了文档
+     */
+    public boolean deleteById(String id, String routing) {
+        DeleteResponse response = execute("delete", "删除文档", () -> client.delete(d -> d
+            .index(getIndexName())
+            .id(id)
+            .routing(routing)));
+        return response.result() == Result.Deleted;
+    }
+
+    /**
+     * 按条件批量局部更新（update_by_query），以后台任务方式提交后立即返回
+     * 任务按分片数自动切片并行执行，版本冲突的文档跳过而不中断任务，
+     * 进度通过TaskService查询，也可以中途取消。与局部更新一样不能修改路由字段
+     *
+     * @param wrapper 查询条件
+     * @param doc 需要修改的字段（为null的字段不会发送）
+     * @param requestsPerSecond 每秒最多处理的文档数，小于等于0表示不限速
+     * @return ES任务ID（node:id）
+     */
+    public String updateByQuery(Wrapper<T> wrapper, Object doc, long requestsPerSecond) {
+        String routing = toRouting(wrapper, entityInfo);
+        checkRoutingUnchanged(doc, routing);
+        // doc作为脚本参数由transport的JsonpMapper序列化，日期格式等与写入文档时一致
+        Map<String, JsonData> params = Collections.singletonMap("doc", JsonData.of(doc));
+        UpdateByQueryResponse response = execute("update_by_query", "按条件更新文档", () -> client.updateByQuery(u -> u
+            .index(getIndexName())
+            .query(wrapper.toQuery())
+            .routing(routing)
+            .script(s -> s.inline(i -> i
+                .lang("painless")
+                .source("ctx._source.putAll(params.doc)")
+                .params(params)))
+            .conflicts(Conflicts.Proceed)
+            .slices(sl -> sl.computed(SlicesCalculation.Auto))
+            .requestsPerSecond(toRequestsPerSecond(requestsPerSecond))
+            .waitForCompletion(false)));
+        log.info("[{}] 已提交update_by_query任务: {}", getIndexName(), response.task());
+        return response.task();
+    }
+
+    /**
+     * 按条件批量删除（delete_by_query），以后台任务方式提交后立即返回
+     *
+     * @param wrapper 查询条件
+     * @param requestsPerSecond 每秒最多处理的文档数，小于等于0表示不限速
+     * @return ES任务ID（node:id）
+     */
+    public String deleteByQuery(Wrapper<T> wrapper, long requestsPerSecond) {
+        DeleteByQueryResponse response = execute("delete_by_query", "按条件删除文档", () -> client.deleteByQuery(d -> d
+            .index(getIndexName())
+            .query(wrapper.toQuery())
+            .routing(toRouting(wrapper, entityInfo))
+            .conflicts(Conflicts.Proceed)
+            .slices(sl -> sl.computed(SlicesCalculation.Auto))
+            .requestsPerSecond(toRequestsPerSecond(requestsPerSecond))
+            .waitForCompletion(false)));
+        log.info("[{}] 已提交delete_by_query任务: {}", getIndexName(), response.task());
+        return response.task();
+    }
+
+    /**
+     * ES以-1表示不限速
+     */
+    private static long toRequestsPerSecond(long requestsPerSecond) {
+        return requestsPerSecond > 0 ? requestsPerSecond : -1;
+    }
+
+    /**
+     * 统计全部文档数
+     *
+     * @return 文档数
+     */
+    public long count() {
+        return count(new LambdaWrapper<>());
+    }
+
+    /**
+     * 条件统计文档数
+     *
+     * @param wrapper 查询条件
+     * @return 文档数
+     */
+    public long count(Wrapper<T> wrapper) {
+        CountResponse response = execute("count", "统计文档数", () -> client.count(c -> c
+            .index(getIndexName())
+            .query(wrapper.toQuery())
+            .routing(toRouting(wrapper, entityInfo))));
+        return response.count();
+    }
+
+    private <D> SearchResponse<D> search(Wrapper<T> wrapper, int from, int size, Class<D> documentClass) {
+        SearchRequest.Builder request = new SearchRequest.Builder()
+            .index(getIndexName())
+            .query(wrapper.toQuery())
+            .sort(wrapper.toSortOptions())
+            .from(from)
+            .size(size);
+        applyProjection(request, wrapper);
+        applyRouting(request, wrapper, entityInfo);
+        SearchResponse<D> response = execute("search", "查询文档", () -> client.search(request.build(), documentClass));
+        metrics.recordTook("search", response.took());
+        return response;
+    }
+
+    /**
+     * 将Wrapper中的select/exclude/docValueFields应用到搜索请求，未指定时不改变请求
+     *
+     * @param request 搜索请求
+     * @param wrapper 查询条件
+     */
+    public static void applyProjection(SearchRequest.Builder request, Wrapper<?> wrapper) {
+        SourceConfig source = wrapper.toSourceConfig();
+        if (source != null) {
+            request.source(source);
+        }
+        List<FieldAndFormat> docValueFields = wrapper.toDocValueFields();
+        if (!docValueFields.isEmpty()) {
+            request.docvalueFields(docValueFields);
+        }
+    }
+
+    /**
+     * 从Wrapper中路由字段上的条件推导路由值，应用到搜索请求，无法推导时查询所有分片
+     *
+     * @param request 搜索请求
+     * @param wrapper 查询条件
+     * @param entityInfo 实体元数据
+     */
+    public static void applyRouting(SearchRequest.Builder request, Wrapper<?> wrapper, EntityInfo<?> entityInfo) {
+        String routing = toRouting(wrapper, entityInfo);
+        if (routing != null) {
+            request.routing(routing);
+        }
+    }
+
+    private static String toRouting(Wrapper<?> wrapper, EntityInfo<?> entityInfo) {
+        return entityInfo.hasRouting() ? wrapper.toRouting(entityInfo.getRoutingFieldName()) : null;
+    }
+
+    /**
+     * 执行ES调用：记录耗时，并把IOException包装为SimpleEsException
+     *
+     * @param operation 指标中的操作名称
+     * @param action 操作描述，用于日志和异常信息
+     * @param call ES调用
+     * @return 调用结果
+     */
+    protected <R> R execute(String operation, String action, EsMetrics.EsCall<R> call) {
+        try {
+            return metrics.time(operation, call);
+        } catch (IOException e) {
+            log.error("[{}] {}时发生异常", getIndexName(), action, e);
+            throw new SimpleEsException(action + "失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 从子类声明（如UserMapper extends BaseMapper&lt;User&gt;）中取得实体类型，兼容CGLIB代理子类
+     */
+    @SuppressWarnings("unchecked")
+    private Class<T> resolveEntityClass() {
+        for (Class<?> c = getClass(); c != null && c != Object.class; c = c.getSuperclass()) {
+            Type type = c.getGenericSuperclass();
+            if (type instanceof ParameterizedType
+                && ((ParameterizedType) type).getRawType() == BaseMapper.class) {
+                Type argument = ((ParameterizedType) type).getActualTypeArguments()[0];
+                if (argument instanceof Class) {
+                    return (Class<T>) argument;
+                }
+            }
+        }
+        throw new SimpleEsException("无法解析Mapper的实体类型: " + getClass().getName());
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.simplees.mapper;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 分页查询结果
+ *
+ * @param <T> 实体类型
+ * @author Simple-ES
+ */
+@Data
+public class PageResult<T> {
+
+    private final List<T> records;
+
+    private final long total;
+
+    private final int page;
+
+    private final int size;
+
+    public long getTotalPages() {
+        return size > 0 ? (total + size - 1) / size : 0;
+    }
+}
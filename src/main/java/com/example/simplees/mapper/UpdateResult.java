@@ -0,0 +1,29 @@
+package com.example.simplees.mapper;
+
+import co.elastic.clients.elasticsearch._types.Result;
+import lombok.Data;
+
+/**
+ * 局部更新结果
+ * 包含更新后的文档以及新的seqNo/primaryTerm，下一次条件更新直接使用即可，无需再查询
+ *
+ * @param <T> 实体类型
+ * @author Simple-ES
+ */
+@Data
+public class UpdateResult<T> {
+
+    /**
+     * 更新后的完整文档
+     */
+    private final T source;
+
+    private final Long seqNo;
+
+    private final Long primaryTerm;
+
+    /**
+     * Updated、NoOp（内容未变化）或Created（upsert新建）
+     */
+    private final Result result;
+}
@@ -1 +1,14 @@
- 
\ No newline at end of file
+package com.example.simplees.mapper;
+
+import com.example.simplees.entity.User;
+import org.springframework.stereotype.Component;
+
+/**
+ * 用户Mapper
+ * 索引名和ID字段来自User上的@IndexName/@Id
+ *
+ * @author Simple-ES
+ */
+@Component
+public class UserMapper extends BaseMapper<User> {
+}
@@ -0,0 +1,126 @@
+package com.example.simplees.metadata;
+
+import com.example.simplees.exception.SimpleEsException;
+import lombok.Getter;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 实体元数据
+ * 启动时由EntityInfoHelper解析一次，之后只读
+ *
+ * @param <T> 实体类型
+ * @author Simple-ES
+ */
+@Getter
+public class EntityInfo<T> {
+
+    private final Class<T> entityClass;
+
+    /**
+     * 索引名
+     */
+    private final String indexName;
+
+    /**
+     * _id对应的字段
+     */
+    private final Field idField;
+
+    /**
+     * 路由键对应的字段，未标注@Routing时为null
+     */
+    private final Field routingField;
+
+    /**
+     * 文档中的全部字段名（与序列化后的JSON字段一致）
+     */
+    private final List<String> fieldNames;
+
+    EntityInfo(Class<T> entityClass, String indexName, Field idField, Field routingField, List<String> fieldNames) {
+        this.entityClass = entityClass;
+        this.indexName = indexName;
+        this.idField = idField;
+        this.routingField = routingField;
+        this.fieldNames = fieldNames;
+    }
+
+    /**
+     * 是否按字段值自定义路由
+     */
+    public boolean hasRouting() {
+        return routingField != null;
+    }
+
+    /**
+     * 路由字段名，未自定义路由时为null
+     */
+    public String getRoutingFieldName() {
+        return routingField != null ? routingField.getName() : null;
+    }
+
+    /**
+     * 校验字段名都属于该实体，用于接口传入的投影字段等外部输入
+     *
+     * @param fields 字段名
+     */
+    public void validateFields(Collection<String> fields) {
+        for (String field : fields) {
+            if (!fieldNames.contains(field)) {
+                throw new IllegalArgumentException("未知字段: " + field);
+            }
+        }
+    }
+
+    /**
+     * 读取实体的_id
+     *
+     * @param entity 实体
+     * @return _id，未设置时为null
+     */
+    public String getId(T entity) {
+        try {
+            Object id = idField.get(entity);
+            return id != null ? id.toString() : null;
+        } catch (IllegalAccessException e) {
+            throw new SimpleEsException("读取实体ID失败: " + entityClass.getName(), e);
+        }
+    }
+
+    /**
+     * 读取实体的路由值
+     *
+     * @param entity 实体
+     * @return 路由值，未自定义路由或字段未设置时为null
+     */
+    public String getRouting(T entity) {
+        if (routingField == null) {
+            return null;
+        }
+        try {
+            Object routing = routingField.get(entity);
+            return routing != null ? routing.toString() : null;
+        } catch (IllegalAccessException e) {
+            throw new SimpleEsException("读取实体路由值失败: " + entityClass.getName(), e);
+        }
+    }
+
+    /**
+     * 回写ES生成的_id，ID字段不是String类型时忽略
+     *
+     * @param entity 实体
+     * @param id _id
+     */
+    public void setId(T entity, String id) {
+        if (idField.getType() != String.class) {
+            return;
+        }
+        try {
+            idField.set(entity, id);
+        } catch (IllegalAccessException e) {
+            throw new SimpleEsException("设置实体ID失败: " + entityClass.getName(), e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.simplees.metadata;
+
+import com.example.simplees.annotation.Id;
+import com.example.simplees.annotation.IndexName;
+import com.example.simplees.annotation.Routing;
+import com.example.simplees.exception.SimpleEsException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 实体元数据解析与缓存
+ * 每个实体类只反射解析一次，BaseMapper在启动时调用，运行期只做Map查找
+ *
+ * @author Simple-ES
+ */
+@Slf4j
+public class EntityInfoHelper {
+
+    private static final Map<Class<?>, EntityInfo<?>> ENTITY_INFOS = new ConcurrentHashMap<>();
+
+    private EntityInfoHelper() {
+    }
+
+    /**
+     * 获取实体元数据，首次调用时解析
+     *
+     * @param entityClass 实体类
+     * @return 实体元数据
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> EntityInfo<T> getEntityInfo(Class<T> entityClass) {
+        return (EntityInfo<T>) ENTITY_INFOS.computeIfAbsent(entityClass, EntityInfoHelper::resolve);
+    }
+
+    private static <T> EntityInfo<T> resolve(Class<T> entityClass) {
+        IndexName indexName = entityClass.getAnnotation(IndexName.class);
+        String index = indexName != null ? indexName.value() : entityClass.getSimpleName().toLowerCase();
+
+        Field idField = null;
+        Field defaultIdField = null;
+        Field routingField = null;
+        List<String> fieldNames = new ArrayList<>();
+        for (Class<?> c = entityClass; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers())) {
+                    continue;
+                }
+                fieldNames.add(field.getName());
+                if (field.isAnnotationPresent(Id.class)) {
+                    idField = field;
+                } else if ("id".equals(field.getName())) {
+                    defaultIdField = field;
+                }
+                if (field.isAnnotationPresent(Routing.class)) {
+                    if (routingField != null) {
+                        throw new SimpleEsException("实体只能有一个@Routing字段: " + entityClass.getName());
+                    }
+                    routingField = field;
+                }
+            }
+        }
+        if (idField == null) {
+            idField = defaultIdField;
+        }
+        if (idField == null) {
+            throw new SimpleEsException("实体缺少ID字段（@Id或名为id的字段）: " + entityClass.getName());
+        }
+        idField.setAccessible(true);
+        if (routingField != null) {
+            routingField.setAccessible(true);
+        }
+
+        log.info("解析实体元数据: {} -> 索引 {}, ID字段 {}, 路由字段 {}, 字段数 {}",
+                entityClass.getSimpleName(), index, idField.getName(),
+                routingField != null ? routingField.getName() : "-", fieldNames.size());
+        return new EntityInfo<>(entityClass, index, idField, routingField, Collections.unmodifiableList(fieldNames));
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.simplees.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Elasticsearch调用指标
+ * 区分客户端往返耗时（es.client.requests）与ES返回的took（es.server.took），
+ * 两者之差即为网络、排队和序列化的开销
+ *
+ * @author Simple-ES
+ */
+@Component
+public class EsMetrics implements InitializingBean {
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    @Autowired
+    private MeterRegistry registry;
+
+    /**
+     * Timer按操作名缓存，热路径上只有一次Map查找
+     */
+    private final Map<String, Timer> successTimers = new ConcurrentHashMap<>();
+
+    private final Map<String, Timer> errorTimers = new ConcurrentHashMap<>();
+
+    private final Map<String, Timer> tookTimers = new ConcurrentHashMap<>();
+
+    private final Map<String, DistributionSummary> requestBytes = new ConcurrentHashMap<>();
+
+    private final Map<String, DistributionSummary> compressionRatios = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> compressionSavedBytes = new ConcurrentHashMap<>();
+
+    private final Map<String, DistributionSummary> coalescedBatchSizes = new ConcurrentHashMap<>();
+
+    private Counter bulkItems;
+
+    private Counter bulkItemFailures;
+
+    @Override
+    public void afterPropertiesSet() {
+        this.bulkItems = Counter.builder("es.bulk.items")
+            .description("bulk写入的条目数")
+            .register(registry);
+        this.bulkItemFailures = Counter.builder("es.bulk.item.failures")
+            .description("bulk写入失败的条目数")
+            .register(registry);
+    }
+
+    /**
+     * 同步ES调用
+     */
+    @FunctionalInterface
+    public interface EsCall<T> {
+        T execute() throws IOException;
+    }
+
+    /**
+     * 记录一次同步ES调用的客户端往返耗时
+     *
+     * @param operation 操作名称，如index、search、indices.create
+     * @param call ES调用
+     * @return 调用结果
+     */
+    public <T> T time(String operation, EsCall<T> call) throws IOException {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = call.execute();
+            success = true;
+            return result;
+        } finally {
+            clientTimer(operation, success).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 记录一次异步ES调用的客户端往返耗时
+     *
+     * @param operation 操作名称
+     * @param future 异步调用结果
+     * @return 原future，便于链式调用
+     */
+    public <T> CompletableFuture<T> timeAsync(String operation, CompletableFuture<T> future) {
+        long start = System.nanoTime();
+        future.whenComplete((result, error) -> clientTimer(operation, error == null)
+            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        return future;
+    }
+
+    /**
+     * 直接记录一次已完成调用的客户端往返耗时，用于无法包装调用的场景（如BulkIngester回调）
+     *
+     * @param operation 操作名称
+     * @param success 是否成功
+     * @param elapsedNanos 耗时（纳秒）
+     */
+    public void recordClientTime(String operation, boolean success, long elapsedNanos) {
+        clientTimer(operation, success).record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录ES响应中的took（服务端执行耗时）
+     *
+     * @param operation 操作名称
+     * @param tookMs took毫秒数
+     */
+    public void recordTook(String operation, long tookMs) {
+        tookTimers.computeIfAbsent(operation, op -> Timer.builder("es.server.took")
+                .description("ES返回的服务端执行耗时")
+                .tag("operation", op)
+                .publishPercentileHistogram()
+                .publishPercentiles(PERCENTILES)
+                .register(registry))
+            .record(tookMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 记录一次bulk请求的条目数和失败数
+     *
+     * @param items 条目数
+     * @param failures 失败条目数
+     */
+    public void recordBulk(int items, int failures) {
+        bulkItems.increment(items);
+        if (failures > 0) {
+            bulkItemFailures.increment(failures);
+        }
+    }
+
+    /**
+     * 记录实际发往ES的请求体字节数，启用压缩时为压缩后的大小
+     *
+     * @param endpoint 端点类型（bulk、search、other）
+     * @param bytes 请求体字节数
+     */
+    public void recordRequestBytes(String endpoint, long bytes) {
+        requestBytes.computeIfAbsent(endpoint, ep -> DistributionSummary.builder("es.client.request.bytes")
+                .description("发往ES的请求体字节数")
+                .baseUnit("bytes")
+                .tag("endpoint", ep)
+                .register(registry))
+            .record(bytes);
+    }
+
+    /**
+     * 记录一次请求体压缩的效果
+     *
+     * @param endpoint 端点类型（bulk、search、other）
+     * @param originalBytes 压缩前字节数
+     * @param compressedBytes 压缩后字节数
+     */
+    public void recordCompression(String endpoint, long originalBytes, long compressedBytes) {
+        compressionRatios.computeIfAbsent(endpoint, ep -> DistributionSummary.builder("es.client.compression.ratio")
+                .description("请求体压缩后与压缩前的字节数之比")
+                .tag("endpoint", ep)
+                .publishPercentiles(PERCENTILES)
+                .register(registry))
+            .record((double) compressedBytes / originalBytes);
+        compressionSavedBytes.computeIfAbsent(endpoint, ep -> Counter.builder("es.client.compression.saved.bytes")
+                .description("请求体压缩节省的字节数")
+                .baseUnit("bytes")
+                .tag("endpoint", ep)
+                .register(registry))
+            .increment(originalBytes - compressedBytes);
+    }
+
+    /**
+     * 记录一次请求合并发出的批量大小（合并前的请求数）
+     *
+     * @param operation 合并后的操作（mget、msearch）
+     * @param size 本批合并的请求数
+     */
+    public void recordCoalescedBatch(String operation, int size) {
+        coalescedBatchSizes.computeIfAbsent(operation, op -> DistributionSummary.builder("es.client.coalesce.batch.size")
+                .description("每次合并发送包含的请求数")
+                .tag("operation", op)
+                .publishPercentiles(PERCENTILES)
+                .register(registry))
+            .record(size);
+    }
+
+    /**
+     * 根据请求路径归类端点类型
+     *
+     * @param path 请求路径
+     * @return bulk、search或other
+     */
+    public static String endpointOf(String path) {
+        return path.contains("_bulk") ? "bulk" : path.contains("_search") ? "search" : "other";
+    }
+
+    private Timer clientTimer(String operation, boolean success) {
+        Map<String, Timer> timers = success ? successTimers : errorTimers;
+        return timers.computeIfAbsent(operation, op -> Timer.builder("es.client.requests")
+            .description("ES调用的客户端往返耗时")
+            .tag("operation", op)
+            .tag("outcome", success ? "success" : "error")
+            .publishPercentileHistogram()
+            .publishPercentiles(PERCENTILES)
+            .register(registry));
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.simplees.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._helpers.bulk.BulkIngester;
+import co.elastic.clients.elasticsearch._helpers.bulk.BulkListener;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import com.example.simplees.config.SimpleEsProperties;
+import com.example.simplees.metrics.EsMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 批量写入服务
+ * 基于BulkIngester的常驻写入组件，持续接收文档并按文档数、字节数或等待时间自动flush，
+ * 同时限制在途bulk请求数，达到上限时add会阻塞调用方，从而对上游形成背压
+ *
+ * @author Simple-ES
+ */
+@Slf4j
+@Service
+public class BulkIngestService implements InitializingBean, DisposableBean {
+
+    @Autowired
+    private ElasticsearchClient client;
+
+    @Autowired
+    private SimpleEsProperties properties;
+
+    @Autowired
+    private EsMetrics metrics;
+
+    private BulkIngester<CompletableFuture<BulkResponseItem>> ingester;
+
+    private final AtomicLong successCount = new AtomicLong();
+
+    private final AtomicLong failureCount = new AtomicLong();
+
+    /**
+     * 在途bulk请求的发送时间（纳秒），用于计算客户端往返耗时
+     */
+    private final Map<Long, Long> requestStartNanos = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterPropertiesSet() {
+        SimpleEsProperties.Bulk bulk = properties.getBulk();
+        log.info("初始化BulkIngester: maxOperations={}, maxSizeBytes={}, flushIntervalMs={}, maxConcurrentRequests={}",
+                bulk.getMaxOperations(), bulk.getMaxSizeBytes(), bulk.getFlushIntervalMs(), bulk.getMaxConcurrentRequests());
+
+        this.ingester = BulkIngester.of(b -> b
+            .client(client)
+            .maxOperations(bulk.getMaxOperations())
+            .maxSize(bulk.getMaxSizeBytes())
+            .maxConcurrentRequests(bulk.getMaxConcurrentRequests())
+            .flushInterval(bulk.getFlushIntervalMs(), TimeUnit.MILLISECONDS)
+            .listener(new ItemResultListener())
+        );
+    }
+
+    /**
+     * 提交一个待写入文档
+     * 缓冲区已满且在途请求达到上限时会阻塞，直到有请求完成
+     *
+     * @param index 索引名称
+     * @param id 文档ID
+     * @param document 文档内容
+     * @return 该文档对应的bulk条目结果，条目级错误以异常方式完成
+     */
+    public CompletableFuture<BulkResponseItem> add(String index, String id, Object document) {
+        return add(index, id, null, document);
+    }
+
+    /**
+     * 提交一个按路由值写入的文档
+     *
+     * @param index 索引名称
+     * @param id 文档ID
+     * @param routing 路由值，为null时按_id路由
+     * @param document 文档内容
+     * @return 该文档对应的bulk条目结果，条目级错误以异常方式完成
+     */
+    public CompletableFuture<BulkResponseItem> add(String index, String id, String routing, Object document) {
+        CompletableFuture<BulkResponseItem> future = new CompletableFuture<>();
+        ingester.add(op -> op
+            .index(idx -> idx
+                .index(index)
+                .id(id)
+                .routing(routing)
+                .document(document)
+            ), future);
+        return future;
+    }
+
+    /**
+     * 立即发送缓冲区中的文档
+     */
+    public void flush() {
+        ingester.flush();
+    }
+
+    /**
+     * 获取写入统计信息
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pendingOperations", ingester.pendingOperations());
+        stats.put("pendingOperationsSize", ingester.pendingOperationsSize());
+        stats.put("pendingRequests", ingester.pendingRequests());
+        stats.put("operationsCount", ingester.operationsCount());
+        stats.put("requestCount", ingester.requestCount());
+        stats.put("operationContentionsCount", ingester.operationContentionsCount());
+        stats.put("requestContentionsCount", ingester.requestContentionsCount());
+        stats.put("successCount", successCount.get());
+        stats.put("failureCount", failureCount.get());
+        return stats;
+    }
+
+    @Override
+    public void destroy() {
+        log.info("关闭BulkIngester，发送剩余文档: {}", ingester.pendingOperations());
+        ingester.close();
+    }
+
+    /**
+     * 将bulk响应逐条回填到每个文档的future上
+     */
+    private class ItemResultListener implements BulkListener<CompletableFuture<BulkResponseItem>> {
+
+        @Override
+        public void beforeBulk(long executionId, BulkRequest request,
+                               List<CompletableFuture<BulkResponseItem>> contexts) {
+            requestStartNanos.put(executionId, System.nanoTime());
+            log.debug("发送bulk请求 #{}，文档数: {}", executionId, request.operations().size());
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request,
+                              List<CompletableFuture<BulkResponseItem>> contexts, BulkResponse response) {
+            recordClientTime(executionId, true);
+            List<BulkResponseItem> items = response.items();
+            int failed = 0;
+            for (int i = 0; i < items.size(); i++) {
+                BulkResponseItem item = items.get(i);
+                CompletableFuture<BulkResponseItem> future = contexts.get(i);
+                if (item.error() != null) {
+                    failed++;
+                    future.completeExceptionally(new RuntimeException(
+                        "文档写入失败: " + item.id() + ", " + item.error().reason()));
+                } else {
+                    future.complete(item);
+                }
+            }
+            successCount.addAndGet(items.size() - failed);
+            failureCount.addAndGet(failed);
+            metrics.recordTook("bulk", response.took());
+            metrics.recordBulk(items.size(), failed);
+            if (failed > 0) {
+                log.warn("bulk请求 #{} 完成，失败 {}/{} 条", executionId, failed, items.size());
+            } else {
+                log.debug("bulk请求 #{} 完成，耗时 {}ms", executionId, response.took());
+            }
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request,
+                              List<CompletableFuture<BulkResponseItem>> contexts, Throwable failure) {
+            recordClientTime(executionId, false);
+            log.error("bulk请求 #{} 执行失败，文档数: {}", executionId, contexts.size(), failure);
+            failureCount.addAndGet(contexts.size());
+            metrics.recordBulk(contexts.size(), contexts.size());
+            contexts.forEach(future -> future.completeExceptionally(failure));
+        }
+
+        private void recordClientTime(long executionId, boolean success) {
+            Long start = requestStartNanos.remove(executionId);
+            if (start != null) {
+                metrics.recordClientTime("bulk", success, System.nanoTime() - start);
+            }
+        }
+    }
+}
@@ -1,21 +1,65 @@
 package com.example.simplees.service;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Conflicts;
+import co.elastic.clients.elasticsearch._types.IndexingStats;
+import co.elastic.clients.elasticsearch._types.RefreshStats;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.SlicesCalculation;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.Time;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.OpenPointInTimeResponse;
+import co.elastic.clients.elasticsearch.core.ReindexRequest;
+import co.elastic.clients.elasticsearch.core.ReindexResponse;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.PointInTimeReference;
 import co.elastic.clients.elasticsearch.indices.CreateIndexRequest;
 import co.elastic.clients.elasticsearch.indices.CreateIndexResponse;
 import co.elastic.clients.elasticsearch.indices.DeleteIndexResponse;
+import co.elastic.clients.elasticsearch.indices.GetAliasResponse;
 import co.elastic.clients.elasticsearch.indices.GetIndexResponse;
+import co.elastic.clients.elasticsearch.indices.GetIndicesSettingsResponse;
+import co.elastic.clients.elasticsearch.indices.GetMappingResponse;
+import co.elastic.clients.elasticsearch.indices.IndexSettings;
+import co.elastic.clients.elasticsearch.indices.IndexState;
+import co.elastic.clients.elasticsearch.indices.IndicesStatsResponse;
+import co.elastic.clients.elasticsearch.indices.PutIndexTemplateResponse;
 import co.elastic.clients.elasticsearch.indices.PutIndicesSettingsResponse;
 import co.elastic.clients.elasticsearch.indices.RefreshResponse;
+import co.elastic.clients.elasticsearch.indices.RolloverRequest;
+import co.elastic.clients.elasticsearch.indices.RolloverResponse;
+import co.elastic.clients.elasticsearch.indices.UpdateAliasesResponse;
+import co.elastic.clients.elasticsearch.indices.get_mapping.IndexMappingRecord;
+import co.elastic.clients.elasticsearch.indices.stats.IndicesStats;
+import co.elastic.clients.json.JsonData;
+import co.elastic.clients.json.JsonpUtils;
 import co.elastic.clients.transport.endpoints.BooleanResponse;
+import com.example.simplees.exception.SimpleEsException;
+import com.example.simplees.metrics.EsMetrics;
+import com.example.simplees.util.JsonUtils;
+import jakarta.json.JsonValue;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
  * Elasticsearch索引操作服务
@@ -30,6 +74,19 @@ public class IndexService {
     @Autowired
     private ElasticsearchClient elasticsearchClient;
 
+    @Autowired
+    private EsMetrics metrics;
+
+    /**
+     * 比对删除时PIT的保活时间，只需覆盖相邻两次翻页的间隔
+     */
+    private static final String PIT_KEEP_ALIVE = "1m";
+
+    /**
+     * 正在批量导入的索引，同一索引同时只允许一个导入会话（否则后开始的会话会把-1当作原始设置）
+     */
+    private final Set<String> bulkLoadingIndices = ConcurrentHashMap.newKeySet();
+
     /**
      * 创建索引
      * 
@@ -48,6 +105,52 @@ public class IndexService {
      * @return 是否创建成功
      */
     public boolean createIndex(String indexName, String mappings) {
+        return createIndex(indexName, mappings, null, null);
+    }
+
+    /**
+     * 创建索引（带映射和设置）
+     * 设置中的routing_partition_size大于1时，同一路由值的文档分散到多个分片，映射中必须要求路由（_routing.required）
+     *
+     * @param indexName 索引名称
+     * @param mappings 映射配置（JSON字符串）
+     * @param settings 设置配置（JSON字符串）
+     * @return 是否创建成功
+     */
+    public boolean createIndex(String indexName, String mappings, String settings) {
+        return createIndex(indexName, mappings, settings, null);
+    }
+
+    /**
+     * 创建版本化索引（alias_v1）并通过别名访问
+     * 别名同时用于读写（is_write_index），之后可通过reindex切换到新版本而不影响调用方；
+     * 别名已存在时跳过，同名的非版本化索引已存在时保持原状（需通过reindex迁移）
+     *
+     * @param alias 别名，调用方使用的索引名
+     * @param mappings 映射配置（JSON字符串）
+     * @param settings 设置配置（JSON字符串），为空时使用ES默认设置
+     * @return 是否创建成功
+     */
+    public boolean createVersionedIndex(String alias, String mappings, String settings) {
+        if (aliasExists(alias)) {
+            log.warn("别名 {} 已存在，跳过创建", alias);
+            return true;
+        }
+        if (indexExists(alias)) {
+            log.warn("{} 是非版本化索引，保持原状，可通过reindex迁移到版本化索引", alias);
+            return true;
+        }
+        return createIndex(versionedIndexName(alias, 1), mappings, settings, alias);
+    }
+
+    /**
+     * 版本化索引名：alias_v版本号
+     */
+    public static String versionedIndexName(String alias, int version) {
+        return alias + "_v" + version;
+    }
+
+    private boolean createIndex(String indexName, String mappings, String settings, String alias) {
         try {
             log.info("开始创建索引: {}", indexName);
             
@@ -57,11 +160,14 @@ public class IndexService {
                 return true;
             }
 
-            // 2. 创建索引请求构建器
+            // 2. 路由分区需要映射要求路由，提前校验以给出明确的错误
+            validateRoutingPartition(indexName, mappings, settings);
+
+            // 3. 创建索引请求构建器
             CreateIndexRequest.Builder requestBuilder = new CreateIndexRequest.Builder()
                 .index(indexName);
 
-            // 3. 如果提供了映射配置，则设置映射
+            // 4. 如果提供了映射配置，则设置映射
             if (mappings != null && !mappings.trim().isEmpty()) {
                 log.info("使用自定义映射配置创建索引");
                 // 将JSON字符串转换为InputStream
@@ -73,10 +179,23 @@ public class IndexService {
                 // 使用默认映射，ES会自动推断字段类型
             }
 
-            // 4. 执行创建索引请求
-            CreateIndexResponse response = elasticsearchClient.indices().create(requestBuilder.build());
+            // 5. 如果提供了设置，则一并设置
+            if (settings != null && !settings.trim().isEmpty()) {
+                requestBuilder.settings(st -> st.withJson(
+                    new java.io.ByteArrayInputStream(settings.getBytes(StandardCharsets.UTF_8))
+                ));
+            }
+
+            // 6. 如果指定了别名，创建时一并指向该索引
+            if (alias != null) {
+                requestBuilder.aliases(alias, a -> a.isWriteIndex(true));
+            }
+
+            // 7. 执行创建索引请求
+            CreateIndexResponse response = metrics.time("indices.create",
+                () -> elasticsearchClient.indices().create(requestBuilder.build()));
             
-            // 5. 检查响应结果
+            // 8. 检查响应结果
             boolean acknowledged = response.acknowledged();
             if (acknowledged) {
                 log.info("索引 {} 创建成功", indexName);
@@ -92,6 +211,30 @@ public class IndexService {
         }
     }
 
+    /**
+     * routing_partition_size大于1时校验映射中要求了路由（_routing.required为true）
+     */
+    @SuppressWarnings("unchecked")
+    private static void validateRoutingPartition(String indexName, String mappings, String settings) {
+        if (settings == null || settings.trim().isEmpty()) {
+            return;
+        }
+        Map<String, Object> settingsMap = JsonUtils.toMap(settings);
+        Object partitionSize = settingsMap.get("routing_partition_size");
+        if (partitionSize == null && settingsMap.get("index") instanceof Map) {
+            partitionSize = ((Map<String, Object>) settingsMap.get("index")).get("routing_partition_size");
+        }
+        if (partitionSize == null || Integer.parseInt(partitionSize.toString()) <= 1) {
+            return;
+        }
+        Object routing = mappings != null && !mappings.trim().isEmpty()
+            ? JsonUtils.toMap(mappings).get("_routing") : null;
+        if (!(routing instanceof Map) || !Boolean.TRUE.equals(((Map<String, Object>) routing).get("required"))) {
+            throw new IllegalArgumentException("索引 " + indexName
+                + " 设置了routing_partition_size，映射中必须指定\"_routing\": {\"required\": true}");
+        }
+    }
+
     /**
      * 检查索引是否存在
      * 
@@ -103,9 +246,9 @@ public class IndexService {
             log.debug("检查索引是否存在: {}", indexName);
             
             // 使用exists API检查索引是否存在
-            BooleanResponse response = elasticsearchClient.indices().exists(
+            BooleanResponse response = metrics.time("indices.exists", () -> elasticsearchClient.indices().exists(
                 e -> e.index(indexName)
-            );
+            ));
             
             boolean exists = response.value();
             log.debug("索引 {} 存在状态: {}", indexName, exists);
@@ -135,9 +278,9 @@ public class IndexService {
             }
 
             // 2. 执行删除索引请求
-            DeleteIndexResponse response = elasticsearchClient.indices().delete(
+            DeleteIndexResponse response = metrics.time("indices.delete", () -> elasticsearchClient.indices().delete(
                 d -> d.index(indexName)
-            );
+            ));
             
             // 3. 检查响应结果
             boolean acknowledged = response.acknowledged();
@@ -166,9 +309,9 @@ public class IndexService {
             log.info("获取索引信息: {}", indexName);
             
             // 获取索引状态信息
-            GetIndexResponse response = elasticsearchClient.indices().get(
+            GetIndexResponse response = metrics.time("indices.get", () -> elasticsearchClient.indices().get(
                 g -> g.index(indexName)
-            );
+            ));
             
             // 使用原始类型，避免类型转换问题
             Map<String, Object> indices = new HashMap<>();
@@ -193,9 +336,9 @@ public class IndexService {
             log.info("获取所有索引列表");
             
             // 获取所有索引的状态信息
-            GetIndexResponse response = elasticsearchClient.indices().get(
+            GetIndexResponse response = metrics.time("indices.get", () -> elasticsearchClient.indices().get(
                 g -> g.index("*")
-            );
+            ));
             
             // 使用原始类型，避免类型转换问题
             Map<String, Object> indices = new HashMap<>();
@@ -228,11 +371,11 @@ public class IndexService {
             }
 
             // 2. 执行更新设置请求
-            PutIndicesSettingsResponse response = elasticsearchClient.indices().putSettings(
+            PutIndicesSettingsResponse response = metrics.time("indices.put_settings", () -> elasticsearchClient.indices().putSettings(
                 p -> p.index(indexName).withJson(
                     new java.io.ByteArrayInputStream(settings.getBytes(StandardCharsets.UTF_8))
                 )
-            );
+            ));
             
             // 3. 检查响应结果
             boolean acknowledged = response.acknowledged();
@@ -262,9 +405,9 @@ public class IndexService {
             log.info("刷新索引: {}", indexName);
             
             // 执行刷新请求
-            RefreshResponse response = elasticsearchClient.indices().refresh(
+            RefreshResponse response = metrics.time("indices.refresh", () -> elasticsearchClient.indices().refresh(
                 r -> r.index(indexName)
-            );
+            ));
             
             // RefreshResponse 没有 acknowledged() 方法，直接返回 true 表示成功
             log.info("索引 {} 刷新成功", indexName);
@@ -275,4 +418,741 @@ public class IndexService {
             return false;
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * 获取索引的写入代数：主分片上index、delete与refresh操作的累计次数
+     * 只要有文档写入、更新或删除（无论来自哪个客户端），或者之前的写入经refresh变为可见，该值就会增大，
+     * 可用作查询结果缓存的失效依据；计数在分片重新分配或节点重启后会重置，调用方需处理代数变小的情况。
+     * 索引名为别名时累加其指向的全部索引
+     *
+     * @param indexName 索引名称或别名
+     * @return 写入代数，获取失败时返回null
+     */
+    public Long getWriteGeneration(String indexName) {
+        try {
+            IndicesStatsResponse response = metrics.time("indices.stats", () -> elasticsearchClient.indices().stats(
+                s -> s.index(indexName).metric("indexing", "refresh")
+            ));
+
+            long generation = 0;
+            for (IndicesStats stats : response.indices().values()) {
+                IndexingStats indexing = stats.primaries().indexing();
+                if (indexing != null) {
+                    generation += indexing.indexTotal() + indexing.deleteTotal();
+                }
+                RefreshStats refresh = stats.primaries().refresh();
+                if (refresh != null) {
+                    generation += refresh.total();
+                }
+            }
+            return generation;
+
+        } catch (IOException e) {
+            log.error("获取索引 {} 写入代数时发生异常", indexName, e);
+            return null;
+        }
+    }
+
+    /**
+     * 以批量导入模式执行一次导入
+     * 导入前记录索引当前的refresh_interval和副本数，关闭刷新（-1）并将副本数设为0；
+     * 导入结束后（无论成功与否）恢复原设置并刷新，导入成功且指定了maxNumSegments时再执行force merge。
+     * 传入别名时对其指向的具体索引逐个处理（设置只能按具体索引读取），同一具体索引同时只允许一次批量导入。
+     * 导入期间新写入的文档对搜索不可见，也没有副本，只适合初始导入或离线重建
+     *
+     * @param indexName 索引名称或别名
+     * @param maxNumSegments force merge的目标段数，为null时不执行
+     * @param load 导入逻辑，需在返回前等待所有写入完成
+     * @return 导入逻辑的返回值
+     */
+    public <T> T runBulkLoad(String indexName, Long maxNumSegments, Supplier<T> load) {
+        List<String> indices = resolveConcreteIndices(indexName);
+        List<String> locked = new ArrayList<>(indices.size());
+        try {
+            for (String index : indices) {
+                if (!bulkLoadingIndices.add(index)) {
+                    throw new IllegalStateException("索引 " + index + " 正在批量导入");
+                }
+                locked.add(index);
+            }
+
+            List<BulkLoadSnapshot> snapshots = new ArrayList<>(indices.size());
+            for (String index : indices) {
+                snapshots.add(getBulkLoadSnapshot(index));
+            }
+            for (BulkLoadSnapshot snapshot : snapshots) {
+                log.info("索引 {} 进入批量导入模式，原设置: {}", snapshot.index, snapshot);
+                if (!putBulkLoadSettings(snapshot.index, "-1", "0")) {
+                    // 部分设置可能已生效，全部按原值恢复一次
+                    snapshots.forEach(s -> putBulkLoadSettings(s.index, s.refreshInterval, s.replicas));
+                    throw new SimpleEsException("索引 " + snapshot.index + " 进入批量导入模式失败");
+                }
+            }
+
+            T result;
+            try {
+                result = load.get();
+            } catch (RuntimeException | Error e) {
+                restoreAfterBulkLoad(snapshots, null);
+                throw e;
+            }
+            if (!restoreAfterBulkLoad(snapshots, maxNumSegments)) {
+                throw new SimpleEsException("批量导入已完成，但恢复索引设置失败: " + snapshots);
+            }
+            return result;
+
+        } finally {
+            bulkLoadingIndices.removeAll(locked);
+        }
+    }
+
+    /**
+     * 别名解析为其指向的具体索引，不是别名时原样返回
+     */
+    private List<String> resolveConcreteIndices(String indexName) {
+        List<String> indices = getAliasIndices(indexName);
+        return indices.isEmpty() ? Collections.singletonList(indexName) : indices;
+    }
+
+    /**
+     * 记录具体索引当前的refresh_interval和副本数，未显式设置的项记为null
+     */
+    private BulkLoadSnapshot getBulkLoadSnapshot(String indexName) {
+        IndexSettings original = getBulkLoadSettings(indexName);
+        String refreshInterval = original.refreshInterval() != null
+            ? String.valueOf(original.refreshInterval()._get())
+            : null;
+        return new BulkLoadSnapshot(indexName, refreshInterval, original.numberOfReplicas());
+    }
+
+    /**
+     * 读取索引当前的refresh_interval和副本数
+     */
+    private IndexSettings getBulkLoadSettings(String indexName) {
+        try {
+            GetIndicesSettingsResponse response = metrics.time("indices.get_settings",
+                () -> elasticsearchClient.indices().getSettings(g -> g
+                    .index(indexName)
+                    .name("index.refresh_interval", "index.number_of_replicas")));
+
+            IndexState state = response.get(indexName);
+            if (state == null || state.settings() == null) {
+                // 按名称过滤后没有显式设置的项时settings为空，均视为未设置
+                return IndexSettings.of(s -> s);
+            }
+            // ES返回的设置嵌套在index下
+            IndexSettings settings = state.settings();
+            return settings.index() != null ? settings.index() : settings;
+
+        } catch (IOException e) {
+            log.error("获取索引 {} 设置时发生异常", indexName, e);
+            throw new SimpleEsException("获取索引 " + indexName + " 设置失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 设置refresh_interval和副本数，值为null时重置为未设置（恢复ES默认行为和索引模板的值），
+     * 而不是写入显式的默认值：显式的refresh_interval会关闭search idle时跳过刷新的优化
+     */
+    private boolean putBulkLoadSettings(String indexName, String refreshInterval, String replicas) {
+        try {
+            PutIndicesSettingsResponse response = metrics.time("indices.put_settings",
+                () -> elasticsearchClient.indices().putSettings(p -> p
+                    .index(indexName)
+                    .settings(s -> {
+                        if (refreshInterval != null) {
+                            s.refreshInterval(Time.of(t -> t.time(refreshInterval)));
+                        } else {
+                            s.otherSettings("refresh_interval", JsonData.of(JsonValue.NULL));
+                        }
+                        if (replicas != null) {
+                            s.numberOfReplicas(replicas);
+                        } else {
+                            s.otherSettings("number_of_replicas", JsonData.of(JsonValue.NULL));
+                        }
+                        return s;
+                    })));
+            return response.acknowledged();
+
+        } catch (IOException e) {
+            log.error("更新索引 {} 设置时发生异常: refresh_interval={}, number_of_replicas={}",
+                    indexName, refreshInterval, replicas, e);
+            return false;
+        }
+    }
+
+    /**
+     * 逐个恢复原设置并刷新，必要时force merge；恢复失败时记录原设置以便手工处理
+     *
+     * @return 设置是否全部恢复成功
+     */
+    private boolean restoreAfterBulkLoad(List<BulkLoadSnapshot> snapshots, Long maxNumSegments) {
+        boolean restored = true;
+        for (BulkLoadSnapshot snapshot : snapshots) {
+            if (!putBulkLoadSettings(snapshot.index, snapshot.refreshInterval, snapshot.replicas)) {
+                log.error("索引 {} 退出批量导入模式失败，请手工恢复设置: {}", snapshot.index, snapshot);
+                restored = false;
+                continue;
+            }
+            log.info("索引 {} 已恢复设置: {}", snapshot.index, snapshot);
+
+            refreshIndex(snapshot.index);
+            if (maxNumSegments != null) {
+                forceMerge(snapshot.index, maxNumSegments);
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * 设置或解除索引的写入锁（index.blocks.write），加锁后写入请求会被拒绝，读取不受影响
+     *
+     * @param indexName 索引名称
+     * @param blocked 是否禁止写入
+     * @return 是否设置成功
+     */
+    public boolean setWriteBlock(String indexName, boolean blocked) {
+        try {
+            log.info("索引 {} {}写入锁", indexName, blocked ? "加" : "解除");
+            PutIndicesSettingsResponse response = metrics.time("indices.put_settings",
+                () -> elasticsearchClient.indices().putSettings(p -> p
+                    .index(indexName)
+                    .settings(s -> s.blocks(b -> b.write(blocked)))));
+            return response.acknowledged();
+
+        } catch (IOException e) {
+            log.error("设置索引 {} 写入锁时发生异常: blocked={}", indexName, blocked, e);
+            return false;
+        }
+    }
+
+    /**
+     * 合并索引段
+     * 适合导入完成后不再频繁写入的索引，合并期间占用大量IO
+     *
+     * @param indexName 索引名称
+     * @param maxNumSegments 每个分片合并后的最大段数
+     * @return 是否合并成功
+     */
+    public boolean forceMerge(String indexName, long maxNumSegments) {
+        try {
+            log.info("合并索引段: {}, maxNumSegments={}", indexName, maxNumSegments);
+
+            metrics.time("indices.forcemerge", () -> elasticsearchClient.indices().forcemerge(
+                f -> f.index(indexName).maxNumSegments(maxNumSegments)
+            ));
+
+            log.info("索引 {} 段合并完成", indexName);
+            return true;
+
+        } catch (IOException e) {
+            log.error("合并索引 {} 段时发生异常", indexName, e);
+            return false;
+        }
+    }
+
+    /**
+     * 检查别名是否存在
+     *
+     * @param alias 别名
+     * @return 是否存在
+     */
+    public boolean aliasExists(String alias) {
+        try {
+            BooleanResponse response = metrics.time("indices.exists_alias",
+                () -> elasticsearchClient.indices().existsAlias(e -> e.name(alias)));
+            return response.value();
+
+        } catch (IOException e) {
+            log.error("检查别名 {} 是否存在时发生异常", alias, e);
+            return false;
+        }
+    }
+
+    /**
+     * 获取别名指向的索引
+     *
+     * @param alias 别名
+     * @return 索引名称列表，别名不存在时为空
+     */
+    public List<String> getAliasIndices(String alias) {
+        if (!aliasExists(alias)) {
+            return Collections.emptyList();
+        }
+        try {
+            GetAliasResponse response = metrics.time("indices.get_alias",
+                () -> elasticsearchClient.indices().getAlias(g -> g.name(alias)));
+            return new ArrayList<>(response.result().keySet());
+
+        } catch (IOException e) {
+            log.error("获取别名 {} 指向的索引时发生异常", alias, e);
+            throw new SimpleEsException("获取别名 " + alias + " 指向的索引失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 原子地将别名从旧索引切换到新索引
+     * 移除与添加在同一个_aliases请求中完成，不存在别名短暂缺失或同时指向两个索引的时刻；
+     * 旧索引与别名同名（非版本化索引）时直接删除旧索引，别名随后生效
+     *
+     * @param alias 别名
+     * @param fromIndex 当前指向的索引
+     * @param toIndex 新索引
+     * @return 是否切换成功
+     */
+    public boolean swapAlias(String alias, String fromIndex, String toIndex) {
+        try {
+            log.info("切换别名 {}: {} -> {}", alias, fromIndex, toIndex);
+
+            UpdateAliasesResponse response = metrics.time("indices.update_aliases",
+                () -> elasticsearchClient.indices().updateAliases(u -> u
+                    .actions(a -> a.add(add -> add.index(toIndex).alias(alias).isWriteIndex(true)))
+                    .actions(a -> alias.equals(fromIndex)
+                        ? a.removeIndex(r -> r.index(fromIndex))
+                        : a.remove(r -> r.index(fromIndex).alias(alias)))));
+
+            boolean acknowledged = response.acknowledged();
+            if (acknowledged) {
+                log.info("别名 {} 已切换到 {}", alias, toIndex);
+            } else {
+                log.error("别名 {} 切换失败", alias);
+            }
+            return acknowledged;
+
+        } catch (IOException e) {
+            log.error("切换别名 {} 时发生异常", alias, e);
+            return false;
+        }
+    }
+
+    /**
+     * 以后台任务方式提交_reindex，自动切片并限速
+     *
+     * @param sourceIndex 源索引
+     * @param destIndex 目标索引
+     * @param routingField 目标索引的路由字段，复制时以该字段的值作为_routing；为null时沿用源文档的路由
+     * @param requestsPerSecond 每秒最多处理的文档数，小于等于0表示不限速
+     * @return ES任务ID（node:id）
+     */
+    public String submitReindex(String sourceIndex, String destIndex, String routingField, long requestsPerSecond) {
+        try {
+            ReindexResponse response = metrics.time("reindex", () -> elasticsearchClient.reindex(r -> applyRouting(r
+                .source(s -> s.index(sourceIndex))
+                .dest(d -> d.index(destIndex))
+                .conflicts(Conflicts.Proceed)
+                .slices(sl -> sl.computed(SlicesCalculation.Auto))
+                .requestsPerSecond(requestsPerSecond > 0 ? requestsPerSecond : -1)
+                .waitForCompletion(false), routingField)));
+            log.info("已提交reindex任务: {} -> {}, 任务: {}", sourceIndex, destIndex, response.task());
+            return response.task();
+
+        } catch (IOException e) {
+            log.error("提交reindex {} -> {} 时发生异常", sourceIndex, destIndex, e);
+            throw new SimpleEsException("提交reindex失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 同步复制满足条件的文档，用于补齐reindex期间的增量写入
+     *
+     * @param sourceIndex 源索引
+     * @param destIndex 目标索引
+     * @param routingField 目标索引的路由字段，为null时沿用源文档的路由
+     * @param query 需要复制的文档条件
+     * @return 复制的文档数（新建与覆盖）
+     */
+    public long reindexMatching(String sourceIndex, String destIndex, String routingField, Query query) {
+        try {
+            ReindexResponse response = metrics.time("reindex", () -> elasticsearchClient.reindex(r -> applyRouting(r
+                .source(s -> s.index(sourceIndex).query(query))
+                .dest(d -> d.index(destIndex))
+                .conflicts(Conflicts.Proceed)
+                .slices(sl -> sl.computed(SlicesCalculation.Auto))
+                .waitForCompletion(true), routingField)));
+            if (!response.failures().isEmpty()) {
+                throw new SimpleEsException("增量reindex存在失败的文档: " + response.failures().get(0).cause().reason());
+            }
+            return nullToZero(response.created()) + nullToZero(response.updated());
+
+        } catch (IOException e) {
+            log.error("增量reindex {} -> {} 时发生异常", sourceIndex, destIndex, e);
+            throw new SimpleEsException("增量reindex失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 删除目标索引中在源索引里已不存在的文档（按_id比对），用于补齐reindex期间的删除
+     * 以PIT逐页读取目标索引的_id，每页用ids查询确认源索引中仍存在的文档，其余按目标文档的路由批量删除。
+     * 需要读取目标索引的全部_id，耗时与文档数成正比
+     *
+     * @param sourceIndex 源索引
+     * @param destIndex 目标索引
+     * @param batchSize 每页比对的文档数
+     * @return 删除的文档数
+     */
+    public long deleteMissing(String sourceIndex, String destIndex, int batchSize) {
+        String pitId = null;
+        try {
+            OpenPointInTimeResponse pit = metrics.time("open_pit", () -> elasticsearchClient.openPointInTime(p -> p
+                .index(destIndex)
+                .keepAlive(k -> k.time(PIT_KEEP_ALIVE))));
+            pitId = pit.id();
+
+            long deleted = 0;
+            List<FieldValue> searchAfter = null;
+            while (true) {
+                SearchRequest.Builder request = new SearchRequest.Builder()
+                    .pit(pitRef(pitId))
+                    .size(batchSize)
+                    .source(src -> src.fetch(false))
+                    .sort(sort -> sort.field(f -> f.field("_shard_doc").order(SortOrder.Asc)))
+                    .trackTotalHits(t -> t.enabled(false));
+                if (searchAfter != null) {
+                    request.searchAfter(searchAfter);
+                }
+                SearchResponse<Void> page = metrics.time("search", () -> elasticsearchClient.search(request.build(), Void.class));
+                List<Hit<Void>> hits = page.hits().hits();
+                if (hits.isEmpty()) {
+                    return deleted;
+                }
+                if (page.pitId() != null) {
+                    pitId = page.pitId();
+                }
+                deleted += deleteHitsMissingFrom(sourceIndex, destIndex, hits);
+                if (hits.size() < batchSize) {
+                    return deleted;
+                }
+                searchAfter = hits.get(hits.size() - 1).sort();
+            }
+
+        } catch (IOException e) {
+            log.error("比对 {} -> {} 的删除时发生异常", sourceIndex, destIndex, e);
+            throw new SimpleEsException("同步删除失败: " + e.getMessage(), e);
+        } finally {
+            closePointInTime(pitId);
+        }
+    }
+
+    private long deleteHitsMissingFrom(String sourceIndex, String destIndex, List<Hit<Void>> hits) throws IOException {
+        List<String> ids = new ArrayList<>(hits.size());
+        for (Hit<Void> hit : hits) {
+            ids.add(hit.id());
+        }
+        SearchResponse<Void> existing = metrics.time("search", () -> elasticsearchClient.search(s -> s
+            .index(sourceIndex)
+            .query(q -> q.ids(i -> i.values(ids)))
+            .size(ids.size())
+            .source(src -> src.fetch(false)), Void.class));
+        Set<String> found = new HashSet<>();
+        for (Hit<Void> hit : existing.hits().hits()) {
+            found.add(hit.id());
+        }
+
+        BulkRequest.Builder bulk = new BulkRequest.Builder().index(destIndex);
+        int missing = 0;
+        for (Hit<Void> hit : hits) {
+            if (!found.contains(hit.id())) {
+                bulk.operations(op -> op.delete(d -> d.id(hit.id()).routing(hit.routing())));
+                missing++;
+            }
+        }
+        if (missing == 0) {
+            return 0;
+        }
+        BulkResponse response = metrics.time("bulk", () -> elasticsearchClient.bulk(bulk.build()));
+        for (BulkResponseItem item : response.items()) {
+            if (item.error() != null) {
+                throw new SimpleEsException("删除 " + destIndex + " 中的文档 " + item.id() + " 失败: " + item.error().reason());
+            }
+        }
+        return missing;
+    }
+
+    private static PointInTimeReference pitRef(String pitId) {
+        return PointInTimeReference.of(p -> p.id(pitId).keepAlive(k -> k.time(PIT_KEEP_ALIVE)));
+    }
+
+    private void closePointInTime(String pitId) {
+        if (pitId == null) {
+            return;
+        }
+        try {
+            metrics.time("close_pit", () -> elasticsearchClient.closePointInTime(c -> c.id(pitId)));
+        } catch (Exception e) {
+            // PIT到期后会被ES自动回收，这里失败不影响结果
+            log.warn("关闭point-in-time失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 调整运行中reindex任务的限速，立即生效
+     *
+     * @param taskId 任务ID（node:id）
+     * @param requestsPerSecond 每秒最多处理的文档数，小于等于0表示不限速
+     * @return 是否调整成功
+     */
+    public boolean rethrottleReindex(String taskId, long requestsPerSecond) {
+        try {
+            log.info("调整reindex任务 {} 限速: {}", taskId, requestsPerSecond);
+            metrics.time("reindex_rethrottle", () -> elasticsearchClient.reindexRethrottle(r -> r
+                .taskId(taskId)
+                .requestsPerSecond(requestsPerSecond > 0 ? requestsPerSecond : -1)));
+            return true;
+
+        } catch (IOException e) {
+            log.error("调整reindex任务 {} 限速时发生异常", taskId, e);
+            return false;
+        }
+    }
+
+    /**
+     * 按路由字段的值重新计算每个文档的_routing，用于改变路由方式（如从默认的按_id路由改为按城市路由）的重建
+     */
+    private static ReindexRequest.Builder applyRouting(ReindexRequest.Builder request, String routingField) {
+        if (routingField != null) {
+            request.script(s -> s.inline(i -> i
+                .lang("painless")
+                .source("ctx._routing = ctx._source[params.field]")
+                .params(Collections.singletonMap("field", JsonData.of(routingField)))));
+        }
+        return request;
+    }
+
+    private static long nullToZero(Long value) {
+        return value != null ? value : 0;
+    }
+
+    /**
+     * 创建或更新可组合索引模板（_index_template）
+     * 之后创建的、名称匹配indexPattern的索引自动应用模板中的映射和设置，滚动产生的新索引同样生效
+     *
+     * @param templateName 模板名称
+     * @param indexPattern 索引名匹配模式，如user-activity-*
+     * @param mappings 映射配置（JSON字符串）
+     * @param settings 设置配置（JSON字符串），为空时不设置
+     * @param priority 优先级，多个模板匹配同一索引时取优先级最高的
+     * @return 是否成功
+     */
+    public boolean putIndexTemplate(String templateName, String indexPattern, String mappings,
+                                    String settings, int priority) {
+        try {
+            log.info("创建索引模板: {}, 匹配: {}", templateName, indexPattern);
+
+            PutIndexTemplateResponse response = metrics.time("indices.put_index_template",
+                () -> elasticsearchClient.indices().putIndexTemplate(p -> p
+                    .name(templateName)
+                    .indexPatterns(indexPattern)
+                    .priority(priority)
+                    .template(t -> {
+                        t.mappings(m -> m.withJson(
+                            new java.io.ByteArrayInputStream(mappings.getBytes(StandardCharsets.UTF_8))));
+                        if (settings != null && !settings.trim().isEmpty()) {
+                            t.settings(st -> st.withJson(
+                                new java.io.ByteArrayInputStream(settings.getBytes(StandardCharsets.UTF_8))));
+                        }
+                        return t;
+                    })));
+
+            boolean acknowledged = response.acknowledged();
+            if (acknowledged) {
+                log.info("索引模板 {} 创建成功", templateName);
+            } else {
+                log.error("索引模板 {} 创建失败", templateName);
+            }
+            return acknowledged;
+
+        } catch (IOException e) {
+            log.error("创建索引模板 {} 时发生异常", templateName, e);
+            return false;
+        }
+    }
+
+    /**
+     * 初始化滚动索引：创建第一个索引（alias-000001）并将写入别名指向它
+     * 映射和设置来自匹配alias-*的索引模板；别名已存在时跳过
+     *
+     * @param alias 写入别名
+     * @return 是否成功
+     */
+    public boolean bootstrapRolloverIndex(String alias) {
+        if (aliasExists(alias)) {
+            log.info("滚动别名 {} 已存在，跳过初始化", alias);
+            return true;
+        }
+        return createIndex(alias + "-000001", null, null, alias);
+    }
+
+    /**
+     * 按条件滚动写入别名：任一条件满足时创建下一个索引（序号加一）并把写入切换过去，
+     * 旧索引保留在别名下，通过别名搜索仍覆盖全部数据；条件均为null时无条件滚动
+     *
+     * @param alias 写入别名
+     * @param maxDocs 最大文档数
+     * @param maxPrimaryShardSize 单个主分片的最大大小（如30gb）
+     * @param maxAge 索引创建后的最长时间（如1d）
+     * @param dryRun 只检查条件，不实际滚动
+     * @return 滚动结果，失败时返回null
+     */
+    public Map<String, Object> rollover(String alias, Long maxDocs, String maxPrimaryShardSize,
+                                        String maxAge, boolean dryRun) {
+        try {
+            log.debug("检查滚动别名: {}", alias);
+
+            RolloverRequest.Builder request = new RolloverRequest.Builder()
+                .alias(alias)
+                .dryRun(dryRun);
+            if (maxDocs != null || maxPrimaryShardSize != null || maxAge != null) {
+                request.conditions(c -> c
+                    .maxDocs(maxDocs)
+                    .maxPrimaryShardSize(maxPrimaryShardSize)
+                    .maxAge(maxAge != null ? Time.of(t -> t.time(maxAge)) : null));
+            }
+            RolloverResponse response = metrics.time("indices.rollover",
+                () -> elasticsearchClient.indices().rollover(request.build()));
+
+            if (response.rolledOver()) {
+                log.info("别名 {} 已滚动: {} -> {}", alias, response.oldIndex(), response.newIndex());
+            }
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("alias", alias);
+            result.put("rolledOver", response.rolledOver());
+            result.put("dryRun", response.dryRun());
+            result.put("oldIndex", response.oldIndex());
+            result.put("newIndex", response.newIndex());
+            result.put("conditions", response.conditions());
+            return result;
+
+        } catch (IOException e) {
+            log.error("滚动别名 {} 时发生异常", alias, e);
+            return null;
+        }
+    }
+
+    /**
+     * 校验索引当前的映射与期望的映射是否一致
+     * 逐个比较期望映射中各字段的参数（含子字段），期望中没有而索引中存在的字段（如动态映射产生的）单独列出；
+     * 已有字段的大部分映射参数不能修改，不一致时需要通过reindex重建
+     *
+     * @param indexName 索引名称或别名
+     * @param expectedMappings 期望的映射配置（JSON字符串）
+     * @return valid、differences（不一致的字段参数）、unexpectedFields（索引中多出的字段）
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> validateMapping(String indexName, String expectedMappings) {
+        try {
+            GetMappingResponse response = metrics.time("indices.get_mapping",
+                () -> elasticsearchClient.indices().getMapping(g -> g.index(indexName)));
+            if (response.result().isEmpty()) {
+                throw new SimpleEsException("索引 " + indexName + " 不存在");
+            }
+            // 别名可能指向多个索引，逐个校验
+            Map<String, Object> expectedMap = JsonUtils.toMap(expectedMappings);
+            Map<String, Object> expected = (Map<String, Object>) expectedMap
+                .getOrDefault("properties", Collections.emptyMap());
+            Map<String, Object> expectedRouting = (Map<String, Object>) expectedMap
+                .getOrDefault("_routing", Collections.emptyMap());
+            List<String> differences = new ArrayList<>();
+            List<String> unexpectedFields = new ArrayList<>();
+            for (Map.Entry<String, IndexMappingRecord> entry : response.result().entrySet()) {
+                String live = JsonpUtils.toJsonString(entry.getValue().mappings(), elasticsearchClient._jsonpMapper());
+                Map<String, Object> liveMap = JsonUtils.toMap(live);
+                Map<String, Object> liveProperties = (Map<String, Object>) liveMap
+                    .getOrDefault("properties", Collections.emptyMap());
+                Map<String, Object> liveRouting = (Map<String, Object>) liveMap
+                    .getOrDefault("_routing", Collections.emptyMap());
+
+                String prefix = response.result().size() > 1 ? entry.getKey() + ":" : "";
+                // 是否要求路由同样不能修改，不一致时需要reindex（并按路由字段重新计算_routing）
+                boolean expectedRequired = Boolean.TRUE.equals(expectedRouting.get("required"));
+                if (expectedRequired != Boolean.TRUE.equals(liveRouting.get("required"))) {
+                    differences.add(prefix + "_routing.required: 期望 " + expectedRequired
+                        + "，实际 " + !expectedRequired);
+                }
+                compareMapping(prefix, expected, liveProperties, differences);
+                for (String field : liveProperties.keySet()) {
+                    if (!expected.containsKey(field)) {
+                        unexpectedFields.add(prefix + field);
+                    }
+                }
+            }
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("valid", differences.isEmpty());
+            result.put("differences", differences);
+            result.put("unexpectedFields", unexpectedFields);
+            return result;
+
+        } catch (IOException e) {
+            log.error("获取索引 {} 映射时发生异常", indexName, e);
+            throw new SimpleEsException("获取索引 " + indexName + " 映射失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 逐个比较期望字段的参数，参数缺失视为默认值；嵌套的fields、properties递归比较
+     */
+    @SuppressWarnings("unchecked")
+    private static void compareMapping(String path, Map<String, Object> expected, Map<String, Object> live,
+                                       List<String> differences) {
+        for (Map.Entry<String, Object> entry : expected.entrySet()) {
+            String field = path + entry.getKey();
+            Object liveValue = live.get(entry.getKey());
+            if (liveValue == null) {
+                differences.add(field + ": 索引中不存在");
+                continue;
+            }
+            if (!(entry.getValue() instanceof Map) || !(liveValue instanceof Map)) {
+                continue;
+            }
+            Map<String, Object> expectedField = (Map<String, Object>) entry.getValue();
+            Map<String, Object> liveField = (Map<String, Object>) liveValue;
+            Set<String> params = new TreeSet<>(expectedField.keySet());
+            params.addAll(liveField.keySet());
+            for (String param : params) {
+                Object expectedValue = expectedField.get(param);
+                Object actualValue = liveField.get(param);
+                if (expectedValue instanceof Map && actualValue instanceof Map) {
+                    compareMapping(field + "." + param + ".", (Map<String, Object>) expectedValue,
+                        (Map<String, Object>) actualValue, differences);
+                } else if (!String.valueOf(expectedValue).equals(String.valueOf(actualValue))) {
+                    differences.add(field + "." + param + ": 期望 " + expectedValue + "，实际 " + actualValue);
+                }
+            }
+        }
+    }
+
+    /**
+     * 批量导入前具体索引的原设置
+     */
+    private static final class BulkLoadSnapshot {
+
+        private final String index;
+
+        /**
+         * 未显式设置时为null
+         */
+        private final String refreshInterval;
+
+        /**
+         * 未显式设置时为null
+         */
+        private final String replicas;
+
+        BulkLoadSnapshot(String index, String refreshInterval, String replicas) {
+            this.index = index;
+            this.refreshInterval = refreshInterval;
+            this.replicas = replicas;
+        }
+
+        @Override
+        public String toString() {
+            return index + "(refresh_interval=" + orUnset(refreshInterval)
+                + ", number_of_replicas=" + orUnset(replicas) + ")";
+        }
+
+        private static String orUnset(String value) {
+            return value != null ? value : "未设置";
+        }
+    }
+}
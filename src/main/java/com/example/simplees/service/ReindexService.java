@@ -0,0 +1,387 @@
+package com.example.simplees.service;
+
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import com.example.simplees.config.SimpleEsProperties;
+import com.example.simplees.exception.SimpleEsException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 零停机索引重建服务
+ * 调用方通过别名读写，重建时创建下一个版本的索引（alias_v2），后台切片复制数据并跟踪进度，
+ * 复制期间写入仍进入旧索引，复制完成后按更新时间补齐增量；最后一轮补齐前给旧索引加写入锁（index.blocks.write），
+ * 补齐、按_id比对删除复制期间已删除的文档，再原子地将别名切换到新索引后解除，
+ * 保证切换前旧索引中的写入和删除都已同步到新索引。
+ * 加锁期间写入会被ES拒绝，调用方需重试；比对删除需要读取新索引的全部_id，加锁时长随文档数增长
+ *
+ * @author Simple-ES
+ */
+@Slf4j
+@Service
+public class ReindexService implements InitializingBean, DisposableBean {
+
+    private static final Pattern VERSION_PATTERN = Pattern.compile("_v(\\d+)$");
+
+    @Autowired
+    private IndexService indexService;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private SimpleEsProperties properties;
+
+    /**
+     * 别名 -> 最近一次重建任务
+     */
+    private final Map<String, ReindexJob> jobs = new ConcurrentHashMap<>();
+
+    private ExecutorService executor;
+
+    @Override
+    public void afterPropertiesSet() {
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "es-reindex");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 开始重建别名背后的索引
+     *
+     * @param alias 别名（也可以是尚未版本化的同名索引）
+     * @param mappings 新索引的映射配置（JSON字符串）
+     * @param settings 新索引的设置配置（JSON字符串），为空时使用ES默认设置
+     * @param routingField 新索引的路由字段，复制时按该字段的值重新计算_routing；为null时沿用源文档的路由
+     * @param changedSince 根据时间构建"该时间之后有更新的文档"的查询，用于补齐增量
+     * @param requestsPerSecond 每秒最多复制的文档数，为null时使用配置值，小于等于0表示不限速
+     * @return 任务进度
+     */
+    public Map<String, Object> startReindex(String alias, String mappings, String settings, String routingField,
+                                            Function<LocalDateTime, Query> changedSince, Long requestsPerSecond) {
+        String source = resolveSourceIndex(alias);
+        String dest = nextVersionIndex(alias, source);
+        long rps = requestsPerSecond != null ? requestsPerSecond : properties.getReindex().getRequestsPerSecond();
+
+        ReindexJob job = new ReindexJob(alias, source, dest, routingField);
+        // 检查与登记在同一次compute中完成，并发的两次开始只有一次能成功
+        jobs.compute(alias, (key, existing) -> {
+            if (existing != null && !existing.isFinished()) {
+                throw new IllegalStateException("别名 " + alias + " 正在重建: " + existing.source + " -> " + existing.dest);
+            }
+            return job;
+        });
+
+        if (!indexService.createIndex(dest, mappings, settings)) {
+            job.fail("创建索引 " + dest + " 失败");
+            throw new SimpleEsException("创建索引 " + dest + " 失败");
+        }
+        log.info("开始重建别名 {}: {} -> {}, requestsPerSecond={}", alias, source, dest, rps);
+        executor.execute(() -> run(job, changedSince, rps));
+        return job.toMap();
+    }
+
+    /**
+     * 获取别名最近一次重建的进度
+     *
+     * @return 任务进度，没有重建记录时返回null
+     */
+    public Map<String, Object> getProgress(String alias) {
+        ReindexJob job = jobs.get(alias);
+        return job != null ? job.toMap() : null;
+    }
+
+    /**
+     * 调整正在复制的重建任务的限速
+     *
+     * @return 是否调整成功，没有正在复制的任务时返回false
+     */
+    public boolean rethrottle(String alias, long requestsPerSecond) {
+        ReindexJob job = jobs.get(alias);
+        if (job == null || job.phase != Phase.COPYING || job.taskId == null) {
+            return false;
+        }
+        return indexService.rethrottleReindex(job.taskId, requestsPerSecond);
+    }
+
+    /**
+     * 取消重建，别名保持指向旧索引，新索引随后删除
+     *
+     * @return 是否已发出取消，任务已切换别名或已结束时返回false
+     */
+    public boolean cancel(String alias) {
+        ReindexJob job = jobs.get(alias);
+        if (job == null || job.isFinished()) {
+            return false;
+        }
+        job.cancelled = true;
+        if (job.taskId != null) {
+            taskService.cancelTask(job.taskId);
+        }
+        return true;
+    }
+
+    private void run(ReindexJob job, Function<LocalDateTime, Query> changedSince, long rps) {
+        SimpleEsProperties.Reindex config = properties.getReindex();
+        try {
+            // 1. 全量复制：新索引不对外可见，以批量导入模式写入
+            LocalDateTime copyStart = LocalDateTime.now();
+            indexService.runBulkLoad(job.dest, null, () -> {
+                copy(job, rps, config.getPollIntervalMs());
+                return null;
+            });
+
+            // 2. 补齐复制期间写入旧索引的文档，直到剩余增量足够小
+            job.phase = Phase.CATCHING_UP;
+            LocalDateTime since = copyStart;
+            for (int pass = 1; pass <= config.getCatchUpMaxPasses(); pass++) {
+                checkCancelled(job);
+                LocalDateTime passStart = LocalDateTime.now();
+                long copied = catchUp(job, changedSince.apply(since.minusSeconds(config.getCatchUpMarginSeconds())));
+                log.info("重建 {} 增量补齐第 {} 轮，复制 {} 个文档", job.dest, pass, copied);
+                since = passStart;
+                if (copied <= config.getCatchUpThreshold()) {
+                    break;
+                }
+            }
+            checkCancelled(job);
+
+            // 3. 旧索引加写入锁后做最后一轮补齐并同步删除，再原子切换别名，期间不会有写入或删除遗漏在旧索引中
+            if (!indexService.setWriteBlock(job.source, true)) {
+                throw new SimpleEsException("旧索引 " + job.source + " 加写入锁失败");
+            }
+            try {
+                long copied = catchUp(job, changedSince.apply(since.minusSeconds(config.getCatchUpMarginSeconds())));
+                log.info("重建 {} 加锁后最终补齐，复制 {} 个文档", job.dest, copied);
+                checkCancelled(job);
+                job.deleted = indexService.deleteMissing(job.source, job.dest, config.getDeleteCheckBatchSize());
+                log.info("重建 {} 同步复制期间的删除，删除 {} 个文档", job.dest, job.deleted);
+                checkCancelled(job);
+                indexService.refreshIndex(job.dest);
+                if (!indexService.swapAlias(job.alias, job.source, job.dest)) {
+                    throw new SimpleEsException("切换别名 " + job.alias + " 失败");
+                }
+                job.phase = Phase.SWAPPED;
+            } finally {
+                // 非版本化的旧索引在切换时已删除
+                if (job.phase != Phase.SWAPPED || !job.alias.equals(job.source)) {
+                    indexService.setWriteBlock(job.source, false);
+                }
+            }
+            job.finishedAt = LocalDateTime.now();
+            log.info("别名 {} 重建完成: {} -> {}", job.alias, job.source, job.dest);
+
+            if (config.isDeleteOldIndex() && !job.alias.equals(job.source)) {
+                indexService.deleteIndex(job.source);
+            }
+
+        } catch (Exception e) {
+            if (job.phase == Phase.SWAPPED) {
+                log.error("别名 {} 已切换到 {}，删除旧索引 {} 失败", job.alias, job.dest, job.source, e);
+                return;
+            }
+            if (job.cancelled) {
+                log.info("别名 {} 的重建已取消", job.alias);
+                job.phase = Phase.CANCELLED;
+            } else {
+                log.error("别名 {} 重建失败: {} -> {}", job.alias, job.source, job.dest, e);
+                job.fail(e.getMessage());
+            }
+            job.finishedAt = LocalDateTime.now();
+            // 别名仍指向旧索引，未完成的新索引没有保留价值
+            indexService.deleteIndex(job.dest);
+        }
+    }
+
+    /**
+     * 刷新旧索引使尚未刷新的写入对reindex可见，再复制满足条件的文档
+     *
+     * @return 复制的文档数
+     */
+    private long catchUp(ReindexJob job, Query query) {
+        indexService.refreshIndex(job.source);
+        long copied = indexService.reindexMatching(job.source, job.dest, job.routingField, query);
+        job.catchUpCopied += copied;
+        return copied;
+    }
+
+    /**
+     * 提交全量复制任务并轮询进度直到完成
+     */
+    private void copy(ReindexJob job, long rps, long pollIntervalMs) {
+        job.taskId = indexService.submitReindex(job.source, job.dest, job.routingField, rps);
+        while (true) {
+            try {
+                Thread.sleep(pollIntervalMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SimpleEsException("等待reindex任务时被中断", e);
+            }
+            Map<String, Object> task = taskService.getTask(job.taskId);
+            if (task == null) {
+                continue;
+            }
+            job.task = task;
+            if (Boolean.TRUE.equals(task.get("completed"))) {
+                checkCancelled(job);
+                if (task.get("error") != null) {
+                    throw new SimpleEsException("reindex任务失败: " + task.get("error"));
+                }
+                Map<?, ?> response = (Map<?, ?>) task.get("response");
+                List<?> failures = response != null ? (List<?>) response.get("failures") : null;
+                if (failures != null && !failures.isEmpty()) {
+                    throw new SimpleEsException("reindex存在失败的文档: " + failures.get(0));
+                }
+                return;
+            }
+        }
+    }
+
+    private static void checkCancelled(ReindexJob job) {
+        if (job.cancelled) {
+            throw new SimpleEsException("重建已取消");
+        }
+    }
+
+    /**
+     * 别名指向的索引即为源索引；别名不存在时，同名的非版本化索引作为源索引
+     */
+    private String resolveSourceIndex(String alias) {
+        List<String> indices = indexService.getAliasIndices(alias);
+        if (indices.size() > 1) {
+            throw new IllegalStateException("别名 " + alias + " 指向多个索引: " + indices);
+        }
+        if (indices.size() == 1) {
+            return indices.get(0);
+        }
+        if (indexService.indexExists(alias)) {
+            return alias;
+        }
+        throw new IllegalArgumentException("别名或索引 " + alias + " 不存在");
+    }
+
+    /**
+     * 源索引版本号加一，跳过已存在的索引（如之前失败留下的）
+     */
+    private String nextVersionIndex(String alias, String source) {
+        Matcher matcher = VERSION_PATTERN.matcher(source);
+        int version = matcher.find() ? Integer.parseInt(matcher.group(1)) + 1 : 1;
+        while (indexService.indexExists(IndexService.versionedIndexName(alias, version))) {
+            version++;
+        }
+        return IndexService.versionedIndexName(alias, version);
+    }
+
+    /**
+     * 应用关闭时取消未完成的重建，避免ES上的复制任务继续写入无人跟踪的新索引
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        if (executor == null) {
+            return;
+        }
+        jobs.keySet().forEach(this::cancel);
+        executor.shutdown();
+        executor.awaitTermination(properties.getReindex().getPollIntervalMs() * 5, TimeUnit.MILLISECONDS);
+    }
+
+    private enum Phase {
+        COPYING, CATCHING_UP, SWAPPED, FAILED, CANCELLED
+    }
+
+    /**
+     * 一次重建任务的状态
+     */
+    private static final class ReindexJob {
+
+        private final String alias;
+
+        private final String source;
+
+        private final String dest;
+
+        private final String routingField;
+
+        private final LocalDateTime startedAt = LocalDateTime.now();
+
+        private volatile Phase phase = Phase.COPYING;
+
+        private volatile String taskId;
+
+        private volatile Map<String, Object> task;
+
+        private volatile long catchUpCopied;
+
+        private volatile long deleted;
+
+        private volatile boolean cancelled;
+
+        private volatile String error;
+
+        private volatile LocalDateTime finishedAt;
+
+        ReindexJob(String alias, String source, String dest, String routingField) {
+            this.alias = alias;
+            this.source = source;
+            this.dest = dest;
+            this.routingField = routingField;
+        }
+
+        boolean isFinished() {
+            return phase == Phase.SWAPPED || phase == Phase.FAILED || phase == Phase.CANCELLED;
+        }
+
+        void fail(String message) {
+            this.error = message;
+            this.phase = Phase.FAILED;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> result = new HashMap<>();
+            result.put("alias", alias);
+            result.put("source", source);
+            result.put("dest", dest);
+            result.put("phase", phase.name());
+            result.put("taskId", taskId);
+            result.put("startedAt", startedAt);
+            result.put("finishedAt", finishedAt);
+            result.put("catchUpCopied", catchUpCopied);
+            result.put("deleted", deleted);
+            result.put("error", error);
+
+            Map<String, Object> snapshot = task;
+            Object status = snapshot != null ? snapshot.get("status") : null;
+            if (status instanceof Map) {
+                Map<?, ?> counts = (Map<?, ?>) status;
+                long total = toLong(counts.get("total"));
+                long done = toLong(counts.get("created")) + toLong(counts.get("updated"))
+                    + toLong(counts.get("version_conflicts"));
+                result.put("total", total);
+                result.put("copied", done);
+                result.put("progress", total > 0 ? Math.min(100.0, done * 100.0 / total) : null);
+                result.put("requestsPerSecond", counts.get("requests_per_second"));
+            }
+            return result;
+        }
+
+        private static long toLong(Object value) {
+            return value instanceof Number ? ((Number) value).longValue() : 0;
+        }
+    }
+}
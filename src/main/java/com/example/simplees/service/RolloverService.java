@@ -0,0 +1,148 @@
+package com.example.simplees.service;
+
+import com.example.simplees.config.SimpleEsProperties;
+import com.example.simplees.util.IndexMappingUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 时序索引滚动服务
+ * 用户行为、文章浏览等只追加的数据写入别名（如user-activity），背后是按序号递增的索引（user-activity-000001...）；
+ * 映射和设置由索引模板统一下发，后台定时按文档数、主分片大小、索引时长滚动，
+ * 使每个分片大小可控，过期数据按整个索引删除，无需delete_by_query
+ *
+ * @author Simple-ES
+ */
+@Slf4j
+@Service
+public class RolloverService implements InitializingBean, DisposableBean {
+
+    /**
+     * 支持的时序数据：写入别名 -> 映射配置
+     */
+    private static final Map<String, String> TIME_SERIES = new LinkedHashMap<>();
+
+    static {
+        TIME_SERIES.put("user-activity", IndexMappingUtil.getUserActivityIndexMapping());
+        TIME_SERIES.put("article-views", IndexMappingUtil.getArticleViewIndexMapping());
+    }
+
+    /**
+     * 时序索引模板的优先级，高于通用模板
+     */
+    private static final int TEMPLATE_PRIORITY = 100;
+
+    @Autowired
+    private IndexService indexService;
+
+    @Autowired
+    private SimpleEsProperties properties;
+
+    private ScheduledExecutorService scheduler;
+
+    @Override
+    public void afterPropertiesSet() {
+        SimpleEsProperties.Rollover rollover = properties.getRollover();
+        if (!rollover.isEnabled()) {
+            log.info("时序索引自动滚动未启用");
+            return;
+        }
+        log.info("初始化时序索引自动滚动: checkIntervalSeconds={}, maxDocs={}, maxPrimaryShardSize={}, maxAge={}",
+                rollover.getCheckIntervalSeconds(), rollover.getMaxDocs(),
+                rollover.getMaxPrimaryShardSize(), rollover.getMaxAge());
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "es-rollover");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::rolloverAll,
+            rollover.getCheckIntervalSeconds(), rollover.getCheckIntervalSeconds(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * 初始化时序数据：创建或更新索引模板，并创建第一个索引和写入别名
+     *
+     * @param alias 写入别名
+     * @return 是否成功
+     */
+    public boolean setup(String alias) {
+        String mappings = requireTimeSeries(alias);
+        SimpleEsProperties.Rollover rollover = properties.getRollover();
+        String settings = IndexMappingUtil.getIndexSettings(rollover.getNumberOfShards(), rollover.getNumberOfReplicas());
+
+        return indexService.putIndexTemplate(alias + "-template", alias + "-*", mappings, settings, TEMPLATE_PRIORITY)
+            && indexService.bootstrapRolloverIndex(alias);
+    }
+
+    /**
+     * 滚动写入别名
+     *
+     * @param alias 写入别名
+     * @param force 为true时忽略条件直接滚动
+     * @param dryRun 只检查条件，不实际滚动
+     * @return 滚动结果，失败时返回null
+     */
+    public Map<String, Object> rollover(String alias, boolean force, boolean dryRun) {
+        requireTimeSeries(alias);
+        if (force) {
+            return indexService.rollover(alias, null, null, null, dryRun);
+        }
+        SimpleEsProperties.Rollover rollover = properties.getRollover();
+        return indexService.rollover(alias, rollover.getMaxDocs(), rollover.getMaxPrimaryShardSize(),
+            rollover.getMaxAge(), dryRun);
+    }
+
+    /**
+     * 获取各时序数据的别名及其背后的索引
+     */
+    public Map<String, Object> getTimeSeries() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (String alias : TIME_SERIES.keySet()) {
+            Map<String, Object> info = new HashMap<>();
+            info.put("indices", indexService.getAliasIndices(alias));
+            result.put(alias, info);
+        }
+        return result;
+    }
+
+    /**
+     * 定时检查已初始化的时序数据，满足条件时滚动；单个别名失败不影响其他别名
+     */
+    private void rolloverAll() {
+        for (String alias : TIME_SERIES.keySet()) {
+            try {
+                if (indexService.aliasExists(alias)) {
+                    rollover(alias, false, false);
+                }
+            } catch (Exception e) {
+                log.warn("检查别名 {} 滚动条件失败: {}", alias, e.getMessage());
+            }
+        }
+    }
+
+    private String requireTimeSeries(String alias) {
+        String mappings = TIME_SERIES.get(alias);
+        if (mappings == null) {
+            throw new IllegalArgumentException("未知时序数据: " + alias + "，可选: " + TIME_SERIES.keySet());
+        }
+        return mappings;
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
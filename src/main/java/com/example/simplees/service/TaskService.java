@@ -0,0 +1,110 @@
+package com.example.simplees.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch.tasks.CancelResponse;
+import co.elastic.clients.elasticsearch.tasks.GetTasksResponse;
+import co.elastic.clients.elasticsearch.tasks.Info;
+import co.elastic.clients.json.JsonData;
+import com.example.simplees.metrics.EsMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ES后台任务服务
+ * 查询和取消以wait_for_completion=false提交的任务（update_by_query、delete_by_query等）
+ *
+ * @author Simple-ES
+ */
+@Slf4j
+@Service
+public class TaskService {
+
+    @Autowired
+    private ElasticsearchClient elasticsearchClient;
+
+    @Autowired
+    private EsMetrics metrics;
+
+    /**
+     * 查询任务进度
+     * 运行中的任务返回status（total、updated、deleted、batches等计数），
+     * 已完成的任务额外返回response（含failures），失败时返回error
+     *
+     * @param taskId 任务ID（node:id）
+     * @return 任务信息，任务不存在时返回null
+     */
+    public Map<String, Object> getTask(String taskId) {
+        try {
+            GetTasksResponse response = metrics.time("tasks.get",
+                () -> elasticsearchClient.tasks().get(g -> g.taskId(taskId)));
+
+            Map<String, Object> task = new HashMap<>();
+            task.put("taskId", taskId);
+            task.put("completed", response.completed());
+            Info info = response.task();
+            if (info != null) {
+                task.put("action", info.action());
+                task.put("description", info.description());
+                task.put("cancelled", Boolean.TRUE.equals(info.cancelled()));
+                task.put("runningTimeMs", TimeUnit.NANOSECONDS.toMillis(info.runningTimeInNanos()));
+                task.put("status", toMap(info.status()));
+            }
+            if (response.response() != null) {
+                task.put("response", toMap(response.response()));
+            }
+            if (response.error() != null) {
+                task.put("error", response.error().reason());
+            }
+            return task;
+
+        } catch (ElasticsearchException e) {
+            if (e.status() == 404) {
+                log.info("任务不存在: {}", taskId);
+                return null;
+            }
+            throw e;
+        } catch (IOException e) {
+            log.error("查询任务 {} 时发生异常", taskId, e);
+            return null;
+        }
+    }
+
+    /**
+     * 取消任务
+     * 已处理的文档不会回滚，切片子任务会随父任务一起取消
+     *
+     * @param taskId 任务ID（node:id）
+     * @return 是否已发出取消
+     */
+    public boolean cancelTask(String taskId) {
+        try {
+            log.info("开始取消任务: {}", taskId);
+
+            CancelResponse response = metrics.time("tasks.cancel",
+                () -> elasticsearchClient.tasks().cancel(c -> c.taskId(taskId)));
+
+            if (!response.nodeFailures().isEmpty()) {
+                log.warn("取消任务 {} 失败: {}", taskId, response.nodeFailures().get(0).reason());
+                return false;
+            }
+            log.info("任务 {} 已取消", taskId);
+            return true;
+
+        } catch (IOException e) {
+            log.error("取消任务 {} 时发生异常", taskId, e);
+            return false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> toMap(JsonData data) {
+        return data != null ? data.to(Map.class) : null;
+    }
+}
@@ -0,0 +1,319 @@
+package com.example.simplees.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.HistogramBucket;
+import co.elastic.clients.elasticsearch._types.aggregations.StatsAggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.StringTermsBucket;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.TotalHits;
+import com.example.simplees.config.SimpleEsProperties;
+import com.example.simplees.entity.User;
+import com.example.simplees.mapper.BaseMapper;
+import com.example.simplees.metrics.EsMetrics;
+import com.example.simplees.util.FieldUtils;
+import com.example.simplees.wrapper.LambdaWrapper;
+import com.example.simplees.wrapper.SFunction;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户聚合统计服务
+ * 一次size=0的搜索请求计算全部所需维度（城市、性别、标签、年龄分布、积分统计），并开启分片请求缓存；
+ * 结果在本地按"查询条件 + 索引写入代数"缓存，索引没有新的写入时重复加载看板不会访问ES
+ *
+ * @author Simple-ES
+ */
+@Slf4j
+@Service
+public class UserAggregationService implements InitializingBean {
+
+    /**
+     * 支持的统计维度及对应字段
+     */
+    private static final Map<String, SFunction<User, ?>> FACET_FIELDS = new LinkedHashMap<>();
+
+    static {
+        FACET_FIELDS.put("city", User::getCity);
+        FACET_FIELDS.put("gender", User::getGender);
+        FACET_FIELDS.put("tags", User::getTags);
+        FACET_FIELDS.put("age", User::getAge);
+        FACET_FIELDS.put("score", User::getScore);
+    }
+
+    private static final String INDEX_NAME = UserService.INDEX_NAME;
+
+    @Autowired
+    private ElasticsearchClient client;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private IndexService indexService;
+
+    @Autowired
+    private SimpleEsProperties properties;
+
+    @Autowired
+    private EsMetrics metrics;
+
+    /**
+     * 请求JSON -> 聚合结果 的本地缓存，未启用时为null
+     */
+    private Cache<String, CachedFacets> resultCache;
+
+    /**
+     * 最近一次获取到的写入代数，尚未获取时为-1
+     */
+    private volatile long generation = -1;
+
+    private volatile long generationCheckedAt;
+
+    private volatile long generationChangedAt;
+
+    @Override
+    public void afterPropertiesSet() {
+        SimpleEsProperties.Aggregation aggregation = properties.getAggregation();
+        if (!aggregation.isCacheEnabled()) {
+            log.info("聚合结果缓存未启用");
+            return;
+        }
+        log.info("初始化聚合结果缓存: maximumSize={}, generationCheckIntervalMs={}",
+                aggregation.getMaximumSize(), aggregation.getGenerationCheckIntervalMs());
+
+        this.resultCache = Caffeine.newBuilder()
+            .maximumSize(aggregation.getMaximumSize())
+            .expireAfterWrite(aggregation.getExpireAfterWriteSeconds(), TimeUnit.SECONDS)
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * 按条件统计用户分布，条件参数与UserService.searchUsers一致
+     *
+     * @param facets 统计维度（city、gender、tags、age、score），为空时统计全部
+     * @param termsSize terms类维度返回的桶数，为null时使用配置值
+     * @param ageInterval 年龄分布的区间宽度
+     * @return total、各维度结果facets，以及是否命中本地缓存cached
+     */
+    public Map<String, Object> aggregateUsers(String keyword, Integer minAge, Integer maxAge,
+                                              String gender, String city, Boolean isActive,
+                                              List<String> facets, Integer termsSize, int ageInterval) {
+        SearchRequest request = buildAggregationRequest(keyword, minAge, maxAge, gender, city, isActive,
+            facets, termsSize != null ? termsSize : properties.getAggregation().getTermsSize(), ageInterval);
+        // 条件按固定顺序构建、维度已排序，请求JSON即为规范化后的缓存键
+        String key = request.toString();
+
+        Long currentGeneration = resultCache != null ? currentGeneration() : null;
+        // 代数刚变化时新写入可能尚未全部可见，此时算出的结果不缓存
+        boolean cacheable = currentGeneration != null && isGenerationSettled();
+        if (currentGeneration != null) {
+            CachedFacets cached = resultCache.getIfPresent(key);
+            if (cached != null && cached.generation == currentGeneration) {
+                log.debug("聚合结果命中本地缓存，写入代数: {}", currentGeneration);
+                return cached.toResult(true);
+            }
+        }
+
+        try {
+            SearchResponse<Void> response = metrics.time("aggregation", () -> client.search(request, Void.class));
+            metrics.recordTook("aggregation", response.took());
+
+            TotalHits totalHits = response.hits().total();
+            CachedFacets result = new CachedFacets(currentGeneration != null ? currentGeneration : -1,
+                totalHits != null ? totalHits.value() : 0, toFacets(response.aggregations()));
+
+            // 查询期间代数发生变化时，结果可能对应任一代数，同样不缓存
+            if (cacheable && currentGeneration == generation) {
+                resultCache.put(key, result);
+            }
+            return result.toResult(false);
+
+        } catch (IOException e) {
+            log.error("聚合统计用户时发生异常", e);
+            throw new RuntimeException("聚合统计用户失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 构建聚合请求：size=0只返回聚合结果，request_cache让相同请求在分片上直接命中缓存
+     */
+    private SearchRequest buildAggregationRequest(String keyword, Integer minAge, Integer maxAge,
+                                                  String gender, String city, Boolean isActive,
+                                                  List<String> facets, int termsSize, int ageInterval) {
+        LambdaWrapper<User> wrapper = userService.buildFilterWrapper(keyword, minAge, maxAge, gender, city, isActive);
+
+        SearchRequest.Builder request = new SearchRequest.Builder()
+            .index(INDEX_NAME)
+            .query(wrapper.toQuery())
+            .size(0)
+            .requestCache(true)
+            .trackTotalHits(t -> t.enabled(true));
+        // 按城市过滤时只需聚合该城市所在的分片
+        BaseMapper.applyRouting(request, wrapper, UserService.USER_INFO);
+        for (String facet : normalizeFacets(facets)) {
+            String field = FieldUtils.getFieldName(FACET_FIELDS.get(facet));
+            switch (facet) {
+                case "age":
+                    request.aggregations(facet, a -> a.histogram(h -> h
+                        .field(field)
+                        .interval((double) ageInterval)
+                        .minDocCount(1)));
+                    break;
+                case "score":
+                    request.aggregations(facet, a -> a.stats(s -> s.field(field)));
+                    break;
+                default:
+                    request.aggregations(facet, a -> a.terms(t -> t.field(field).size(termsSize)));
+            }
+        }
+        return request.build();
+    }
+
+    /**
+     * 校验并排序维度，保证同一组维度无论传入顺序如何都得到相同的请求
+     */
+    private Collection<String> normalizeFacets(List<String> facets) {
+        if (facets == null || facets.isEmpty()) {
+            return new TreeSet<>(FACET_FIELDS.keySet());
+        }
+        Set<String> normalized = new TreeSet<>();
+        for (String facet : facets) {
+            if (!FACET_FIELDS.containsKey(facet)) {
+                throw new IllegalArgumentException("未知统计维度: " + facet + "，可选: " + FACET_FIELDS.keySet());
+            }
+            normalized.add(facet);
+        }
+        return normalized;
+    }
+
+    private Map<String, Object> toFacets(Map<String, Aggregate> aggregations) {
+        Map<String, Object> facets = new LinkedHashMap<>();
+        for (Map.Entry<String, Aggregate> entry : aggregations.entrySet()) {
+            Aggregate aggregate = entry.getValue();
+            if (aggregate.isSterms()) {
+                List<Map<String, Object>> buckets = new ArrayList<>();
+                for (StringTermsBucket bucket : aggregate.sterms().buckets().array()) {
+                    buckets.add(toBucket(bucket.key()._get(), bucket.docCount()));
+                }
+                facets.put(entry.getKey(), buckets);
+            } else if (aggregate.isHistogram()) {
+                List<Map<String, Object>> buckets = new ArrayList<>();
+                for (HistogramBucket bucket : aggregate.histogram().buckets().array()) {
+                    buckets.add(toBucket((long) bucket.key(), bucket.docCount()));
+                }
+                facets.put(entry.getKey(), buckets);
+            } else if (aggregate.isStats()) {
+                StatsAggregate stats = aggregate.stats();
+                Map<String, Object> values = new LinkedHashMap<>();
+                values.put("count", stats.count());
+                // 没有文档时ES返回的min/max/avg为null
+                if (stats.count() > 0) {
+                    values.put("min", stats.min());
+                    values.put("max", stats.max());
+                    values.put("avg", stats.avg());
+                    values.put("sum", stats.sum());
+                }
+                facets.put(entry.getKey(), values);
+            } else {
+                // 字段在映射中不存在时ES返回unmapped类型的空结果
+                facets.put(entry.getKey(), Collections.emptyList());
+            }
+        }
+        return facets;
+    }
+
+    private Map<String, Object> toBucket(Object key, long count) {
+        Map<String, Object> bucket = new LinkedHashMap<>();
+        bucket.put("key", key);
+        bucket.put("count", count);
+        return bucket;
+    }
+
+    /**
+     * 获取索引当前的写入代数，间隔内直接返回上一次的值；获取失败时返回null（本次不使用缓存）
+     */
+    private Long currentGeneration() {
+        long interval = properties.getAggregation().getGenerationCheckIntervalMs();
+        if (generation >= 0 && System.currentTimeMillis() - generationCheckedAt < interval) {
+            return generation;
+        }
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (generation >= 0 && now - generationCheckedAt < interval) {
+                return generation;
+            }
+            Long latest = indexService.getWriteGeneration(INDEX_NAME);
+            if (latest == null) {
+                return null;
+            }
+            if (latest != generation) {
+                log.debug("索引写入代数变化: {} -> {}", generation, latest);
+                // 旧代数的结果都已失效；计数在分片重新分配或重启后会重置，清空后旧结果不会因代数重新相等而被命中
+                resultCache.invalidateAll();
+                generationChangedAt = now;
+                generation = latest;
+            }
+            generationCheckedAt = now;
+            return latest;
+        }
+    }
+
+    /**
+     * 写入代数变化后经过一个refresh间隔，新写入才保证对搜索可见，之前的结果可能不完整
+     */
+    private boolean isGenerationSettled() {
+        return System.currentTimeMillis() - generationChangedAt >= properties.getAggregation().getGenerationCheckIntervalMs();
+    }
+
+    /**
+     * 获取聚合结果缓存统计信息
+     */
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("enabled", resultCache != null);
+        if (resultCache != null) {
+            result.put("size", resultCache.estimatedSize());
+            result.put("hitCount", resultCache.stats().hitCount());
+            result.put("missCount", resultCache.stats().missCount());
+            result.put("generation", generation);
+        }
+        return result;
+    }
+
+    /**
+     * 缓存的聚合结果及其对应的写入代数
+     */
+    private static final class CachedFacets {
+
+        private final long generation;
+
+        private final long total;
+
+        private final Map<String, Object> facets;
+
+        CachedFacets(long generation, long total, Map<String, Object> facets) {
+            this.generation = generation;
+            this.total = total;
+            this.facets = Collections.unmodifiableMap(facets);
+        }
+
+        Map<String, Object> toResult(boolean cached) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("total", total);
+            result.put("facets", facets);
+            result.put("cached", cached);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.example.simplees.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.UpdateRequest;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.ResponseBody;
+import com.example.simplees.entity.User;
+import com.example.simplees.mapper.BaseMapper;
+import com.example.simplees.mapper.UpdateResult;
+import com.example.simplees.metrics.EsMetrics;
+import com.example.simplees.util.ProjectionUtils;
+import com.example.simplees.wrapper.LambdaWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 用户异步服务
+ * 基于ElasticsearchAsyncClient，所有方法立即返回CompletableFuture，
+ * 等待ES响应期间不占用调用线程；查询构建、缓存等逻辑与UserService共用
+ *
+ * @author Simple-ES
+ */
+@Slf4j
+@Service
+public class UserAsyncService {
+
+    @Autowired
+    private ElasticsearchAsyncClient asyncClient;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserBatchLoader userBatchLoader;
+
+    @Autowired
+    private UserWriteBatcher userWriteBatcher;
+
+    @Autowired
+    private EsMetrics metrics;
+
+    private static final String INDEX_NAME = UserService.INDEX_NAME;
+
+    /**
+     * 创建单个用户
+     * 启用写入合并时与其他并发创建一起通过_bulk发送
+     */
+    public CompletableFuture<User> createUser(User user) {
+        log.debug("异步创建用户: {}", user.getUsername());
+        userService.applyDefaults(user);
+        String routing = UserService.USER_INFO.getRouting(user);
+
+        CompletableFuture<Boolean> created = userWriteBatcher.isEnabled()
+            ? userWriteBatcher.index(user, routing).thenApply(UserService::isCreated)
+            : metrics.timeAsync("index", asyncClient.index(i -> i
+                    .index(INDEX_NAME)
+                    .id(user.getId())
+                    .routing(routing)
+                    .document(user)))
+                .thenApply(response -> response.result().name().equals("Created"));
+
+        return created
+            .thenApply(success -> {
+                userService.evict(user.getId());
+                if (!success) {
+                    throw new RuntimeException("用户创建失败");
+                }
+                return user;
+            })
+            .exceptionally(failure("创建用户失败"));
+    }
+
+    /**
+     * 根据ID查询用户
+     * 优先读取本地缓存，未命中时异步查询ES（启用请求合并时与其他ID一起走_mget）并回填缓存
+     */
+    public CompletableFuture<User> findById(String id) {
+        return findById(id, null);
+    }
+
+    /**
+     * 根据ID和城市（路由值）查询用户，含义与UserService.findById(id, routing)一致
+     */
+    public CompletableFuture<User> findById(String id, String routing) {
+        return loadById(id, routing).exceptionally(failure("查询用户失败"));
+    }
+
+    private CompletableFuture<User> loadById(String id, String routing) {
+        User cached = userService.getCachedUser(id);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        // 加载期间发生的更新、删除会推进失效计数，此时不回填缓存
+        long stamp = userService.cacheStamp(id);
+        CompletableFuture<User> loaded;
+        if (userBatchLoader.isEnabled()) {
+            loaded = userBatchLoader.findById(id, routing);
+        } else {
+            loaded = metrics.timeAsync("get", asyncClient.get(g -> g
+                    .index(INDEX_NAME)
+                    .id(id)
+                    .routing(routing), User.class))
+                .thenApply(response -> response.found() ? response.source() : null);
+        }
+
+        return loaded
+            .thenApply(user -> {
+                userService.cacheUser(user, stamp);
+                return user;
+            });
+    }
+
+    /**
+     * 根据用户名查询用户
+     */
+    public CompletableFuture<List<User>> findByUsername(String username) {
+        return metrics.timeAsync("search", asyncClient.search(s -> s
+                .index(INDEX_NAME)
+                .size(UserService.USERNAME_SEARCH_SIZE)
+                .query(new LambdaWrapper<User>()
+                    .match(User::getUsername, username)
+                    .toQuery()
+                ), User.class))
+            .thenApply(response -> {
+                metrics.recordTook("search", response.took());
+                return response.hits().hits().stream()
+                    .map(Hit::source)
+                    .collect(Collectors.toList());
+            })
+            .exceptionally(failure("查询用户失败"));
+    }
+
+    /**
+     * 根据邮箱精确查询用户
+     * 与同步接口共用邮箱到ID的缓存：命中时按ID读取并校验邮箱，映射失效时重新搜索
+     */
+    public CompletableFuture<User> findByEmail(String email) {
+        String cachedId = userService.getCachedIdByEmail(email);
+        CompletableFuture<User> user = cachedId == null
+            ? searchByEmail(email)
+            : loadById(cachedId, null).thenCompose(found -> {
+                if (found != null && email.equals(found.getEmail())) {
+                    return CompletableFuture.completedFuture(found);
+                }
+                // 用户已删除或邮箱已修改，映射失效后重新查询
+                userService.evictEmail(email);
+                return searchByEmail(email);
+            });
+        return user.exceptionally(failure("查询用户失败"));
+    }
+
+    /**
+     * 按邮箱搜索用户并缓存邮箱到ID的映射；用户本身不回填ID缓存，由下一次按ID读取加载
+     */
+    private CompletableFuture<User> searchByEmail(String email) {
+        return metrics.timeAsync("search", asyncClient.search(s -> s
+                .index(INDEX_NAME)
+                .query(new LambdaWrapper<User>()
+                    .eq(User::getEmail, email)
+                    .toQuery()
+                )
+                .size(1), User.class))
+            .thenApply(response -> {
+                metrics.recordTook("search", response.took());
+                List<Hit<User>> hits = response.hits().hits();
+                if (hits.isEmpty()) {
+                    return null;
+                }
+                User user = hits.get(0).source();
+                userService.cacheEmail(email, user.getId());
+                return user;
+            });
+    }
+
+    /**
+     * 复杂搜索用户，参数含义与UserService.searchUsers一致
+     */
+    public CompletableFuture<Map<String, Object>> searchUsers(String keyword, Integer minAge, Integer maxAge,
+                                                              String gender, String city, Boolean isActive,
+                                                              int page, int size, String cursor,
+                                                              List<String> fields, String trackTotalHits) {
+        SearchRequest request;
+        try {
+            request = userService.buildSearchRequest(
+                keyword, minAge, maxAge, gender, city, isActive, page, size, cursor, fields, trackTotalHits);
+        } catch (IllegalArgumentException e) {
+            // 无效游标、未知字段等参数错误同样以future的形式返回
+            CompletableFuture<Map<String, Object>> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+
+        return (UserService.isProjection(fields)
+                ? search(request, ProjectionUtils.MAP_CLASS, ProjectionUtils::toMap, page, size, cursor)
+                : search(request, User.class, Hit::source, page, size, cursor))
+            .exceptionally(failure("搜索用户失败"));
+    }
+
+    private <D> CompletableFuture<Map<String, Object>> search(SearchRequest request, Class<D> documentClass,
+                                                              Function<Hit<D>, ?> converter,
+                                                              int page, int size, String cursor) {
+        CompletableFuture<? extends ResponseBody<D>> future = userBatchLoader.isCoalescible(request)
+            ? userBatchLoader.search(request, documentClass)
+            : metrics.timeAsync("search", asyncClient.search(request, documentClass));
+        return future
+            .thenApply(response -> {
+                metrics.recordTook("search", response.took());
+                return userService.toSearchResult(response, converter, page, size, cursor);
+            });
+    }
+
+    /**
+     * 局部更新用户，参数含义与UserService.updateUser一致
+     * 一次请求完成更新并返回更新后的文档，用户不存在且未upsert时结果为null
+     */
+    public CompletableFuture<UpdateResult<User>> updateUser(String id, User changes, boolean upsert,
+                                                            Long ifSeqNo, Long ifPrimaryTerm) {
+        return updateUser(id, null, changes, upsert, ifSeqNo, ifPrimaryTerm);
+    }
+
+    /**
+     * 按城市（路由值）局部更新用户，不指定城市时使用changes中的城市，都没有时按_id路由
+     */
+    public CompletableFuture<UpdateResult<User>> updateUser(String id, String routing, User changes, boolean upsert,
+                                                            Long ifSeqNo, Long ifPrimaryTerm) {
+        UpdateRequest<User, Object> request;
+        try {
+            request = userService.buildUpdateRequest(id, routing, changes, upsert, ifSeqNo, ifPrimaryTerm);
+        } catch (IllegalArgumentException e) {
+            return failedFuture(e);
+        }
+
+        return metrics.timeAsync("update", asyncClient.update(request, User.class))
+            .handle((response, error) -> {
+                userService.evict(id);
+                if (error == null) {
+                    return BaseMapper.toUpdateResult(response);
+                }
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+                if (cause instanceof ElasticsearchException) {
+                    if (BaseMapper.isDocumentMissing((ElasticsearchException) cause)) {
+                        return null;
+                    }
+                    throw new CompletionException(BaseMapper.translateUpdateException((ElasticsearchException) cause));
+                }
+                throw new CompletionException(cause);
+            })
+            .exceptionally(failure("更新用户失败"));
+    }
+
+    /**
+     * 删除用户
+     */
+    public CompletableFuture<Boolean> deleteUser(String id) {
+        return deleteUser(id, null);
+    }
+
+    /**
+     * 按城市（路由值）删除用户，不指定城市时按_id路由
+     * 与同步接口一致，无论删除是否成功都失效缓存
+     */
+    public CompletableFuture<Boolean> deleteUser(String id, String routing) {
+        return metrics.timeAsync("delete", asyncClient.delete(d -> d
+                .index(INDEX_NAME)
+                .id(id)
+                .routing(routing)))
+            .whenComplete((response, error) -> userService.evict(id))
+            .thenApply(response -> response.result().name().equals("Deleted"))
+            .exceptionally(failure("删除用户失败"));
+    }
+
+    /**
+     * 统计用户数量
+     */
+    public CompletableFuture<Long> countUsers() {
+        return metrics.timeAsync("count", asyncClient.count(c -> c
+                .index(INDEX_NAME)
+                .query(q -> q.matchAll(m -> m))))
+            .thenApply(response -> response.count())
+            .exceptionally(failure("统计用户数量失败"));
+    }
+
+    private static <T> CompletableFuture<T> failedFuture(Throwable e) {
+        CompletableFuture<T> failed = new CompletableFuture<>();
+        failed.completeExceptionally(e);
+        return failed;
+    }
+
+    /**
+     * 统一的异常转换：记录日志并包装为带业务描述的异常
+     */
+    private <T> Function<Throwable, T> failure(String message) {
+        return e -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            log.error("{}", message, cause);
+            throw new CompletionException(new RuntimeException(message + ": " + cause.getMessage(), cause));
+        };
+    }
+}
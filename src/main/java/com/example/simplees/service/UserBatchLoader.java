@@ -0,0 +1,274 @@
+package com.example.simplees.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch.core.MgetRequest;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.get.GetResult;
+import co.elastic.clients.elasticsearch.core.mget.MultiGetResponseItem;
+import co.elastic.clients.elasticsearch.core.msearch.MultiSearchResponseItem;
+import co.elastic.clients.elasticsearch.core.msearch.MultisearchBody;
+import co.elastic.clients.elasticsearch.core.msearch.RequestItem;
+import co.elastic.clients.elasticsearch.core.search.ResponseBody;
+import com.example.simplees.config.SimpleEsProperties;
+import com.example.simplees.entity.User;
+import com.example.simplees.exception.SimpleEsException;
+import com.example.simplees.metrics.EsMetrics;
+import com.example.simplees.util.RequestCoalescer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * 用户请求合并服务
+ * 高峰期大量并发的单ID查询合并为一次_mget，小型搜索合并为一次_msearch，
+ * 每个调用方仍拿到自己的结果，ES收到的请求数按批量大小成倍减少；代价是每个请求最多多等待一个合并窗口
+ *
+ * @author Simple-ES
+ */
+@Slf4j
+@Service
+public class UserBatchLoader implements InitializingBean, DisposableBean {
+
+    private static final String INDEX_NAME = UserService.INDEX_NAME;
+
+    @Autowired
+    private ElasticsearchAsyncClient asyncClient;
+
+    @Autowired
+    private SimpleEsProperties properties;
+
+    @Autowired
+    private EsMetrics metrics;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * 未启用合并时为null
+     */
+    private RequestCoalescer<DocKey, User> idCoalescer;
+
+    /**
+     * msearch按文档类型分别合并（User或投影Map）
+     */
+    private final Map<Class<?>, RequestCoalescer<SearchRequest, ResponseBody<?>>> searchCoalescers =
+        new ConcurrentHashMap<>();
+
+    @Override
+    public void afterPropertiesSet() {
+        SimpleEsProperties.Coalesce coalesce = properties.getCoalesce();
+        if (!coalesce.isEnabled()) {
+            log.info("请求合并未启用");
+            return;
+        }
+        log.info("初始化请求合并: windowMs={}, maxBatchSize={}, maxSearchBatchSize={}, maxSearchSize={}",
+                coalesce.getWindowMs(), coalesce.getMaxBatchSize(),
+                coalesce.getMaxSearchBatchSize(), coalesce.getMaxSearchSize());
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "es-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.idCoalescer = new RequestCoalescer<>("mget", this::loadByIds, scheduler,
+            coalesce.getWindowMs(), coalesce.getMaxBatchSize(),
+            size -> metrics.recordCoalescedBatch("mget", size));
+    }
+
+    /**
+     * 是否启用了请求合并
+     */
+    public boolean isEnabled() {
+        return idCoalescer != null;
+    }
+
+    /**
+     * 搜索请求是否可以合并：只合并小型分页搜索，且只用到toRequestItem会复制的参数
+     */
+    public boolean isCoalescible(SearchRequest request) {
+        return isEnabled()
+            && request.size() != null && request.size() <= properties.getCoalesce().getMaxSearchSize()
+            && hasOnlyCoalescibleOptions(request);
+    }
+
+    /**
+     * 除query、from、size、_source、track_total_hits、sort、search_after、docvalue_fields和index、routing、request_cache外
+     * 没有设置其他参数；聚合、高亮、post_filter、collapse、timeout、preference、PIT、scroll等一旦设置就单独发送，
+     * 避免合并后被静默丢弃。SearchRequest新增参数时需要同步这里
+     */
+    static boolean hasOnlyCoalescibleOptions(SearchRequest r) {
+        return allNull(r.collapse(), r.explain(), r.highlight(), r.minScore(), r.pit(), r.postFilter(), r.profile(),
+                r.seqNoPrimaryTerm(), r.slice(), r.suggest(), r.terminateAfter(), r.timeout(), r.trackScores(),
+                r.version(), r.allowNoIndices(), r.allowPartialSearchResults(), r.analyzeWildcard(), r.analyzer(),
+                r.batchedReduceSize(), r.ccsMinimizeRoundtrips(), r.defaultOperator(), r.df(), r.ignoreThrottled(),
+                r.ignoreUnavailable(), r.lenient(), r.maxConcurrentShardRequests(), r.minCompatibleShardNode(),
+                r.preFilterShardSize(), r.preference(), r.q(), r.scroll(), r.searchType())
+            && r.aggregations().isEmpty() && r.ext().isEmpty()
+            && r.runtimeMappings().isEmpty() && r.scriptFields().isEmpty()
+            && r.expandWildcards().isEmpty() && r.fields().isEmpty() && r.indicesBoost().isEmpty()
+            && r.rescore().isEmpty() && r.stats().isEmpty() && r.storedFields().isEmpty() && r.type().isEmpty();
+    }
+
+    private static boolean allNull(Object... values) {
+        for (Object value : values) {
+            if (value != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 根据ID查询用户，与窗口内的其他ID一起通过_mget发送，每个ID带各自的路由值
+     *
+     * @param id 用户ID
+     * @param routing 路由值（城市），为null时按_id路由，多分片索引上可能找不到按城市写入的文档
+     * @return 用户，不存在时为null
+     */
+    public CompletableFuture<User> findById(String id, String routing) {
+        return idCoalescer.submit(new DocKey(id, routing));
+    }
+
+    /**
+     * 执行搜索，与窗口内的其他搜索一起通过_msearch发送
+     * 调用前需通过isCoalescible判断
+     *
+     * @param request 搜索请求
+     * @param documentClass 文档类型
+     * @return 搜索结果
+     */
+    @SuppressWarnings("unchecked")
+    public <D> CompletableFuture<ResponseBody<D>> search(SearchRequest request, Class<D> documentClass) {
+        RequestCoalescer<SearchRequest, ResponseBody<?>> coalescer = searchCoalescers.computeIfAbsent(documentClass,
+            type -> new RequestCoalescer<>("msearch", (requests, results) -> loadSearches(requests, results, type),
+                scheduler, properties.getCoalesce().getWindowMs(), properties.getCoalesce().getMaxSearchBatchSize(),
+                size -> metrics.recordCoalescedBatch("msearch", size)));
+        return coalescer.submit(request).thenApply(response -> (ResponseBody<D>) response);
+    }
+
+    private void loadByIds(List<DocKey> keys, List<CompletableFuture<User>> results) {
+        MgetRequest.Builder request = new MgetRequest.Builder().index(INDEX_NAME);
+        for (DocKey key : keys) {
+            request.docs(d -> d.id(key.id).routing(key.routing));
+        }
+        metrics.timeAsync("mget", asyncClient.mget(request.build(), User.class))
+            .whenComplete((response, error) -> {
+                if (error != null) {
+                    results.forEach(future -> future.completeExceptionally(error));
+                    return;
+                }
+                List<MultiGetResponseItem<User>> docs = response.docs();
+                for (int i = 0; i < results.size(); i++) {
+                    MultiGetResponseItem<User> item = docs.get(i);
+                    if (item.isResult()) {
+                        GetResult<User> result = item.result();
+                        results.get(i).complete(result.found() ? result.source() : null);
+                    } else {
+                        results.get(i).completeExceptionally(new SimpleEsException(
+                            "根据ID查询用户失败: " + keys.get(i).id + ", " + item.failure().error().reason()));
+                    }
+                }
+            });
+    }
+
+    private <D> void loadSearches(List<SearchRequest> requests, List<CompletableFuture<ResponseBody<?>>> results,
+                                  Class<D> documentClass) {
+        List<RequestItem> items = new ArrayList<>(requests.size());
+        for (SearchRequest request : requests) {
+            items.add(toRequestItem(request));
+        }
+        metrics.timeAsync("msearch", asyncClient.msearch(m -> m.searches(items), documentClass))
+            .whenComplete((response, error) -> {
+                if (error != null) {
+                    results.forEach(future -> future.completeExceptionally(error));
+                    return;
+                }
+                List<MultiSearchResponseItem<D>> responses = response.responses();
+                for (int i = 0; i < results.size(); i++) {
+                    MultiSearchResponseItem<D> item = responses.get(i);
+                    if (item.isResult()) {
+                        results.get(i).complete(item.result());
+                    } else {
+                        results.get(i).completeExceptionally(new ElasticsearchException("msearch", item.failure()));
+                    }
+                }
+            });
+    }
+
+    /**
+     * 将搜索请求转换为msearch的一项，只复制hasOnlyCoalescibleOptions允许的参数
+     */
+    private RequestItem toRequestItem(SearchRequest request) {
+        MultisearchBody.Builder body = new MultisearchBody.Builder()
+            .query(request.query())
+            .from(request.from())
+            .size(request.size())
+            .source(request.source())
+            .trackTotalHits(request.trackTotalHits());
+        // 未设置的列表不能序列化为空数组（如search_after: []会被ES拒绝）
+        if (!request.sort().isEmpty()) {
+            body.sort(request.sort());
+        }
+        if (!request.searchAfter().isEmpty()) {
+            body.searchAfter(request.searchAfter());
+        }
+        if (!request.docvalueFields().isEmpty()) {
+            body.docvalueFields(request.docvalueFields());
+        }
+        return RequestItem.of(r -> r
+            .header(h -> h.index(request.index()).routing(request.routing()).requestCache(request.requestCache()))
+            .body(body.build()));
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            idCoalescer.flush();
+            searchCoalescers.values().forEach(RequestCoalescer::flush);
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * 合并查询的key：ID加路由值，同一窗口内ID和路由值都相同的请求只查询一次
+     */
+    private static final class DocKey {
+
+        private final String id;
+
+        private final String routing;
+
+        DocKey(String id, String routing) {
+            this.id = id;
+            this.routing = routing;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof DocKey)) {
+                return false;
+            }
+            DocKey other = (DocKey) o;
+            return id.equals(other.id) && Objects.equals(routing, other.routing);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, routing);
+        }
+    }
+}
@@ -1,21 +1,50 @@
 package com.example.simplees.service;
 
+import com.example.simplees.config.SimpleEsProperties;
 import com.example.simplees.entity.User;
+import com.example.simplees.exception.SimpleEsException;
+import com.example.simplees.mapper.BaseMapper;
+import com.example.simplees.mapper.UpdateResult;
+import com.example.simplees.mapper.UserMapper;
+import com.example.simplees.metadata.EntityInfo;
+import com.example.simplees.metadata.EntityInfoHelper;
+import com.example.simplees.metrics.EsMetrics;
+import com.example.simplees.util.CursorUtils;
+import com.example.simplees.util.IndexMappingUtil;
+import com.example.simplees.util.ProjectionUtils;
+import com.example.simplees.wrapper.LambdaWrapper;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.elasticsearch.core.*;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
 import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.ResponseBody;
 import co.elastic.clients.elasticsearch.core.search.TotalHits;
-import co.elastic.clients.json.JsonData;
-import co.elastic.clients.elasticsearch._types.query_dsl.*;
+import co.elastic.clients.elasticsearch.core.search.TotalHitsRelation;
+import co.elastic.clients.elasticsearch.core.search.TrackHits;
+import co.elastic.clients.elasticsearch._types.FieldValue;
 import co.elastic.clients.elasticsearch._types.SortOrder;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * 用户服务
@@ -25,369 +54,796 @@ import java.util.stream.Collectors;
  */
 @Slf4j
 @Service
-public class UserService {
+public class UserService implements InitializingBean {
 
     @Autowired
     private ElasticsearchClient client;
 
-    private static final String INDEX_NAME = "user";
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private BulkIngestService bulkIngestService;
+
+    @Autowired
+    private UserBatchLoader userBatchLoader;
+
+    @Autowired
+    private UserWriteBatcher userWriteBatcher;
+
+    @Autowired
+    private IndexService indexService;
+
+    @Autowired
+    private ReindexService reindexService;
+
+    @Autowired
+    private SimpleEsProperties properties;
+
+    @Autowired
+    private EsMetrics metrics;
+
+    static final EntityInfo<User> USER_INFO = EntityInfoHelper.getEntityInfo(User.class);
+
+    static final String INDEX_NAME = USER_INFO.getIndexName();
 
     /**
-     * 创建单个用户
+     * 按用户名查询返回的最大条数（与ES默认size一致），同步和异步接口共用
      */
-    public User createUser(User user) {
-        try {
-            log.info("开始创建用户: {}", user.getUsername());
+    static final int USERNAME_SEARCH_SIZE = 10;
 
-            // 设置默认值
-            if (user.getId() == null) {
-                user.setId(UUID.randomUUID().toString());
-            }
-            if (user.getCreateTime() == null) {
-                user.setCreateTime(LocalDateTime.now());
+    /**
+     * 导出时PIT的保活时间，只需覆盖相邻两次翻页的间隔
+     */
+    private static final String PIT_KEEP_ALIVE = "1m";
+
+    private static final int EVICT_STRIPES = 64;
+
+    /**
+     * 按ID分段的失效计数，配合cacheUser避免异步加载的旧数据回填已失效的缓存
+     */
+    private final AtomicLongArray evictStamps = new AtomicLongArray(EVICT_STRIPES);
+
+    private final AtomicLong evictAllStamp = new AtomicLong();
+
+    /**
+     * ID -> 用户 的本地缓存，未启用缓存时为null
+     */
+    private LoadingCache<String, User> userCache;
+
+    /**
+     * 邮箱 -> 用户ID 的本地缓存，未启用缓存时为null
+     */
+    private LoadingCache<String, String> emailCache;
+
+    @Override
+    public void afterPropertiesSet() {
+        SimpleEsProperties.Cache cache = properties.getCache();
+        if (!cache.isEnabled()) {
+            log.info("用户本地缓存未启用");
+            return;
+        }
+        log.info("初始化用户本地缓存: maximumSize={}, expireAfterWriteSeconds={}, refreshAfterWriteSeconds={}",
+                cache.getMaximumSize(), cache.getExpireAfterWriteSeconds(), cache.getRefreshAfterWriteSeconds());
+
+        this.userCache = newCacheBuilder(cache).build(new CacheLoader<String, User>() {
+            @Override
+            public User load(String id) {
+                return loadById(id);
             }
-            user.setUpdateTime(LocalDateTime.now());
-            if (user.getIsActive() == null) {
-                user.setIsActive(true);
+
+            /**
+             * 按缓存中的城市刷新，写入时按城市路由的文档在多分片索引上也能找到
+             */
+            @Override
+            public User reload(String id, User oldValue) {
+                return loadById(id, USER_INFO.getRouting(oldValue));
             }
+        });
+        this.emailCache = newCacheBuilder(cache).build(this::loadIdByEmail);
+    }
 
-            // 插入数据到ES
-            IndexResponse response = client.index(i -> i
-                .index(INDEX_NAME)
-                .id(user.getId())
-                .document(user)
-            );
+    private Caffeine<Object, Object> newCacheBuilder(SimpleEsProperties.Cache cache) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+            .maximumSize(cache.getMaximumSize())
+            .expireAfterWrite(cache.getExpireAfterWriteSeconds(), TimeUnit.SECONDS)
+            .recordStats();
+        if (cache.getRefreshAfterWriteSeconds() > 0) {
+            builder.refreshAfterWrite(cache.getRefreshAfterWriteSeconds(), TimeUnit.SECONDS);
+        }
+        return builder;
+    }
 
-            if (response.result().name().equals("Created")) {
-                log.info("用户创建成功: {}", user.getUsername());
-                return user;
-            } else {
-                log.error("用户创建失败: {}", user.getUsername());
-                throw new RuntimeException("用户创建失败");
-            }
+    /**
+     * 创建单个用户
+     * 启用写入合并时与其他并发创建一起通过_bulk发送，仍逐条返回结果
+     */
+    public User createUser(User user) {
+        log.debug("开始创建用户: {}", user.getUsername());
 
-        } catch (IOException e) {
-            log.error("创建用户时发生异常", e);
-            throw new RuntimeException("创建用户失败: " + e.getMessage());
+        // 设置默认值
+        applyDefaults(user);
+
+        boolean created = userWriteBatcher.isEnabled()
+            ? isCreated(join(userWriteBatcher.index(user, USER_INFO.getRouting(user))))
+            : userMapper.insert(user);
+        evict(user.getId());
+
+        if (created) {
+            log.debug("用户创建成功: {}", user.getUsername());
+            return user;
+        } else {
+            log.error("用户创建失败: {}", user.getUsername());
+            throw new SimpleEsException("用户创建失败");
         }
     }
 
+    /**
+     * bulk条目是否新建了文档（ID已存在时为覆盖）
+     */
+    static boolean isCreated(BulkResponseItem item) {
+        return "created".equals(item.result());
+    }
+
     /**
      * 批量创建用户
+     * 通过BulkIngester分批写入，单条失败不影响其余文档，返回写入成功的用户
      */
     public List<User> createUsers(List<User> users) {
-        try {
-            log.info("开始批量创建用户，数量: {}", users.size());
-
-            // 构建批量请求
-            BulkRequest.Builder br = new BulkRequest.Builder();
-            
-            for (User user : users) {
-                // 设置默认值
-                if (user.getId() == null) {
-                    user.setId(UUID.randomUUID().toString());
-                }
-                if (user.getCreateTime() == null) {
-                    user.setCreateTime(LocalDateTime.now());
-                }
-                user.setUpdateTime(LocalDateTime.now());
-                if (user.getIsActive() == null) {
-                    user.setIsActive(true);
+        log.info("开始批量创建用户，数量: {}", users.size());
+
+        List<CompletableFuture<BulkResponseItem>> futures = new ArrayList<>(users.size());
+        for (User user : users) {
+            applyDefaults(user);
+            evict(user.getId());
+            futures.add(bulkIngestService.add(INDEX_NAME, user.getId(), USER_INFO.getRouting(user), user));
+        }
+        bulkIngestService.flush();
+
+        List<User> created = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            try {
+                futures.get(i).join();
+                created.add(users.get(i));
+            } catch (CompletionException e) {
+                log.error("用户写入失败: {}, 原因: {}", users.get(i).getId(), e.getCause().getMessage());
+            }
+        }
+
+        if (created.isEmpty() && !users.isEmpty()) {
+            throw new RuntimeException("批量创建用户失败");
+        }
+
+        log.info("批量创建用户完成，成功: {}，失败: {}", created.size(), users.size() - created.size());
+        return created;
+    }
+
+    /**
+     * 以批量导入模式流式导入用户
+     * 导入期间关闭索引刷新并去掉副本，结束后恢复原设置，适合初始导入大量用户
+     *
+     * @param users 惰性的用户迭代器
+     * @param chunkSize 分块大小
+     * @param maxNumSegments 导入后force merge的目标段数，为null时不合并
+     * @return 每个分块的写入汇总
+     */
+    public List<Map<String, Object>> bulkLoadUsers(Iterator<User> users, int chunkSize, Long maxNumSegments) {
+        return indexService.runBulkLoad(INDEX_NAME, maxNumSegments, () -> importUsers(users, chunkSize));
+    }
+
+    /**
+     * 流式导入用户
+     * 逐个消费用户并按chunkSize分块写入，同一时刻最多只保留两个分块的结果，内存占用与导入总量无关。
+     * 迭代器next()抛出IllegalArgumentException（如某一行解析失败）时计为该分块中的一个失败条目，导入继续进行
+     *
+     * @param users 惰性的用户迭代器
+     * @param chunkSize 分块大小
+     * @return 每个分块的写入汇总
+     */
+    public List<Map<String, Object>> importUsers(Iterator<User> users, int chunkSize) {
+        log.info("开始流式导入用户，分块大小: {}", chunkSize);
+
+        List<Map<String, Object>> summaries = new ArrayList<>();
+        List<CompletableFuture<BulkResponseItem>> previous = null;
+        int chunkNo = 0;
+
+        while (users.hasNext()) {
+            List<CompletableFuture<BulkResponseItem>> current = new ArrayList<>(chunkSize);
+            while (users.hasNext() && current.size() < chunkSize) {
+                User user;
+                try {
+                    user = users.next();
+                } catch (IllegalArgumentException e) {
+                    CompletableFuture<BulkResponseItem> invalid = new CompletableFuture<>();
+                    invalid.completeExceptionally(e);
+                    current.add(invalid);
+                    continue;
                 }
+                applyDefaults(user);
+                evict(user.getId());
+                current.add(bulkIngestService.add(INDEX_NAME, user.getId(), USER_INFO.getRouting(user), user));
+            }
+            chunkNo++;
 
-                br.operations(op -> op
-                    .index(idx -> idx
-                        .index(INDEX_NAME)
-                        .id(user.getId())
-                        .document(user)
-                    )
-                );
+            // 当前分块已提交后再等待上一个分块，读取与写入可以重叠进行
+            if (previous != null) {
+                summaries.add(summarizeChunk(chunkNo - 1, previous));
             }
+            previous = current;
+        }
+
+        bulkIngestService.flush();
+        if (previous != null) {
+            summaries.add(summarizeChunk(chunkNo, previous));
+        }
 
-            // 执行批量插入
-            BulkResponse response = client.bulk(br.build());
+        log.info("流式导入用户完成，分块数: {}", chunkNo);
+        return summaries;
+    }
 
-            // 检查结果
-            if (response.errors()) {
-                log.error("批量创建用户时发生错误");
-                response.items().forEach(item -> {
-                    if (item.error() != null) {
-                        log.error("错误: {}", item.error().reason());
-                    }
-                });
-                throw new RuntimeException("批量创建用户失败");
+    /**
+     * 等待一个分块写入完成并汇总结果
+     */
+    private Map<String, Object> summarizeChunk(int chunkNo, List<CompletableFuture<BulkResponseItem>> futures) {
+        int failed = 0;
+        List<String> errors = new ArrayList<>();
+        for (CompletableFuture<BulkResponseItem> future : futures) {
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                failed++;
+                // 只保留前几条错误原因，避免汇总本身过大
+                if (errors.size() < 5) {
+                    errors.add(e.getCause().getMessage());
+                }
             }
+        }
 
-            log.info("批量创建用户成功，数量: {}", users.size());
-            return users;
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("chunk", chunkNo);
+        summary.put("count", futures.size());
+        summary.put("succeeded", futures.size() - failed);
+        summary.put("failed", failed);
+        if (!errors.isEmpty()) {
+            summary.put("errors", errors);
+        }
+        log.debug("分块 {} 写入完成，成功: {}，失败: {}", chunkNo, futures.size() - failed, failed);
+        return summary;
+    }
 
-        } catch (IOException e) {
-            log.error("批量创建用户时发生异常", e);
-            throw new RuntimeException("批量创建用户失败: " + e.getMessage());
+    /**
+     * 设置新用户的默认值
+     */
+    void applyDefaults(User user) {
+        if (user.getId() == null) {
+            user.setId(UUID.randomUUID().toString());
+        }
+        if (user.getCreateTime() == null) {
+            user.setCreateTime(LocalDateTime.now());
+        }
+        user.setUpdateTime(LocalDateTime.now());
+        if (user.getIsActive() == null) {
+            user.setIsActive(true);
         }
     }
 
     /**
      * 根据ID查询用户
+     * 启用缓存时先查本地缓存，返回副本以免调用方修改缓存中的对象
      */
     public User findById(String id) {
-        try {
-            log.debug("根据ID查询用户: {}", id);
+        return findById(id, null);
+    }
 
-            GetResponse<User> response = client.get(g -> g
-                .index(INDEX_NAME)
-                .id(id), User.class);
+    /**
+     * 根据ID和城市（路由值）查询用户
+     * 用户写入时按城市路由，多分片索引上需要传入用户的城市才能定位到文档；不传时按_id路由，
+     * 只在单分片索引（User当前的配置）上保证能找到。缓存到期刷新时使用缓存中用户的城市
+     *
+     * @param id 用户ID
+     * @param routing 路由值（城市），可以为null
+     */
+    public User findById(String id, String routing) {
+        if (userCache == null) {
+            return loadById(id, routing);
+        }
+        return copyOf(userCache.get(id, key -> loadById(key, routing)));
+    }
 
-            if (response.found()) {
-                User user = response.source();
-                log.debug("找到用户: {}", user.getUsername());
-                return user;
-            } else {
-                log.debug("用户不存在: {}", id);
-                return null;
-            }
+    /**
+     * 从ES根据ID加载用户
+     */
+    private User loadById(String id) {
+        return loadById(id, null);
+    }
 
-        } catch (IOException e) {
-            log.error("查询用户时发生异常", e);
-            throw new RuntimeException("查询用户失败: " + e.getMessage());
+    private User loadById(String id, String routing) {
+        log.debug("根据ID查询用户: {}, 路由: {}", id, routing);
+
+        User user = userBatchLoader.isEnabled()
+            ? join(userBatchLoader.findById(id, routing))
+            : userMapper.selectById(id, routing);
+        if (user != null) {
+            log.debug("找到用户: {}", user.getUsername());
+        } else {
+            log.debug("用户不存在: {}", id);
         }
+        return user;
     }
 
     /**
-     * 根据用户名查询用户
+     * 根据用户名查询用户，按相关度返回前USERNAME_SEARCH_SIZE条
      */
     public List<User> findByUsername(String username) {
-        try {
-            log.info("根据用户名查询用户: {}", username);
+        log.debug("根据用户名查询用户: {}", username);
 
-            SearchResponse<User> response = client.search(s -> s
-                .index(INDEX_NAME)
-                .query(q -> q
-                    .match(m -> m
-                        .field("username")
-                        .query(username)
-                    )
-                ), User.class);
+        List<User> users = userMapper.selectPage(new LambdaWrapper<User>()
+            .match(User::getUsername, username), 1, USERNAME_SEARCH_SIZE).getRecords();
 
-            List<User> users = response.hits().hits().stream()
-                .map(Hit::source)
-                .collect(Collectors.toList());
+        log.debug("找到 {} 个用户", users.size());
+        return users;
+    }
 
-            log.info("找到 {} 个用户", users.size());
-            return users;
+    /**
+     * 根据用户名查询用户，只返回指定字段，条数同findByUsername
+     *
+     * @param username 用户名
+     * @param fields 投影字段
+     * @return id加所选字段的Map列表
+     */
+    public List<Map<String, Object>> findByUsername(String username, List<String> fields) {
+        log.debug("根据用户名查询用户: {}, 字段: {}", username, fields);
+        USER_INFO.validateFields(fields);
 
-        } catch (IOException e) {
-            log.error("根据用户名查询用户时发生异常", e);
-            throw new RuntimeException("查询用户失败: " + e.getMessage());
-        }
+        List<Map<String, Object>> users = userMapper.selectMapsPage(new LambdaWrapper<User>()
+            .match(User::getUsername, username)
+            .selectFields(fields), 1, USERNAME_SEARCH_SIZE).getRecords();
+
+        log.debug("找到 {} 个用户", users.size());
+        return users;
     }
 
     /**
      * 根据邮箱精确查询用户
+     * 启用缓存时只缓存邮箱到ID的映射，用户数据统一由ID缓存提供，写操作只需失效ID缓存
      */
     public User findByEmail(String email) {
-        try {
-            log.info("根据邮箱查询用户: {}", email);
+        if (emailCache == null) {
+            return loadByEmail(email);
+        }
 
-            SearchResponse<User> response = client.search(s -> s
-                .index(INDEX_NAME)
-                .query(q -> q
-                    .term(t -> t
-                        .field("email")
-                        .value(email)
-                    )
-                ), User.class);
-
-            List<User> users = response.hits().hits().stream()
-                .map(Hit::source)
-                .collect(Collectors.toList());
-
-            if (!users.isEmpty()) {
-                log.info("找到用户: {}", users.get(0).getUsername());
-                return users.get(0);
-            } else {
-                log.info("用户不存在: {}", email);
-                return null;
-            }
+        String id = emailCache.get(email);
+        if (id == null) {
+            return null;
+        }
+        User user = findById(id);
+        if (user == null || !email.equals(user.getEmail())) {
+            // 用户已删除或邮箱已修改，映射失效后重新查询
+            emailCache.invalidate(email);
+            return loadByEmail(email);
+        }
+        return user;
+    }
 
-        } catch (IOException e) {
-            log.error("根据邮箱查询用户时发生异常", e);
-            throw new RuntimeException("查询用户失败: " + e.getMessage());
+    /**
+     * 从ES根据邮箱加载用户
+     */
+    private User loadByEmail(String email) {
+        log.debug("根据邮箱查询用户: {}", email);
+
+        User user = userMapper.selectOne(new LambdaWrapper<User>()
+            .eq(User::getEmail, email));
+
+        if (user != null) {
+            log.debug("找到用户: {}", user.getUsername());
+        } else {
+            log.debug("用户不存在: {}", email);
         }
+        return user;
+    }
+
+    /**
+     * 加载邮箱对应的用户ID，顺带预热ID缓存
+     */
+    private String loadIdByEmail(String email) {
+        User user = loadByEmail(email);
+        if (user == null) {
+            return null;
+        }
+        userCache.put(user.getId(), user);
+        return user.getId();
     }
 
     /**
      * 复杂搜索用户
+     * 传入cursor时使用search_after游标翻页，不受max_result_window限制且深翻页不会变慢；
+     * 否则按page使用from/size分页。两种模式都会返回下一页的游标nextCursor。
+     * 指定fields时只返回这些字段（_source过滤），users中为id加所选字段的Map而不是完整User。
+     * trackTotalHits控制总数统计：true精确计数，false不计数（total为null），
+     * 数字表示最多精确计数到该值，超过时total为下限、totalIsLowerBound为true；为null时使用配置值
      */
     public Map<String, Object> searchUsers(String keyword, Integer minAge, Integer maxAge, 
                                           String gender, String city, Boolean isActive, 
-                                          int page, int size) {
+                                          int page, int size, String cursor, List<String> fields,
+                                          String trackTotalHits) {
         try {
-            log.info("开始复杂搜索用户，关键词: {}, 年龄范围: {}-{}, 性别: {}, 城市: {}", 
+            log.debug("开始复杂搜索用户，关键词: {}, 年龄范围: {}-{}, 性别: {}, 城市: {}", 
                     keyword, minAge, maxAge, gender, city);
 
-            // 构建查询条件
-            BoolQuery.Builder boolQuery = new BoolQuery.Builder();
+            SearchRequest request = buildSearchRequest(
+                keyword, minAge, maxAge, gender, city, isActive, page, size, cursor, fields, trackTotalHits);
+            Map<String, Object> result = isProjection(fields)
+                ? search(request, ProjectionUtils.MAP_CLASS, ProjectionUtils::toMap, page, size, cursor)
+                : search(request, User.class, Hit::source, page, size, cursor);
 
-            // 关键词搜索（用户名和简介）
-            if (keyword != null && !keyword.trim().isEmpty()) {
-                boolQuery.must(m -> m.multiMatch(mm -> mm
-                    .query(keyword)
-                    .fields("username", "bio")
-                    .type(TextQueryType.BestFields)
-                ));
-            }
+            log.debug("搜索完成，找到 {} 个用户", result.get("total"));
+            return result;
 
-            // 年龄范围过滤
-            if (minAge != null || maxAge != null) {
-                RangeQuery.Builder rangeQuery = new RangeQuery.Builder().field("age");
-                if (minAge != null) {
-                    rangeQuery.gte(JsonData.of(minAge));
-                }
-                if (maxAge != null) {
-                    rangeQuery.lte(JsonData.of(maxAge));
-                }
-                boolQuery.filter(f -> f.range(rangeQuery.build()));
-            }
+        } catch (IOException e) {
+            log.error("搜索用户时发生异常", e);
+            throw new RuntimeException("搜索用户失败: " + e.getMessage());
+        }
+    }
 
-            // 性别过滤
-            if (gender != null && !gender.trim().isEmpty()) {
-                boolQuery.filter(f -> f.term(t -> t
-                    .field("gender")
-                    .value(gender)
-                ));
-            }
+    private <D> Map<String, Object> search(SearchRequest request, Class<D> documentClass,
+                                           Function<Hit<D>, ?> converter,
+                                           int page, int size, String cursor) throws IOException {
+        ResponseBody<D> response = userBatchLoader.isCoalescible(request)
+            ? join(userBatchLoader.search(request, documentClass))
+            : metrics.time("search", () -> client.search(request, documentClass));
+        metrics.recordTook("search", response.took());
+        return toSearchResult(response, converter, page, size, cursor);
+    }
 
-            // 城市过滤
-            if (city != null && !city.trim().isEmpty()) {
-                boolQuery.filter(f -> f.term(t -> t
-                    .field("city")
-                    .value(city)
-                ));
-            }
+    /**
+     * 构建复杂搜索请求（同步和异步服务共用）
+     *
+     * @param fields 投影字段，为空时返回完整_source
+     * @param trackTotalHits 总数统计方式（true、false或计数上限），为null时使用配置值
+     */
+    public SearchRequest buildSearchRequest(String keyword, Integer minAge, Integer maxAge,
+                                     String gender, String city, Boolean isActive,
+                                     int page, int size, String cursor, List<String> fields,
+                                     String trackTotalHits) {
+        // id作为排序的tiebreaker保证游标翻页不重不漏
+        LambdaWrapper<User> wrapper = buildFilterWrapper(keyword, minAge, maxAge, gender, city, isActive)
+            .orderByDesc(User::getCreateTime)
+            .orderByAsc(User::getId);
+        if (isProjection(fields)) {
+            USER_INFO.validateFields(fields);
+            wrapper.selectFields(fields);
+        }
 
-            // 激活状态过滤
-            if (isActive != null) {
-                boolQuery.filter(f -> f.term(t -> t
-                    .field("isActive")
-                    .value(isActive)
-                ));
-            }
+        SearchRequest.Builder request = new SearchRequest.Builder()
+            .index(INDEX_NAME)
+            .query(wrapper.toQuery())
+            .size(size)
+            .sort(wrapper.toSortOptions())
+            .trackTotalHits(parseTrackTotalHits(
+                trackTotalHits != null ? trackTotalHits : properties.getSearch().getTrackTotalHits()));
+        BaseMapper.applyProjection(request, wrapper);
+        // 按城市过滤时只查询该城市所在的分片
+        BaseMapper.applyRouting(request, wrapper, USER_INFO);
+        if (cursor != null && !cursor.isEmpty()) {
+            request.searchAfter(CursorUtils.decode(cursor));
+        } else {
+            request.from((page - 1) * size);
+        }
+        return request.build();
+    }
 
-            // 执行搜索
-            SearchResponse<User> response = client.search(s -> s
-                .index(INDEX_NAME)
-                .query(q -> q.bool(boolQuery.build()))
-                .from((page - 1) * size)
-                .size(size)
-                .sort(sort -> sort
-                    .field(f -> f
-                        .field("createTime")
-                        .order(SortOrder.Desc)
-                    )
-                ), User.class);
-
-            // 处理结果
-            List<User> users = response.hits().hits().stream()
-                .map(Hit::source)
-                .collect(Collectors.toList());
-
-            TotalHits totalHits = response.hits().total();
-            long total = totalHits != null ? totalHits.value() : 0;
-
-            Map<String, Object> result = new HashMap<>();
-            result.put("users", users);
+    /**
+     * 构建与searchUsers相同的查询条件：关键词搜索用户名和简介，其余为过滤条件（同步服务和聚合服务共用）
+     */
+    LambdaWrapper<User> buildFilterWrapper(String keyword, Integer minAge, Integer maxAge,
+                                           String gender, String city, Boolean isActive) {
+        return new LambdaWrapper<User>()
+            .multiMatch(StringUtils.isNotBlank(keyword), keyword, User::getUsername, User::getBio)
+            .between(User::getAge, minAge, maxAge)
+            .eq(StringUtils.isNotBlank(gender), User::getGender, gender)
+            .eq(StringUtils.isNotBlank(city), User::getCity, city)
+            .eq(isActive != null, User::getIsActive, isActive);
+    }
+
+    /**
+     * 将搜索响应转换为分页结果（同步和异步服务共用）
+     */
+    <D> Map<String, Object> toSearchResult(ResponseBody<D> response, Function<Hit<D>, ?> converter,
+                                           int page, int size, String cursor) {
+        // 处理结果
+        List<Hit<D>> hits = response.hits().hits();
+        List<Object> users = hits.stream()
+            .map(converter)
+            .collect(Collectors.toList());
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("users", users);
+        // 未统计总数时total、totalPages为null；计数达到上限时二者都只是下限（如页面显示"10000+"）
+        TotalHits totalHits = response.hits().total();
+        if (totalHits != null) {
+            long total = totalHits.value();
             result.put("total", total);
-            result.put("page", page);
-            result.put("size", size);
+            result.put("totalIsLowerBound", totalHits.relation() == TotalHitsRelation.Gte);
             result.put("totalPages", (total + size - 1) / size);
+        } else {
+            result.put("total", null);
+            result.put("totalIsLowerBound", null);
+            result.put("totalPages", null);
+        }
+        if (cursor == null || cursor.isEmpty()) {
+            result.put("page", page);
+        }
+        result.put("size", size);
+        // 不足一页说明已到末尾
+        result.put("nextCursor", hits.size() == size
+            ? CursorUtils.encode(hits.get(hits.size() - 1).sort())
+            : null);
+        return result;
+    }
 
-            log.info("搜索完成，找到 {} 个用户", total);
-            return result;
-
-        } catch (IOException e) {
-            log.error("搜索用户时发生异常", e);
-            throw new RuntimeException("搜索用户失败: " + e.getMessage());
+    /**
+     * 解析总数统计方式
+     * 精确计数需要访问全部匹配文档，关键词较宽泛时开销很大；设置上限后ES数到上限即可提前结束计数
+     *
+     * @param value true/exact（精确计数）、false/off（不计数）或正整数（计数上限）
+     * @return track_total_hits参数
+     */
+    static TrackHits parseTrackTotalHits(String value) {
+        String normalized = value.trim().toLowerCase(Locale.ROOT);
+        switch (normalized) {
+            case "true":
+            case "exact":
+                return TrackHits.of(t -> t.enabled(true));
+            case "false":
+            case "off":
+                return TrackHits.of(t -> t.enabled(false));
+            default:
+                try {
+                    int threshold = Integer.parseInt(normalized);
+                    if (threshold > 0) {
+                        return TrackHits.of(t -> t.count(threshold));
+                    }
+                } catch (NumberFormatException ignored) {
+                    // 统一在下面抛出参数错误
+                }
+                throw new IllegalArgumentException("trackTotalHits取值无效: " + value + "，可选: true、false或正整数");
         }
     }
 
     /**
-     * 更新用户
+     * 局部更新用户
+     * 只发送changes中的非空字段，一次请求完成更新并返回更新后的文档，不需要先查询
+     *
+     * @param id 用户ID
+     * @param changes 需要修改的字段
+     * @param upsert 用户不存在时是否以changes（补全默认值）新建
+     * @param ifSeqNo 期望的seqNo，与ifPrimaryTerm同时指定时做乐观并发控制
+     * @param ifPrimaryTerm 期望的primaryTerm
+     * @return 更新结果，用户不存在且未upsert时返回null
      */
-    public User updateUser(String id, User user) {
-        try {
-            log.info("开始更新用户: {}", id);
+    public UpdateResult<User> updateUser(String id, User changes, boolean upsert, Long ifSeqNo, Long ifPrimaryTerm) {
+        return updateUser(id, null, changes, upsert, ifSeqNo, ifPrimaryTerm);
+    }
 
-            // 设置更新时间
-            user.setUpdateTime(LocalDateTime.now());
+    /**
+     * 按城市（路由值）局部更新用户，不指定城市时使用changes中的城市（与createUser一致），都没有时按_id路由
+     * 城市不能通过局部更新修改
+     *
+     * @param routing 路由值（城市），可以为null
+     */
+    public UpdateResult<User> updateUser(String id, String routing, User changes, boolean upsert,
+                                         Long ifSeqNo, Long ifPrimaryTerm) {
+        try {
+            log.debug("开始更新用户: {}", id);
 
-            // 更新用户
-            UpdateResponse<User> response = client.update(u -> u
-                .index(INDEX_NAME)
-                .id(id)
-                .doc(user), User.class);
+            changes.setUpdateTime(LocalDateTime.now());
+            UpdateResult<User> result = userMapper.update(
+                id, routing, changes, upsert ? toUpsertDocument(id, changes) : null, ifSeqNo, ifPrimaryTerm);
 
-            if (response.result().name().equals("Updated")) {
-                log.info("用户更新成功: {}", id);
-                return response.get().source();
+            if (result == null) {
+                log.debug("用户不存在: {}", id);
             } else {
-                log.error("用户更新失败: {}", id);
-                throw new RuntimeException("用户更新失败");
+                log.debug("用户更新完成: {}, result={}, seqNo={}", id, result.getResult(), result.getSeqNo());
             }
+            return result;
 
-        } catch (IOException e) {
-            log.error("更新用户时发生异常", e);
-            throw new RuntimeException("更新用户失败: " + e.getMessage());
+        } finally {
+            evict(id);
+        }
+    }
+
+    /**
+     * 构建局部更新请求（异步服务使用）
+     *
+     * @param routing 路由值（城市），可以为null
+     */
+    UpdateRequest<User, Object> buildUpdateRequest(String id, String routing, User changes, boolean upsert,
+                                                   Long ifSeqNo, Long ifPrimaryTerm) {
+        changes.setUpdateTime(LocalDateTime.now());
+        return userMapper.buildUpdateRequest(
+            id, routing, changes, upsert ? toUpsertDocument(id, changes) : null, ifSeqNo, ifPrimaryTerm);
+    }
+
+    /**
+     * upsert时写入的完整文档：待修改字段加上新建用户的默认值
+     */
+    private User toUpsertDocument(String id, User changes) {
+        User document = changes.toBuilder().id(id).build();
+        applyDefaults(document);
+        return document;
+    }
+
+    /**
+     * 按条件批量修改用户，例如停用某个城市的全部用户
+     * 条件与searchUsers一致，以后台任务执行，返回的任务ID可用于查询进度或取消
+     *
+     * @param changes 需要修改的字段
+     * @param requestsPerSecond 每秒最多处理的文档数，为null时使用配置值
+     * @return ES任务ID
+     */
+    public String updateUsersByQuery(String keyword, Integer minAge, Integer maxAge,
+                                     String gender, String city, Boolean isActive,
+                                     User changes, Long requestsPerSecond) {
+        LambdaWrapper<User> wrapper = requireFilter(buildFilterWrapper(keyword, minAge, maxAge, gender, city, isActive));
+        log.info("开始按条件更新用户，条件: {}", wrapper.getConditions().size());
+
+        changes.setUpdateTime(LocalDateTime.now());
+        String taskId = userMapper.updateByQuery(wrapper, changes, resolveRequestsPerSecond(requestsPerSecond));
+        // 无法得知受影响的ID，整体失效缓存；任务执行期间重新加载的条目最长在expireAfterWrite后过期
+        evictAll();
+        return taskId;
+    }
+
+    /**
+     * 按条件批量删除用户，条件与searchUsers一致，以后台任务执行
+     *
+     * @param requestsPerSecond 每秒最多处理的文档数，为null时使用配置值
+     * @return ES任务ID
+     */
+    public String deleteUsersByQuery(String keyword, Integer minAge, Integer maxAge,
+                                     String gender, String city, Boolean isActive,
+                                     Long requestsPerSecond) {
+        LambdaWrapper<User> wrapper = requireFilter(buildFilterWrapper(keyword, minAge, maxAge, gender, city, isActive));
+        log.info("开始按条件删除用户，条件: {}", wrapper.getConditions().size());
+
+        String taskId = userMapper.deleteByQuery(wrapper, resolveRequestsPerSecond(requestsPerSecond));
+        evictAll();
+        return taskId;
+    }
+
+    /**
+     * 批量修改/删除必须至少带一个条件，避免误操作整个索引
+     */
+    private LambdaWrapper<User> requireFilter(LambdaWrapper<User> wrapper) {
+        if (wrapper.getConditions().isEmpty()) {
+            throw new IllegalArgumentException("按条件修改或删除用户时至少需要指定一个条件");
         }
+        return wrapper;
+    }
+
+    private long resolveRequestsPerSecond(Long requestsPerSecond) {
+        return requestsPerSecond != null ? requestsPerSecond : properties.getByQuery().getRequestsPerSecond();
+    }
+
+    /**
+     * 重建用户索引
+     * 以新映射创建下一个版本的索引并在后台复制，完成后别名原子切换到新索引，期间读写照常进行
+     *
+     * @param mappings 新映射（JSON字符串），为空时使用当前的用户索引映射
+     * @param requestsPerSecond 每秒最多复制的文档数，为null时使用配置值
+     * @return 重建进度
+     */
+    public Map<String, Object> reindexUsers(String mappings, Long requestsPerSecond) {
+        String target = StringUtils.isNotBlank(mappings) ? mappings : IndexMappingUtil.getUserIndexMapping();
+        // 写入和修改都会更新updateTime，复制期间的增量按updateTime补齐
+        return reindexService.startReindex(INDEX_NAME, target, IndexMappingUtil.getUserIndexSettings(),
+            USER_INFO.getRoutingFieldName(), since -> new LambdaWrapper<User>().ge(User::getUpdateTime, since).toQuery(), requestsPerSecond);
+    }
+
+    /**
+     * 获取用户索引最近一次重建的进度
+     */
+    public Map<String, Object> getReindexProgress() {
+        return reindexService.getProgress(INDEX_NAME);
+    }
+
+    /**
+     * 调整用户索引重建的限速
+     */
+    public boolean rethrottleReindex(long requestsPerSecond) {
+        return reindexService.rethrottle(INDEX_NAME, requestsPerSecond);
+    }
+
+    /**
+     * 取消用户索引重建
+     */
+    public boolean cancelReindex() {
+        return reindexService.cancel(INDEX_NAME);
     }
 
     /**
      * 删除用户
      */
     public boolean deleteUser(String id) {
-        try {
-            log.info("开始删除用户: {}", id);
+        return deleteUser(id, null);
+    }
 
-            DeleteResponse response = client.delete(d -> d
-                .index(INDEX_NAME)
-                .id(id));
+    /**
+     * 按城市（路由值）删除用户，不指定城市时按_id路由
+     *
+     * @param routing 路由值（城市），可以为null
+     */
+    public boolean deleteUser(String id, String routing) {
+        try {
+            log.debug("开始删除用户: {}", id);
 
-            if (response.result().name().equals("Deleted")) {
-                log.info("用户删除成功: {}", id);
+            if (userMapper.deleteById(id, routing)) {
+                log.debug("用户删除成功: {}", id);
                 return true;
             } else {
                 log.error("用户删除失败: {}", id);
                 return false;
             }
-
-        } catch (IOException e) {
-            log.error("删除用户时发生异常", e);
-            throw new RuntimeException("删除用户失败: " + e.getMessage());
+        } finally {
+            evict(id);
         }
     }
 
     /**
      * 获取所有用户
+     * 最多返回1000条，完整导出请使用exportUsers
      */
     public List<User> getAllUsers() {
+        log.debug("获取所有用户");
+
+        List<User> users = userMapper.selectPage(new LambdaWrapper<>(), 1, 1000).getRecords();
+
+        log.debug("获取到 {} 个用户", users.size());
+        return users;
+    }
+
+    /**
+     * 获取所有用户，只返回指定字段
+     * 最多返回1000条
+     *
+     * @param fields 投影字段
+     * @return id加所选字段的Map列表
+     */
+    public List<Map<String, Object>> getAllUsers(List<String> fields) {
+        log.debug("获取所有用户, 字段: {}", fields);
+        USER_INFO.validateFields(fields);
+
+        List<Map<String, Object>> users = userMapper.selectMapsPage(
+            new LambdaWrapper<User>().selectFields(fields), 1, 1000).getRecords();
+
+        log.debug("获取到 {} 个用户", users.size());
+        return users;
+    }
+
+    /**
+     * 流式导出全部用户
+     * 基于point-in-time + search_after逐页拉取，返回的Stream是惰性的，
+     * 调用方必须关闭Stream（try-with-resources）以释放PIT
+     *
+     * @param pageSize 每页拉取的文档数
+     * @return 用户流
+     */
+    public Stream<User> exportUsers(int pageSize) {
         try {
-            log.info("获取所有用户");
+            log.info("开始流式导出用户，每页: {}", pageSize);
 
-            SearchResponse<User> response = client.search(s -> s
+            OpenPointInTimeResponse pit = metrics.time("open_pit", () -> client.openPointInTime(p -> p
                 .index(INDEX_NAME)
-                .query(q -> q.matchAll(m -> m))
-                .size(1000), User.class);
+                .keepAlive(k -> k.time(PIT_KEEP_ALIVE))));
 
-            List<User> users = response.hits().hits().stream()
-                .map(Hit::source)
-                .collect(Collectors.toList());
-
-            log.info("获取到 {} 个用户", users.size());
-            return users;
+            PitIterator iterator = new PitIterator(pit.id(), pageSize);
+            return StreamSupport.stream(
+                    Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
 
         } catch (IOException e) {
-            log.error("获取所有用户时发生异常", e);
-            throw new RuntimeException("获取用户列表失败: " + e.getMessage());
+            log.error("打开point-in-time时发生异常", e);
+            throw new RuntimeException("导出用户失败: " + e.getMessage());
         }
     }
 
@@ -395,20 +851,223 @@ public class UserService {
      * 统计用户数量
      */
     public long countUsers() {
+        log.debug("统计用户数量");
+
+        long count = userMapper.count();
+        log.debug("用户总数: {}", count);
+        return count;
+    }
+
+    /**
+     * 是否指定了投影字段（同步和异步服务共用）
+     */
+    static boolean isProjection(List<String> fields) {
+        return fields != null && !fields.isEmpty();
+    }
+
+    /**
+     * 获取本地缓存统计信息
+     */
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("enabled", userCache != null);
+        if (userCache != null) {
+            result.put("user", toStatsMap(userCache.stats(), userCache.estimatedSize()));
+            result.put("email", toStatsMap(emailCache.stats(), emailCache.estimatedSize()));
+        }
+        return result;
+    }
+
+    private Map<String, Object> toStatsMap(CacheStats stats, long size) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("size", size);
+        map.put("hitCount", stats.hitCount());
+        map.put("missCount", stats.missCount());
+        map.put("hitRate", stats.hitRate());
+        map.put("evictionCount", stats.evictionCount());
+        map.put("loadSuccessCount", stats.loadSuccessCount());
+        map.put("loadFailureCount", stats.loadFailureCount());
+        map.put("averageLoadPenaltyMs", stats.averageLoadPenalty() / 1_000_000.0);
+        return map;
+    }
+
+    /**
+     * 失效指定用户的缓存
+     * 邮箱映射在读取时校验，无需在这里处理
+     */
+    void evict(String id) {
+        if (userCache != null && id != null) {
+            // 先推进失效计数再失效，进行中的异步加载回填时能发现这次失效
+            evictStamps.incrementAndGet(stripeOf(id));
+            userCache.invalidate(id);
+        }
+    }
+
+    /**
+     * 失效全部用户缓存，用于无法确定受影响ID的批量操作
+     */
+    void evictAll() {
+        if (userCache != null) {
+            evictAllStamp.incrementAndGet();
+            userCache.invalidateAll();
+        }
+    }
+
+    /**
+     * 用户ID当前的失效计数，异步加载前记录，回填时交给cacheUser比对
+     */
+    long cacheStamp(String id) {
+        return evictAllStamp.get() + evictStamps.get(stripeOf(id));
+    }
+
+    private static int stripeOf(String id) {
+        return (id.hashCode() & Integer.MAX_VALUE) % EVICT_STRIPES;
+    }
+
+    /**
+     * 读取已缓存的用户（不触发加载），未命中或未启用缓存时返回null
+     */
+    User getCachedUser(String id) {
+        return userCache != null ? copyOf(userCache.getIfPresent(id)) : null;
+    }
+
+    /**
+     * 将异步从ES读取到的用户放入缓存
+     * 加载期间该ID被失效过（更新、删除）时放弃回填，否则加载到的旧数据会在失效之后重新进入缓存；
+     * 比对与写入在同一次compute中完成，与失效互斥
+     *
+     * @param stamp 加载前通过cacheStamp获取的失效计数
+     */
+    void cacheUser(User user, long stamp) {
+        if (userCache != null && user != null) {
+            userCache.asMap().compute(user.getId(), (id, current) -> cacheStamp(id) == stamp ? user : current);
+        }
+    }
+
+    /**
+     * 读取已缓存的邮箱对应的用户ID（不触发加载），未命中或未启用缓存时返回null
+     */
+    String getCachedIdByEmail(String email) {
+        return emailCache != null ? emailCache.getIfPresent(email) : null;
+    }
+
+    /**
+     * 缓存邮箱到用户ID的映射，映射在读取时校验，无需随写操作失效
+     */
+    void cacheEmail(String email, String id) {
+        if (emailCache != null && id != null) {
+            emailCache.put(email, id);
+        }
+    }
+
+    /**
+     * 失效邮箱映射（用户已删除或邮箱已修改）
+     */
+    void evictEmail(String email) {
+        if (emailCache != null) {
+            emailCache.invalidate(email);
+        }
+    }
+
+    /**
+     * 同步等待合并请求的结果，ES异常原样抛出
+     */
+    private static <T> T join(CompletableFuture<T> future) {
         try {
-            log.debug("统计用户数量");
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SimpleEsException("ES请求失败: " + cause.getMessage(), cause);
+        }
+    }
 
-            CountResponse response = client.count(c -> c
-                .index(INDEX_NAME)
-                .query(q -> q.matchAll(m -> m)));
+    private User copyOf(User user) {
+        return user != null ? user.toBuilder().build() : null;
+    }
+
+    /**
+     * 基于PIT + search_after的分页迭代器
+     * 每次只在内存中保留一页数据，按_shard_doc排序（PIT下代价最低的全局唯一排序）
+     */
+    private class PitIterator implements Iterator<User> {
 
-            long count = response.count();
-            log.debug("用户总数: {}", count);
-            return count;
+        private final int pageSize;
 
-        } catch (IOException e) {
-            log.error("统计用户数量时发生异常", e);
-            throw new RuntimeException("统计用户数量失败: " + e.getMessage());
+        private String pitId;
+
+        private List<FieldValue> searchAfter;
+
+        private Iterator<Hit<User>> page = Collections.emptyIterator();
+
+        private boolean exhausted;
+
+        PitIterator(String pitId, int pageSize) {
+            this.pitId = pitId;
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!page.hasNext() && !exhausted) {
+                fetchNextPage();
+            }
+            return page.hasNext();
+        }
+
+        @Override
+        public User next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.next().source();
+        }
+
+        private void fetchNextPage() {
+            try {
+                SearchRequest.Builder request = new SearchRequest.Builder()
+                    .pit(p -> p.id(pitId).keepAlive(k -> k.time(PIT_KEEP_ALIVE)))
+                    .query(q -> q.matchAll(m -> m))
+                    .size(pageSize)
+                    .sort(sort -> sort.field(f -> f.field("_shard_doc").order(SortOrder.Asc)))
+                    .trackTotalHits(t -> t.enabled(false));
+                if (searchAfter != null) {
+                    request.searchAfter(searchAfter);
+                }
+
+                SearchResponse<User> response = metrics.time("search",
+                    () -> client.search(request.build(), User.class));
+                metrics.recordTook("search", response.took());
+                List<Hit<User>> hits = response.hits().hits();
+
+                // PIT id可能在翻页过程中变化，始终使用最新的
+                if (response.pitId() != null) {
+                    pitId = response.pitId();
+                }
+                if (hits.size() < pageSize) {
+                    exhausted = true;
+                }
+                if (!hits.isEmpty()) {
+                    searchAfter = hits.get(hits.size() - 1).sort();
+                }
+                page = hits.iterator();
+
+            } catch (IOException e) {
+                log.error("导出用户翻页时发生异常", e);
+                throw new RuntimeException("导出用户失败: " + e.getMessage());
+            }
+        }
+
+        void close() {
+            try {
+                metrics.time("close_pit", () -> client.closePointInTime(c -> c.id(pitId)));
+                log.info("导出结束，已关闭point-in-time");
+            } catch (Exception e) {
+                // PIT到期后会被ES自动回收，这里失败不影响结果
+                log.warn("关闭point-in-time失败: {}", e.getMessage());
+            }
         }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,145 @@
+package com.example.simplees.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import com.example.simplees.config.SimpleEsProperties;
+import com.example.simplees.entity.User;
+import com.example.simplees.exception.SimpleEsException;
+import com.example.simplees.metrics.EsMetrics;
+import com.example.simplees.util.RequestCoalescer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * 用户写入合并服务（group commit）
+ * 注册高峰期大量并发的单条创建合并为一次_bulk：ES端一次请求、每个分片一次translog同步写入整批文档，
+ * 每个调用方仍拿到自己那条文档的结果或错误；代价是每次写入最多多等待一个合并窗口。
+ * 与BulkIngestService不同，这里面向需要逐条同步返回的在线写入，窗口以毫秒计
+ *
+ * @author Simple-ES
+ */
+@Slf4j
+@Service
+public class UserWriteBatcher implements InitializingBean, DisposableBean {
+
+    private static final String INDEX_NAME = UserService.INDEX_NAME;
+
+    @Autowired
+    private ElasticsearchAsyncClient asyncClient;
+
+    @Autowired
+    private SimpleEsProperties properties;
+
+    @Autowired
+    private EsMetrics metrics;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * 未启用写入合并时为null
+     */
+    private RequestCoalescer<PendingWrite, BulkResponseItem> coalescer;
+
+    @Override
+    public void afterPropertiesSet() {
+        SimpleEsProperties.GroupCommit groupCommit = properties.getGroupCommit();
+        if (!groupCommit.isEnabled()) {
+            log.info("写入合并未启用");
+            return;
+        }
+        log.info("初始化写入合并: windowMs={}, maxBatchSize={}", groupCommit.getWindowMs(), groupCommit.getMaxBatchSize());
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "es-group-commit");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.coalescer = new RequestCoalescer<>("bulk", this::indexAll, scheduler,
+            groupCommit.getWindowMs(), groupCommit.getMaxBatchSize(),
+            size -> metrics.recordCoalescedBatch("bulk", size));
+    }
+
+    /**
+     * 是否启用了写入合并
+     */
+    public boolean isEnabled() {
+        return coalescer != null;
+    }
+
+    /**
+     * 写入用户，与窗口内的其他写入一起通过_bulk发送
+     * 调用前需通过isEnabled判断，用户ID须已设置
+     *
+     * @param user 用户
+     * @param routing 路由值，为null时按_id路由
+     * @return 该用户对应的bulk条目结果，条目级错误以异常方式完成
+     */
+    public CompletableFuture<BulkResponseItem> index(User user, String routing) {
+        return coalescer.submit(new PendingWrite(user, routing));
+    }
+
+    private void indexAll(List<PendingWrite> writes, List<CompletableFuture<BulkResponseItem>> results) {
+        BulkRequest.Builder request = new BulkRequest.Builder();
+        for (PendingWrite write : writes) {
+            request.operations(op -> op
+                .index(idx -> idx
+                    .index(INDEX_NAME)
+                    .id(write.user.getId())
+                    .routing(write.routing)
+                    .document(write.user)));
+        }
+        metrics.timeAsync("bulk", asyncClient.bulk(request.build()))
+            .whenComplete((response, error) -> {
+                if (error != null) {
+                    results.forEach(future -> future.completeExceptionally(error));
+                    return;
+                }
+                metrics.recordTook("bulk", response.took());
+                List<BulkResponseItem> items = response.items();
+                int failed = 0;
+                for (int i = 0; i < results.size(); i++) {
+                    BulkResponseItem item = items.get(i);
+                    if (item.error() != null) {
+                        failed++;
+                        results.get(i).completeExceptionally(new SimpleEsException(
+                            "用户写入失败: " + item.id() + ", " + item.error().reason()));
+                    } else {
+                        results.get(i).complete(item);
+                    }
+                }
+                metrics.recordBulk(items.size(), failed);
+            });
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            coalescer.flush();
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * 一条待写入的文档，不重写equals：同一窗口内内容相同的两次写入也分别发送、分别返回结果
+     */
+    private static final class PendingWrite {
+
+        private final User user;
+
+        private final String routing;
+
+        PendingWrite(User user, String routing) {
+            this.user = user;
+            this.routing = routing;
+        }
+    }
+}
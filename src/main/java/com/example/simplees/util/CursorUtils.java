@@ -0,0 +1,79 @@
+package com.example.simplees.util;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 分页游标工具类
+ * 将search_after需要的排序值编码为不透明的URL安全字符串，调用方无需了解排序字段
+ *
+ * @author Simple-ES
+ */
+public class CursorUtils {
+
+    private static final TypeReference<List<Object>> LIST_TYPE = new TypeReference<List<Object>>() {
+    };
+
+    private CursorUtils() {
+    }
+
+    /**
+     * 将最后一条命中的排序值编码为游标
+     *
+     * @param sortValues 命中的排序值（Hit.sort()）
+     * @return 游标字符串，排序值为空时返回null
+     */
+    public static String encode(List<FieldValue> sortValues) {
+        if (sortValues == null || sortValues.isEmpty()) {
+            return null;
+        }
+        List<Object> values = new ArrayList<>(sortValues.size());
+        for (FieldValue value : sortValues) {
+            values.add(value.isNull() ? null : value._get());
+        }
+        try {
+            byte[] json = JsonUtils.getObjectMapper().writeValueAsBytes(values);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("游标编码失败: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    /**
+     * 将游标解码为search_after排序值
+     *
+     * @param cursor 游标字符串
+     * @return 排序值列表
+     */
+    public static List<FieldValue> decode(String cursor) {
+        List<Object> values;
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(cursor.getBytes(StandardCharsets.US_ASCII));
+            values = JsonUtils.getObjectMapper().readValue(json, LIST_TYPE);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("无效的分页游标", e);
+        }
+
+        List<FieldValue> sortValues = new ArrayList<>(values.size());
+        for (Object value : values) {
+            if (value == null) {
+                sortValues.add(FieldValue.NULL);
+            } else if (value instanceof Integer || value instanceof Long) {
+                sortValues.add(FieldValue.of(((Number) value).longValue()));
+            } else if (value instanceof Number) {
+                sortValues.add(FieldValue.of(((Number) value).doubleValue()));
+            } else if (value instanceof Boolean) {
+                sortValues.add(FieldValue.of((boolean) (Boolean) value));
+            } else {
+                sortValues.add(FieldValue.of(value.toString()));
+            }
+        }
+        return sortValues;
+    }
+}
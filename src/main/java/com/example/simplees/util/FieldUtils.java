@@ -1 +1,133 @@
- 
\ No newline at end of file
+package com.example.simplees.util;
+
+import com.example.simplees.wrapper.SFunction;
+
+import java.lang.invoke.SerializedLambda;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 字段名解析工具类
+ * 将方法引用（如User::getCreateTime）解析为ES字段名（createTime或create_time）。
+ * 解析结果按方法引用生成的类缓存，SerializedLambda的反射只在每个调用点第一次执行时发生，
+ * 之后每次解析只是一次Map查找，不产生额外对象
+ *
+ * @author Simple-ES
+ */
+public class FieldUtils {
+
+    /**
+     * 方法引用生成的类 → 字段名。非捕获的方法引用在每个调用点只有一个实例（一个类），缓存条目数等于调用点数
+     */
+    private static final Map<Class<?>, FieldName> FIELD_NAMES = new ConcurrentHashMap<>();
+
+    /**
+     * 全局的驼峰转下划线开关，启动时由ElasticsearchConfig根据simple-es.map-underscore-to-camel-case设置
+     */
+    private static volatile boolean mapUnderscoreToCamelCase = false;
+
+    private FieldUtils() {
+    }
+
+    public static boolean isMapUnderscoreToCamelCase() {
+        return mapUnderscoreToCamelCase;
+    }
+
+    public static void setMapUnderscoreToCamelCase(boolean mapUnderscoreToCamelCase) {
+        FieldUtils.mapUnderscoreToCamelCase = mapUnderscoreToCamelCase;
+    }
+
+    /**
+     * 按全局配置解析字段名
+     *
+     * @param column 字段的getter方法引用
+     * @return ES字段名
+     */
+    public static <T> String getFieldName(SFunction<T, ?> column) {
+        return getFieldName(column, mapUnderscoreToCamelCase);
+    }
+
+    /**
+     * 解析字段名
+     *
+     * @param column 字段的getter方法引用
+     * @param mapUnderscoreToCamelCase 是否将驼峰属性名转为下划线字段名
+     * @return ES字段名
+     */
+    public static <T> String getFieldName(SFunction<T, ?> column, boolean mapUnderscoreToCamelCase) {
+        FieldName fieldName = FIELD_NAMES.get(column.getClass());
+        if (fieldName == null) {
+            // 不用computeIfAbsent：命中时不需要为捕获column创建lambda
+            String property = toPropertyName(resolveLambda(column).getImplMethodName());
+            fieldName = new FieldName(property, camelToUnderscore(property));
+            FIELD_NAMES.putIfAbsent(column.getClass(), fieldName);
+        }
+        return mapUnderscoreToCamelCase ? fieldName.underscore : fieldName.property;
+    }
+
+    /**
+     * 驼峰转下划线，如createTime转为create_time
+     *
+     * @param name 驼峰名称
+     * @return 下划线名称
+     */
+    public static String camelToUnderscore(String name) {
+        StringBuilder sb = new StringBuilder(name.length() + 4);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isUpperCase(c)) {
+                if (i > 0) {
+                    sb.append('_');
+                }
+                sb.append(Character.toLowerCase(c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * getter方法名转属性名，如getCreateTime转为createTime、isDeleted转为deleted
+     */
+    private static String toPropertyName(String methodName) {
+        String name;
+        if (methodName.startsWith("get") && methodName.length() > 3) {
+            name = methodName.substring(3);
+        } else if (methodName.startsWith("is") && methodName.length() > 2) {
+            name = methodName.substring(2);
+        } else {
+            throw new IllegalArgumentException("不是getter方法引用: " + methodName);
+        }
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /**
+     * 通过编译器生成的writeReplace方法取得方法引用对应的SerializedLambda
+     */
+    private static SerializedLambda resolveLambda(SFunction<?, ?> column) {
+        try {
+            Method writeReplace = column.getClass().getDeclaredMethod("writeReplace");
+            writeReplace.setAccessible(true);
+            return (SerializedLambda) writeReplace.invoke(column);
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalStateException("无法解析字段方法引用: " + column.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * 同一属性的两种字段名，解析时一并计算好
+     */
+    private static final class FieldName {
+
+        private final String property;
+
+        private final String underscore;
+
+        private FieldName(String property, String underscore) {
+            this.property = property;
+            this.underscore = underscore;
+        }
+    }
+}
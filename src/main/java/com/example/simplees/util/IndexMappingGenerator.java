@@ -0,0 +1,205 @@
+package com.example.simplees.util;
+
+import com.example.simplees.annotation.IndexField;
+import com.example.simplees.annotation.IndexSetting;
+import com.example.simplees.constant.FieldType;
+import com.example.simplees.constant.IndexOptions;
+import com.example.simplees.exception.SimpleEsException;
+import com.example.simplees.metadata.EntityInfoHelper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 根据实体类上的注解生成索引映射和设置
+ * 字段按@IndexField配置，未标注的字段按Java类型推断；只输出与ES默认值不同的参数，
+ * 生成结果与ES返回的映射可以直接比较（见IndexService.validateMapping）
+ *
+ * @author Simple-ES
+ */
+public class IndexMappingGenerator {
+
+    private static final String DEFAULT_DATE_FORMAT = "yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||epoch_millis";
+
+    private IndexMappingGenerator() {
+    }
+
+    /**
+     * 生成映射配置
+     *
+     * @param entityClass 实体类
+     * @return 映射配置（JSON字符串）
+     */
+    public static String generateMappings(Class<?> entityClass) {
+        Map<String, Object> mappings = new LinkedHashMap<>();
+        // 路由是可选的（路由字段为空时按_id路由），只有分区路由的索引ES要求必须带路由
+        IndexSetting setting = entityClass.getAnnotation(IndexSetting.class);
+        if (setting != null && setting.routingPartitionSize() > 1) {
+            mappings.put("_routing", Collections.singletonMap("required", true));
+        }
+        mappings.put("properties", buildProperties(entityClass));
+        return toJson(mappings);
+    }
+
+    /**
+     * 生成索引设置
+     *
+     * @param entityClass 实体类
+     * @return 设置配置（JSON字符串）
+     */
+    public static String generateSettings(Class<?> entityClass) {
+        IndexSetting setting = entityClass.getAnnotation(IndexSetting.class);
+        if (setting == null) {
+            return IndexMappingUtil.getDefaultIndexSettings();
+        }
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("number_of_shards", setting.shards());
+        settings.put("number_of_replicas", setting.replicas());
+        settings.put("refresh_interval", setting.refreshInterval());
+        settings.put("max_result_window", setting.maxResultWindow());
+        if (!setting.codec().isEmpty()) {
+            settings.put("codec", setting.codec());
+        }
+        if (setting.routingPartitionSize() > 1) {
+            if (setting.routingPartitionSize() >= setting.shards()) {
+                throw new SimpleEsException("routingPartitionSize必须小于主分片数: " + entityClass.getSimpleName());
+            }
+            if (!EntityInfoHelper.getEntityInfo(entityClass).hasRouting()) {
+                throw new SimpleEsException("routingPartitionSize需要实体有@Routing字段: " + entityClass.getSimpleName());
+            }
+            settings.put("routing_partition_size", setting.routingPartitionSize());
+        }
+        return toJson(settings);
+    }
+
+    private static Map<String, Object> buildProperties(Class<?> entityClass) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        for (Class<?> c = entityClass; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers())) {
+                    continue;
+                }
+                properties.put(field.getName(), buildField(entityClass, field));
+            }
+        }
+        return properties;
+    }
+
+    private static Map<String, Object> buildField(Class<?> entityClass, Field field) {
+        IndexField config = field.getAnnotation(IndexField.class);
+        FieldType type = config != null && config.type() != FieldType.AUTO ? config.type() : inferType(field);
+        if (type == null) {
+            throw new SimpleEsException("无法推断字段类型，请通过@IndexField(type=...)指定: "
+                + entityClass.getSimpleName() + "." + field.getName());
+        }
+
+        Map<String, Object> mapping = new LinkedHashMap<>();
+        mapping.put("type", type.getEsType());
+        if (type == FieldType.DATE) {
+            mapping.put("format", config != null && !config.format().isEmpty() ? config.format() : DEFAULT_DATE_FORMAT);
+        }
+        if (config == null) {
+            return mapping;
+        }
+
+        String name = entityClass.getSimpleName() + "." + field.getName();
+        if (!config.index()) {
+            mapping.put("index", false);
+        }
+        if (!config.docValues()) {
+            if (type == FieldType.TEXT) {
+                throw new SimpleEsException("text字段没有doc_values: " + name);
+            }
+            mapping.put("doc_values", false);
+        }
+        if (!config.norms()) {
+            if (type != FieldType.TEXT) {
+                throw new SimpleEsException("norms只对text字段有效: " + name);
+            }
+            mapping.put("norms", false);
+        }
+        if (config.eagerGlobalOrdinals()) {
+            if (type != FieldType.KEYWORD || !config.docValues()) {
+                throw new SimpleEsException("eager_global_ordinals只适用于有doc_values的keyword字段: " + name);
+            }
+            mapping.put("eager_global_ordinals", true);
+        }
+        if (config.indexOptions() != IndexOptions.DEFAULT) {
+            mapping.put("index_options", config.indexOptions().getEsName());
+        }
+        if (type == FieldType.TEXT) {
+            if (!config.analyzer().isEmpty()) {
+                mapping.put("analyzer", config.analyzer());
+            }
+            if (!config.searchAnalyzer().isEmpty() && !config.searchAnalyzer().equals(config.analyzer())) {
+                mapping.put("search_analyzer", config.searchAnalyzer());
+            }
+        }
+        if (config.ignoreAbove() > 0) {
+            if (type == FieldType.TEXT) {
+                Map<String, Object> keyword = new LinkedHashMap<>();
+                keyword.put("type", FieldType.KEYWORD.getEsType());
+                keyword.put("ignore_above", config.ignoreAbove());
+                Map<String, Object> fields = new LinkedHashMap<>();
+                fields.put("keyword", keyword);
+                mapping.put("fields", fields);
+            } else {
+                mapping.put("ignore_above", config.ignoreAbove());
+            }
+        }
+        return mapping;
+    }
+
+    /**
+     * 按Java类型推断字段类型，集合取元素类型，无法推断时返回null
+     */
+    private static FieldType inferType(Field field) {
+        Class<?> type = field.getType();
+        if (Collection.class.isAssignableFrom(type)) {
+            Type generic = field.getGenericType();
+            if (!(generic instanceof ParameterizedType)) {
+                return null;
+            }
+            Type element = ((ParameterizedType) generic).getActualTypeArguments()[0];
+            return element instanceof Class ? inferType((Class<?>) element) : null;
+        }
+        return inferType(type);
+    }
+
+    private static FieldType inferType(Class<?> type) {
+        if (type == String.class || type.isEnum()) {
+            return FieldType.KEYWORD;
+        } else if (type == Integer.class || type == int.class || type == Short.class || type == short.class) {
+            return FieldType.INTEGER;
+        } else if (type == Long.class || type == long.class) {
+            return FieldType.LONG;
+        } else if (type == Double.class || type == double.class) {
+            return FieldType.DOUBLE;
+        } else if (type == Float.class || type == float.class) {
+            return FieldType.FLOAT;
+        } else if (type == Boolean.class || type == boolean.class) {
+            return FieldType.BOOLEAN;
+        } else if (type == LocalDateTime.class || type == LocalDate.class || type == Date.class) {
+            return FieldType.DATE;
+        }
+        return null;
+    }
+
+    private static String toJson(Map<String, Object> value) {
+        try {
+            return JsonUtils.getObjectMapper().writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new SimpleEsException("生成索引配置失败: " + e.getMessage(), e);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.simplees.util;
 
+import com.example.simplees.entity.User;
+
 /**
  * 索引映射配置工具类
  * 提供常用的索引映射配置模板
@@ -10,71 +12,22 @@ public class IndexMappingUtil {
 
     /**
      * 获取用户索引的映射配置
-     * 这个映射配置定义了User实体类在ES中的字段类型和属性
+     * 由User实体上的@IndexField注解生成
      * 
      * @return 用户索引映射配置（JSON字符串）
      */
     public static String getUserIndexMapping() {
-        return "{"
-            + "  \"properties\": {"
-            + "    \"id\": {"
-            + "      \"type\": \"keyword\","
-            + "      \"index\": true"
-            + "    },"
-            + "    \"username\": {"
-            + "      \"type\": \"text\","
-            + "      \"analyzer\": \"standard\","
-            + "      \"search_analyzer\": \"standard\","
-            + "      \"fields\": {"
-            + "        \"keyword\": {"
-            + "          \"type\": \"keyword\","
-            + "          \"ignore_above\": 256"
-            + "        }"
-            + "      }"
-            + "    },"
-            + "    \"email\": {"
-            + "      \"type\": \"keyword\","
-            + "      \"index\": true"
-            + "    },"
-            + "    \"age\": {"
-            + "      \"type\": \"integer\","
-            + "      \"index\": true"
-            + "    },"
-            + "    \"gender\": {"
-            + "      \"type\": \"keyword\","
-            + "      \"index\": true"
-            + "    },"
-            + "    \"city\": {"
-            + "      \"type\": \"keyword\","
-            + "      \"index\": true"
-            + "    },"
-            + "    \"bio\": {"
-            + "      \"type\": \"text\","
-            + "      \"analyzer\": \"standard\","
-            + "      \"search_analyzer\": \"standard\""
-            + "    },"
-            + "    \"tags\": {"
-            + "      \"type\": \"keyword\","
-            + "      \"index\": true"
-            + "    },"
-            + "    \"createTime\": {"
-            + "      \"type\": \"date\","
-            + "      \"format\": \"yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||epoch_millis\""
-            + "    },"
-            + "    \"updateTime\": {"
-            + "      \"type\": \"date\","
-            + "      \"format\": \"yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||epoch_millis\""
-            + "    },"
-            + "    \"isActive\": {"
-            + "      \"type\": \"boolean\","
-            + "      \"index\": true"
-            + "    },"
-            + "    \"score\": {"
-            + "      \"type\": \"double\","
-            + "      \"index\": true"
-            + "    }"
-            + "  }"
-            + "}";
+        return IndexMappingGenerator.generateMappings(User.class);
+    }
+
+    /**
+     * 获取用户索引的设置配置
+     * 由User实体上的@IndexSetting注解生成
+     * 
+     * @return 用户索引设置配置（JSON字符串）
+     */
+    public static String getUserIndexSettings() {
+        return IndexMappingGenerator.generateSettings(User.class);
     }
 
     /**
@@ -193,6 +146,61 @@ public class IndexMappingUtil {
             + "}";
     }
 
+    /**
+     * 获取用户行为索引的映射配置
+     * 只追加不修改的时序数据，通过索引模板应用到按大小/时间滚动的索引上
+     * 
+     * @return 用户行为索引映射配置（JSON字符串）
+     */
+    public static String getUserActivityIndexMapping() {
+        return "{"
+            + "  \"properties\": {"
+            + "    \"userId\": {"
+            + "      \"type\": \"keyword\""
+            + "    },"
+            + "    \"action\": {"
+            + "      \"type\": \"keyword\""
+            + "    },"
+            + "    \"targetId\": {"
+            + "      \"type\": \"keyword\""
+            + "    },"
+            + "    \"city\": {"
+            + "      \"type\": \"keyword\""
+            + "    },"
+            + "    \"timestamp\": {"
+            + "      \"type\": \"date\","
+            + "      \"format\": \"yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||epoch_millis\""
+            + "    }"
+            + "  }"
+            + "}";
+    }
+
+    /**
+     * 获取文章浏览记录索引的映射配置
+     * 只追加不修改的时序数据，通过索引模板应用到按大小/时间滚动的索引上
+     * 
+     * @return 文章浏览记录索引映射配置（JSON字符串）
+     */
+    public static String getArticleViewIndexMapping() {
+        return "{"
+            + "  \"properties\": {"
+            + "    \"articleId\": {"
+            + "      \"type\": \"keyword\""
+            + "    },"
+            + "    \"userId\": {"
+            + "      \"type\": \"keyword\""
+            + "    },"
+            + "    \"durationMs\": {"
+            + "      \"type\": \"long\""
+            + "    },"
+            + "    \"timestamp\": {"
+            + "      \"type\": \"date\","
+            + "      \"format\": \"yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||epoch_millis\""
+            + "    }"
+            + "  }"
+            + "}";
+    }
+
     /**
      * 获取简单的测试索引映射配置
      * 用于快速测试
@@ -1 +1,47 @@
- 
\ No newline at end of file
+package com.example.simplees.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.Map;
+
+/**
+ * JSON工具类
+ * 提供共享的ObjectMapper，避免每次解析都创建新实例
+ *
+ * @author Simple-ES
+ */
+public class JsonUtils {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<Map<String, Object>>() {
+    };
+
+    private JsonUtils() {
+    }
+
+    /**
+     * 获取共享的ObjectMapper（线程安全，不要修改其配置）
+     *
+     * @return ObjectMapper实例
+     */
+    public static ObjectMapper getObjectMapper() {
+        return OBJECT_MAPPER;
+    }
+
+    /**
+     * 将JSON对象字符串解析为Map
+     *
+     * @param json JSON字符串
+     * @return 解析后的Map
+     */
+    public static Map<String, Object> toMap(String json) {
+        try {
+            return OBJECT_MAPPER.readValue(json, MAP_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("JSON解析失败: " + e.getOriginalMessage(), e);
+        }
+    }
+}
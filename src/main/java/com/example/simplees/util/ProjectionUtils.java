@@ -0,0 +1,51 @@
+package com.example.simplees.util;
+
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.json.JsonData;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 字段投影工具类
+ * 只取部分字段时，命中结果不再反序列化为完整实体，而是转为只含所需字段的Map
+ *
+ * @author Simple-ES
+ */
+public class ProjectionUtils {
+
+    /**
+     * 投影查询的文档类型，_source直接反序列化为Map
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static final Class<Map<String, Object>> MAP_CLASS = (Class) Map.class;
+
+    private ProjectionUtils() {
+    }
+
+    /**
+     * 将命中结果转为Map：id、_source中返回的字段、docvalue_fields中的字段
+     * docvalue_fields的值总是数组，单值时展开为标量
+     *
+     * @param hit 命中结果
+     * @return 投影后的字段
+     */
+    public static Map<String, Object> toMap(Hit<Map<String, Object>> hit) {
+        Map<String, Object> source = hit.source();
+        Map<String, JsonData> fields = hit.fields();
+        Map<String, Object> result = new LinkedHashMap<>(
+            (source != null ? source.size() : 0) + (fields != null ? fields.size() : 0) + 2);
+        result.put("id", hit.id());
+        if (source != null) {
+            result.putAll(source);
+        }
+        if (fields != null) {
+            for (Map.Entry<String, JsonData> entry : fields.entrySet()) {
+                List<?> values = entry.getValue().to(List.class);
+                result.put(entry.getKey(), values.size() == 1 ? values.get(0) : values);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.simplees.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * 请求合并器（DataLoader风格）
+ * 收集一个时间窗口内（或攒满maxBatchSize个）的请求，合并成一次批量调用，再把结果逐个回填到调用方的future；
+ * 窗口内重复的key只发送一次，多个调用方共享同一个结果对象
+ *
+ * @param <K> 请求key，按equals去重（未重写equals的对象按实例区分）
+ * @param <V> 单个请求的结果
+ * @author Simple-ES
+ */
+@Slf4j
+public class RequestCoalescer<K, V> {
+
+    /**
+     * 批量加载：results与keys一一对应，由实现方逐个完成（单个失败不影响其他key）
+     */
+    @FunctionalInterface
+    public interface BatchLoader<K, V> {
+        void load(List<K> keys, List<CompletableFuture<V>> results);
+    }
+
+    private final String name;
+
+    private final BatchLoader<K, V> loader;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final long windowMillis;
+
+    private final int maxBatchSize;
+
+    private final IntConsumer batchSizeRecorder;
+
+    private final Object lock = new Object();
+
+    private Map<K, CompletableFuture<V>> pending = new LinkedHashMap<>();
+
+    private ScheduledFuture<?> timer;
+
+    /**
+     * @param name 名称，用于日志
+     * @param loader 批量加载实现
+     * @param scheduler 窗口到期时触发发送的调度线程
+     * @param windowMillis 等待窗口（毫秒），从窗口内第一个请求开始计时
+     * @param maxBatchSize 单批最多的key数，攒满立即发送
+     * @param batchSizeRecorder 每批key数的记录回调
+     */
+    public RequestCoalescer(String name, BatchLoader<K, V> loader, ScheduledExecutorService scheduler,
+                            long windowMillis, int maxBatchSize, IntConsumer batchSizeRecorder) {
+        this.name = name;
+        this.loader = loader;
+        this.scheduler = scheduler;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.batchSizeRecorder = batchSizeRecorder;
+    }
+
+    /**
+     * 提交一个请求
+     *
+     * @param key 请求key
+     * @return 该请求的结果
+     */
+    public CompletableFuture<V> submit(K key) {
+        Map<K, CompletableFuture<V>> batch = null;
+        CompletableFuture<V> future;
+        synchronized (lock) {
+            CompletableFuture<V> existing = pending.get(key);
+            if (existing != null) {
+                return existing.thenApply(value -> value);
+            }
+            future = new CompletableFuture<>();
+            pending.put(key, future);
+            if (pending.size() >= maxBatchSize) {
+                batch = takePending();
+            } else if (pending.size() == 1) {
+                timer = scheduler.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (batch != null) {
+            dispatch(batch);
+        }
+        return future;
+    }
+
+    /**
+     * 立即发送窗口内已收集的请求
+     */
+    public void flush() {
+        Map<K, CompletableFuture<V>> batch;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = takePending();
+        }
+        dispatch(batch);
+    }
+
+    private Map<K, CompletableFuture<V>> takePending() {
+        Map<K, CompletableFuture<V>> batch = pending;
+        pending = new LinkedHashMap<>();
+        if (timer != null) {
+            timer.cancel(false);
+            timer = null;
+        }
+        return batch;
+    }
+
+    private void dispatch(Map<K, CompletableFuture<V>> batch) {
+        List<K> keys = new ArrayList<>(batch.keySet());
+        List<CompletableFuture<V>> results = new ArrayList<>(batch.values());
+        batchSizeRecorder.accept(keys.size());
+        log.debug("[{}] 合并发送 {} 个请求", name, keys.size());
+        try {
+            loader.load(keys, results);
+        } catch (RuntimeException e) {
+            results.forEach(future -> future.completeExceptionally(e));
+        }
+    }
+}
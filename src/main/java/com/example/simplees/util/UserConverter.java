@@ -0,0 +1,78 @@
+package com.example.simplees.util;
+
+import com.example.simplees.entity.User;
+import com.example.simplees.mapper.UpdateResult;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 用户数据转换工具类
+ * 将接口接收到的Map数据转换为User对象，手动构建以避免Jackson序列化问题
+ *
+ * @author Simple-ES
+ */
+public class UserConverter {
+
+    private UserConverter() {
+    }
+
+    /**
+     * 将请求数据转换为新建的User对象（生成ID并设置创建时间）
+     *
+     * @param userData 请求数据
+     * @return User对象
+     */
+    public static User fromMap(Map<String, Object> userData) {
+        LocalDateTime now = LocalDateTime.now();
+        return User.builder()
+            .id(UUID.randomUUID().toString())
+            .username((String) userData.get("username"))
+            .email((String) userData.get("email"))
+            .age(userData.get("age") != null ? Integer.valueOf(userData.get("age").toString()) : null)
+            .gender((String) userData.get("gender"))
+            .city((String) userData.get("city"))
+            .bio((String) userData.get("bio"))
+            .createTime(now)
+            .updateTime(now)
+            .isActive(true)
+            .score(userData.get("score") != null ? Double.valueOf(userData.get("score").toString()) : null)
+            .build();
+    }
+
+    /**
+     * 将请求数据转换为局部更新的字段，请求中没有的字段为null（序列化时不会发送）
+     *
+     * @param userData 请求数据
+     * @return 只含待修改字段的User对象
+     */
+    public static User fromUpdateMap(Map<String, Object> userData) {
+        User user = new User();
+        user.setUsername((String) userData.get("username"));
+        user.setEmail((String) userData.get("email"));
+        user.setAge(userData.get("age") != null ? Integer.valueOf(userData.get("age").toString()) : null);
+        user.setGender((String) userData.get("gender"));
+        user.setCity((String) userData.get("city"));
+        user.setBio((String) userData.get("bio"));
+        user.setIsActive(userData.get("isActive") != null ? Boolean.valueOf(userData.get("isActive").toString()) : null);
+        user.setScore(userData.get("score") != null ? Double.valueOf(userData.get("score").toString()) : null);
+        return user;
+    }
+
+    /**
+     * 将局部更新结果转换为接口返回字段，seqNo/primaryTerm可直接用于下一次条件更新
+     *
+     * @param updateResult 更新结果
+     * @return 接口返回字段
+     */
+    public static Map<String, Object> toUpdateResultMap(UpdateResult<User> updateResult) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("data", updateResult.getSource());
+        result.put("seqNo", updateResult.getSeqNo());
+        result.put("primaryTerm", updateResult.getPrimaryTerm());
+        result.put("result", updateResult.getResult().jsonValue());
+        return result;
+    }
+}
@@ -1 +1,348 @@
- 
\ No newline at end of file
+package com.example.simplees.wrapper;
+
+import co.elastic.clients.elasticsearch._types.SortOptions;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.FieldAndFormat;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.search.SourceConfig;
+import com.example.simplees.constant.QueryType;
+import com.example.simplees.util.FieldUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 基于方法引用的查询条件构造器
+ * 用法示例：
+ * <pre>
+ * new LambdaWrapper&lt;User&gt;()
+ *     .match(User::getUsername, "张三")
+ *     .between(User::getAge, 20, 30)
+ *     .eq(city != null, User::getCity, city)
+ *     .orderByDesc(User::getCreateTime);
+ * </pre>
+ * 每个条件方法都有带boolean condition参数的重载，condition为false时忽略该条件，便于拼接可选参数
+ *
+ * @param <T> 实体类型
+ * @author Simple-ES
+ */
+public class LambdaWrapper<T> implements Wrapper<T> {
+
+    private final boolean mapUnderscoreToCamelCase;
+
+    private final List<QueryCondition> conditions = new ArrayList<>();
+
+    private final List<SortCondition> sorts = new ArrayList<>();
+
+    private final List<String> includes = new ArrayList<>();
+
+    private final List<String> excludes = new ArrayList<>();
+
+    private final List<String> docValueFields = new ArrayList<>();
+
+    /**
+     * 使用全局的驼峰转下划线配置
+     */
+    public LambdaWrapper() {
+        this(FieldUtils.isMapUnderscoreToCamelCase());
+    }
+
+    /**
+     * @param mapUnderscoreToCamelCase 是否将驼峰属性名转为下划线字段名
+     */
+    public LambdaWrapper(boolean mapUnderscoreToCamelCase) {
+        this.mapUnderscoreToCamelCase = mapUnderscoreToCamelCase;
+    }
+
+    public LambdaWrapper<T> eq(SFunction<T, ?> column, Object value) {
+        return eq(true, column, value);
+    }
+
+    public LambdaWrapper<T> eq(boolean condition, SFunction<T, ?> column, Object value) {
+        return addCondition(condition, QueryType.EQ, column, value);
+    }
+
+    public LambdaWrapper<T> ne(SFunction<T, ?> column, Object value) {
+        return ne(true, column, value);
+    }
+
+    public LambdaWrapper<T> ne(boolean condition, SFunction<T, ?> column, Object value) {
+        return addCondition(condition, QueryType.NE, column, value);
+    }
+
+    public LambdaWrapper<T> in(SFunction<T, ?> column, Collection<?> values) {
+        return in(true, column, values);
+    }
+
+    public LambdaWrapper<T> in(boolean condition, SFunction<T, ?> column, Collection<?> values) {
+        return addCondition(condition, QueryType.IN, column, values);
+    }
+
+    public LambdaWrapper<T> notIn(SFunction<T, ?> column, Collection<?> values) {
+        return notIn(true, column, values);
+    }
+
+    public LambdaWrapper<T> notIn(boolean condition, SFunction<T, ?> column, Collection<?> values) {
+        return addCondition(condition, QueryType.NOT_IN, column, values);
+    }
+
+    public LambdaWrapper<T> gt(SFunction<T, ?> column, Object value) {
+        return gt(true, column, value);
+    }
+
+    public LambdaWrapper<T> gt(boolean condition, SFunction<T, ?> column, Object value) {
+        return addCondition(condition, QueryType.GT, column, value);
+    }
+
+    public LambdaWrapper<T> ge(SFunction<T, ?> column, Object value) {
+        return ge(true, column, value);
+    }
+
+    public LambdaWrapper<T> ge(boolean condition, SFunction<T, ?> column, Object value) {
+        return addCondition(condition, QueryType.GE, column, value);
+    }
+
+    public LambdaWrapper<T> lt(SFunction<T, ?> column, Object value) {
+        return lt(true, column, value);
+    }
+
+    public LambdaWrapper<T> lt(boolean condition, SFunction<T, ?> column, Object value) {
+        return addCondition(condition, QueryType.LT, column, value);
+    }
+
+    public LambdaWrapper<T> le(SFunction<T, ?> column, Object value) {
+        return le(true, column, value);
+    }
+
+    public LambdaWrapper<T> le(boolean condition, SFunction<T, ?> column, Object value) {
+        return addCondition(condition, QueryType.LE, column, value);
+    }
+
+    /**
+     * 闭区间，from或to为null时表示该侧不设边界
+     */
+    public LambdaWrapper<T> between(SFunction<T, ?> column, Object from, Object to) {
+        return between(from != null || to != null, column, from, to);
+    }
+
+    public LambdaWrapper<T> between(boolean condition, SFunction<T, ?> column, Object from, Object to) {
+        if (condition) {
+            conditions.add(QueryCondition.between(field(column), from, to));
+        }
+        return this;
+    }
+
+    public LambdaWrapper<T> prefix(SFunction<T, ?> column, String prefix) {
+        return prefix(true, column, prefix);
+    }
+
+    public LambdaWrapper<T> prefix(boolean condition, SFunction<T, ?> column, String prefix) {
+        return addCondition(condition, QueryType.PREFIX, column, prefix);
+    }
+
+    public LambdaWrapper<T> exists(SFunction<T, ?> column) {
+        return exists(true, column);
+    }
+
+    public LambdaWrapper<T> exists(boolean condition, SFunction<T, ?> column) {
+        return addCondition(condition, QueryType.EXISTS, column, null);
+    }
+
+    public LambdaWrapper<T> notExists(SFunction<T, ?> column) {
+        return notExists(true, column);
+    }
+
+    public LambdaWrapper<T> notExists(boolean condition, SFunction<T, ?> column) {
+        return addCondition(condition, QueryType.NOT_EXISTS, column, null);
+    }
+
+    public LambdaWrapper<T> match(SFunction<T, ?> column, String text) {
+        return match(true, column, text);
+    }
+
+    public LambdaWrapper<T> match(boolean condition, SFunction<T, ?> column, String text) {
+        return addCondition(condition, QueryType.MATCH, column, text);
+    }
+
+    public LambdaWrapper<T> matchPhrase(SFunction<T, ?> column, String text) {
+        return matchPhrase(true, column, text);
+    }
+
+    public LambdaWrapper<T> matchPhrase(boolean condition, SFunction<T, ?> column, String text) {
+        return addCondition(condition, QueryType.MATCH_PHRASE, column, text);
+    }
+
+    @SafeVarargs
+    public final LambdaWrapper<T> multiMatch(String text, SFunction<T, ?>... columns) {
+        return multiMatch(true, text, columns);
+    }
+
+    @SafeVarargs
+    public final LambdaWrapper<T> multiMatch(boolean condition, String text, SFunction<T, ?>... columns) {
+        if (condition) {
+            List<String> fields = new ArrayList<>(columns.length);
+            for (SFunction<T, ?> column : columns) {
+                fields.add(field(column));
+            }
+            conditions.add(QueryCondition.multiMatch(fields, text));
+        }
+        return this;
+    }
+
+    public LambdaWrapper<T> orderByAsc(SFunction<T, ?> column) {
+        sorts.add(new SortCondition(field(column), SortOrder.Asc));
+        return this;
+    }
+
+    public LambdaWrapper<T> orderByDesc(SFunction<T, ?> column) {
+        sorts.add(new SortCondition(field(column), SortOrder.Desc));
+        return this;
+    }
+
+    /**
+     * 只返回指定字段（_source includes）
+     */
+    @SafeVarargs
+    public final LambdaWrapper<T> select(SFunction<T, ?>... columns) {
+        for (SFunction<T, ?> column : columns) {
+            includes.add(field(column));
+        }
+        return this;
+    }
+
+    /**
+     * 只返回指定字段，字段名已是ES字段名（如接口参数），调用方负责校验
+     */
+    public LambdaWrapper<T> selectFields(Collection<String> fields) {
+        includes.addAll(fields);
+        return this;
+    }
+
+    /**
+     * 不返回指定字段（_source excludes），如长文本bio
+     */
+    @SafeVarargs
+    public final LambdaWrapper<T> exclude(SFunction<T, ?>... columns) {
+        for (SFunction<T, ?> column : columns) {
+            excludes.add(field(column));
+        }
+        return this;
+    }
+
+    /**
+     * 从doc values读取字段（docvalue_fields），只适用于keyword、数值、日期等有doc values的字段。
+     * 未同时指定select/exclude时不再返回_source，省去_source的读取和解析
+     */
+    @SafeVarargs
+    public final LambdaWrapper<T> docValueFields(SFunction<T, ?>... columns) {
+        for (SFunction<T, ?> column : columns) {
+            docValueFields.add(field(column));
+        }
+        return this;
+    }
+
+    public List<QueryCondition> getConditions() {
+        return Collections.unmodifiableList(conditions);
+    }
+
+    public List<SortCondition> getSorts() {
+        return Collections.unmodifiableList(sorts);
+    }
+
+    @Override
+    public Query toQuery() {
+        if (conditions.isEmpty()) {
+            return Query.of(q -> q.matchAll(m -> m));
+        }
+        BoolQuery.Builder bool = new BoolQuery.Builder();
+        for (QueryCondition condition : conditions) {
+            Query query = condition.toQuery();
+            switch (condition.getType().getOccur()) {
+                case MUST:
+                    bool.must(query);
+                    break;
+                case MUST_NOT:
+                    bool.mustNot(query);
+                    break;
+                default:
+                    bool.filter(query);
+                    break;
+            }
+        }
+        return Query.of(q -> q.bool(bool.build()));
+    }
+
+    @Override
+    public List<SortOptions> toSortOptions() {
+        List<SortOptions> sortOptions = new ArrayList<>(sorts.size());
+        for (SortCondition sort : sorts) {
+            sortOptions.add(sort.toSortOptions());
+        }
+        return sortOptions;
+    }
+
+    @Override
+    public SourceConfig toSourceConfig() {
+        if (!includes.isEmpty() || !excludes.isEmpty()) {
+            return SourceConfig.of(s -> s.filter(f -> {
+                if (!includes.isEmpty()) {
+                    f.includes(includes);
+                }
+                if (!excludes.isEmpty()) {
+                    f.excludes(excludes);
+                }
+                return f;
+            }));
+        }
+        if (!docValueFields.isEmpty()) {
+            return SourceConfig.of(s -> s.fetch(false));
+        }
+        return null;
+    }
+
+    /**
+     * 取路由字段上的第一个eq或in条件；条件之间是AND关系，其余条件只会进一步缩小结果
+     */
+    @Override
+    public String toRouting(String routingField) {
+        for (QueryCondition condition : conditions) {
+            if (!routingField.equals(condition.getField()) || condition.getValue() == null) {
+                continue;
+            }
+            if (condition.getType() == QueryType.EQ) {
+                return condition.getValue().toString();
+            }
+            if (condition.getType() == QueryType.IN) {
+                Collection<?> values = (Collection<?>) condition.getValue();
+                if (!values.isEmpty()) {
+                    return values.stream().map(String::valueOf).collect(Collectors.joining(","));
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<FieldAndFormat> toDocValueFields() {
+        List<FieldAndFormat> fields = new ArrayList<>(docValueFields.size());
+        for (String field : docValueFields) {
+            fields.add(FieldAndFormat.of(f -> f.field(field)));
+        }
+        return fields;
+    }
+
+    private LambdaWrapper<T> addCondition(boolean condition, QueryType type, SFunction<T, ?> column, Object value) {
+        if (condition) {
+            conditions.add(QueryCondition.of(type, field(column), value));
+        }
+        return this;
+    }
+
+    private String field(SFunction<T, ?> column) {
+        return FieldUtils.getFieldName(column, mapUnderscoreToCamelCase);
+    }
+}
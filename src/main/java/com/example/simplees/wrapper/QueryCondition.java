@@ -1 +1,181 @@
- 
\ No newline at end of file
+package com.example.simplees.wrapper;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch._types.query_dsl.RangeQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.TextQueryType;
+import co.elastic.clients.json.JsonData;
+import com.example.simplees.config.ElasticsearchConfig;
+import com.example.simplees.constant.QueryType;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 单个查询条件
+ * 字段名在加入条件时已解析完毕，这里只负责转换为ES查询
+ *
+ * @author Simple-ES
+ */
+@Getter
+public class QueryCondition {
+
+    private static final DateTimeFormatter DATE_TIME_FORMATTER =
+        DateTimeFormatter.ofPattern(ElasticsearchConfig.DATE_TIME_PATTERN);
+
+    private final QueryType type;
+
+    private final String field;
+
+    /**
+     * 条件值，BETWEEN时为下界
+     */
+    private final Object value;
+
+    /**
+     * BETWEEN的上界
+     */
+    private final Object toValue;
+
+    /**
+     * MULTI_MATCH的字段列表
+     */
+    private final List<String> fields;
+
+    private QueryCondition(QueryType type, String field, Object value, Object toValue, List<String> fields) {
+        this.type = type;
+        this.field = field;
+        this.value = value;
+        this.toValue = toValue;
+        this.fields = fields;
+    }
+
+    public static QueryCondition of(QueryType type, String field, Object value) {
+        return new QueryCondition(type, field, value, null, null);
+    }
+
+    public static QueryCondition between(String field, Object from, Object to) {
+        return new QueryCondition(QueryType.BETWEEN, field, from, to, null);
+    }
+
+    public static QueryCondition multiMatch(List<String> fields, String text) {
+        return new QueryCondition(QueryType.MULTI_MATCH, null, text, null, fields);
+    }
+
+    /**
+     * 转换为ES查询
+     * NE、NOT_IN、NOT_EXISTS生成的是肯定形式的查询，取反由bool查询的must_not完成
+     *
+     * @return ES查询
+     */
+    public Query toQuery() {
+        switch (type) {
+            case EQ:
+            case NE:
+                return Query.of(q -> q.term(t -> t
+                    .field(field)
+                    .value(toFieldValue(value))
+                ));
+            case IN:
+            case NOT_IN:
+                List<FieldValue> values = toFieldValues((Collection<?>) value);
+                return Query.of(q -> q.terms(t -> t
+                    .field(field)
+                    .terms(tv -> tv.value(values))
+                ));
+            case GT:
+                return range(r -> r.gt(toJsonData(value)));
+            case GE:
+                return range(r -> r.gte(toJsonData(value)));
+            case LT:
+                return range(r -> r.lt(toJsonData(value)));
+            case LE:
+                return range(r -> r.lte(toJsonData(value)));
+            case BETWEEN:
+                return range(r -> {
+                    if (value != null) {
+                        r.gte(toJsonData(value));
+                    }
+                    if (toValue != null) {
+                        r.lte(toJsonData(toValue));
+                    }
+                    return r;
+                });
+            case PREFIX:
+                return Query.of(q -> q.prefix(p -> p
+                    .field(field)
+                    .value(String.valueOf(value))
+                ));
+            case EXISTS:
+            case NOT_EXISTS:
+                return Query.of(q -> q.exists(e -> e.field(field)));
+            case MATCH:
+                return Query.of(q -> q.match(m -> m
+                    .field(field)
+                    .query(String.valueOf(value))
+                ));
+            case MATCH_PHRASE:
+                return Query.of(q -> q.matchPhrase(m -> m
+                    .field(field)
+                    .query(String.valueOf(value))
+                ));
+            case MULTI_MATCH:
+                return Query.of(q -> q.multiMatch(mm -> mm
+                    .query(String.valueOf(value))
+                    .fields(fields)
+                    .type(TextQueryType.BestFields)
+                ));
+            default:
+                throw new IllegalStateException("不支持的查询类型: " + type);
+        }
+    }
+
+    private Query range(Function<RangeQuery.Builder, RangeQuery.Builder> fn) {
+        return Query.of(q -> q.range(r -> fn.apply(r.field(field))));
+    }
+
+    private static List<FieldValue> toFieldValues(Collection<?> values) {
+        List<FieldValue> fieldValues = new ArrayList<>(values.size());
+        for (Object v : values) {
+            fieldValues.add(toFieldValue(v));
+        }
+        return fieldValues;
+    }
+
+    private static FieldValue toFieldValue(Object value) {
+        if (value == null) {
+            return FieldValue.NULL;
+        } else if (value instanceof String) {
+            return FieldValue.of((String) value);
+        } else if (value instanceof Integer || value instanceof Long
+            || value instanceof Short || value instanceof Byte) {
+            return FieldValue.of(((Number) value).longValue());
+        } else if (value instanceof Number) {
+            return FieldValue.of(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            return FieldValue.of((Boolean) value);
+        }
+        return FieldValue.of(toScalar(value).toString());
+    }
+
+    private static JsonData toJsonData(Object value) {
+        return JsonData.of(toScalar(value));
+    }
+
+    /**
+     * 日期按索引映射中的格式输出，枚举取名称
+     */
+    private static Object toScalar(Object value) {
+        if (value instanceof LocalDateTime) {
+            return DATE_TIME_FORMATTER.format((LocalDateTime) value);
+        } else if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        return value;
+    }
+}
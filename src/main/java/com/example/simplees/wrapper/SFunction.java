@@ -0,0 +1,14 @@
+package com.example.simplees.wrapper;
+
+import java.io.Serializable;
+import java.util.function.Function;
+
+/**
+ * 可序列化的Function，用于通过方法引用（如User::getAge）指定字段
+ * 实现Serializable后编译器会为方法引用生成writeReplace方法，从而可以取得SerializedLambda解析出字段名
+ *
+ * @author Simple-ES
+ */
+@FunctionalInterface
+public interface SFunction<T, R> extends Function<T, R>, Serializable {
+}
@@ -1 +1,35 @@
- 
\ No newline at end of file
+package com.example.simplees.wrapper;
+
+import co.elastic.clients.elasticsearch._types.SortOptions;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import lombok.Getter;
+
+/**
+ * 单个排序条件
+ *
+ * @author Simple-ES
+ */
+@Getter
+public class SortCondition {
+
+    private final String field;
+
+    private final SortOrder order;
+
+    public SortCondition(String field, SortOrder order) {
+        this.field = field;
+        this.order = order;
+    }
+
+    /**
+     * 转换为ES排序参数
+     *
+     * @return 排序参数
+     */
+    public SortOptions toSortOptions() {
+        return SortOptions.of(s -> s.field(f -> f
+            .field(field)
+            .order(order)
+        ));
+    }
+}
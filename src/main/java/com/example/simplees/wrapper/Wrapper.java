@@ -1 +1,61 @@
- 
\ No newline at end of file
+package com.example.simplees.wrapper;
+
+import co.elastic.clients.elasticsearch._types.SortOptions;
+import co.elastic.clients.elasticsearch._types.query_dsl.FieldAndFormat;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.search.SourceConfig;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 查询条件构造器
+ * 收集查询和排序条件，最终转换为ES查询DSL
+ *
+ * @param <T> 实体类型
+ * @author Simple-ES
+ */
+public interface Wrapper<T> {
+
+    /**
+     * 转换为ES查询，没有任何条件时为match_all
+     *
+     * @return ES查询
+     */
+    Query toQuery();
+
+    /**
+     * 转换为ES排序参数，按添加顺序排列
+     *
+     * @return 排序参数列表
+     */
+    List<SortOptions> toSortOptions();
+
+    /**
+     * 转换为_source过滤参数
+     *
+     * @return _source参数，返回完整_source时为null
+     */
+    default SourceConfig toSourceConfig() {
+        return null;
+    }
+
+    /**
+     * 转换为docvalue_fields参数
+     *
+     * @return 需要从doc values读取的字段
+     */
+    default List<FieldAndFormat> toDocValueFields() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * 从查询条件推导路由值：条件要求路由字段等于某个值（或属于某几个值）时，只需查询这些值所在的分片
+     *
+     * @param routingField 路由字段名
+     * @return 路由值（多个值以逗号分隔），无法推导时为null
+     */
+    default String toRouting(String routingField) {
+        return null;
+    }
+}
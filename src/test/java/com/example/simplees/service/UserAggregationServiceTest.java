@@ -0,0 +1,169 @@
+package com.example.simplees.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.TotalHitsRelation;
+import com.example.simplees.config.SimpleEsProperties;
+import com.example.simplees.entity.User;
+import com.example.simplees.metrics.EsMetrics;
+import com.example.simplees.wrapper.LambdaWrapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * UserAggregationService结果缓存测试：缓存键为规范化的请求，结果只在写入代数不变且已稳定时复用
+ *
+ * @author Simple-ES
+ */
+@ExtendWith(MockitoExtension.class)
+class UserAggregationServiceTest {
+
+    @Mock
+    private ElasticsearchClient client;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private IndexService indexService;
+
+    @Mock
+    private EsMetrics metrics;
+
+    @Spy
+    private SimpleEsProperties properties = new SimpleEsProperties();
+
+    @InjectMocks
+    private UserAggregationService aggregationService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // 每次调用都重新获取代数，代数变化后立即视为稳定
+        properties.getAggregation().setGenerationCheckIntervalMs(0);
+        aggregationService.afterPropertiesSet();
+
+        when(userService.buildFilterWrapper(any(), any(), any(), any(), any(), any()))
+            .thenAnswer(invocation -> new LambdaWrapper<User>());
+        when(metrics.time(eq("aggregation"), any()))
+            .thenAnswer(invocation -> invocation.<EsMetrics.EsCall<?>>getArgument(1).execute());
+        when(client.search(any(SearchRequest.class), eq(Void.class))).thenReturn(emptyResponse());
+    }
+
+    private static SearchResponse<Void> emptyResponse() {
+        return SearchResponse.of(r -> r
+            .took(1)
+            .timedOut(false)
+            .shards(s -> s.total(1).successful(1).failed(0))
+            .hits(h -> h
+                .total(t -> t.value(7).relation(TotalHitsRelation.Eq))
+                .hits(Collections.emptyList())));
+    }
+
+    private Map<String, Object> aggregate(List<String> facets) {
+        return aggregationService.aggregateUsers(null, null, null, null, null, null, facets, null, 10);
+    }
+
+    private void verifySearches(int count) throws Exception {
+        verify(client, times(count)).search(any(SearchRequest.class), eq(Void.class));
+    }
+
+    @Test
+    void reusesResultWhileGenerationIsUnchanged() throws Exception {
+        when(indexService.getWriteGeneration(UserService.INDEX_NAME)).thenReturn(5L);
+
+        Map<String, Object> first = aggregate(null);
+        Map<String, Object> second = aggregate(null);
+
+        assertThat(first.get("cached")).isEqualTo(false);
+        assertThat(second.get("cached")).isEqualTo(true);
+        assertThat(second.get("total")).isEqualTo(7L);
+        verifySearches(1);
+    }
+
+    @Test
+    void facetOrderDoesNotChangeCacheKey() throws Exception {
+        when(indexService.getWriteGeneration(UserService.INDEX_NAME)).thenReturn(5L);
+
+        aggregate(Arrays.asList("city", "gender"));
+        Map<String, Object> reordered = aggregate(Arrays.asList("gender", "city"));
+
+        assertThat(reordered.get("cached")).isEqualTo(true);
+        verifySearches(1);
+    }
+
+    @Test
+    void differentConditionsUseDifferentKeys() throws Exception {
+        when(indexService.getWriteGeneration(UserService.INDEX_NAME)).thenReturn(5L);
+
+        aggregate(Collections.singletonList("city"));
+        Map<String, Object> other = aggregate(Collections.singletonList("gender"));
+
+        assertThat(other.get("cached")).isEqualTo(false);
+        verifySearches(2);
+    }
+
+    @Test
+    void recomputesWhenGenerationChanges() throws Exception {
+        when(indexService.getWriteGeneration(UserService.INDEX_NAME)).thenReturn(5L, 6L);
+
+        aggregate(null);
+        Map<String, Object> second = aggregate(null);
+
+        assertThat(second.get("cached")).isEqualTo(false);
+        verifySearches(2);
+    }
+
+    @Test
+    void counterResetDoesNotServeResultOfEarlierGeneration() throws Exception {
+        // 分片重新分配后计数重置，代数可能回到之前出现过的值
+        when(indexService.getWriteGeneration(UserService.INDEX_NAME)).thenReturn(5L, 3L, 5L);
+
+        aggregate(Collections.singletonList("city"));
+        aggregate(Collections.singletonList("gender"));
+        Map<String, Object> third = aggregate(Collections.singletonList("city"));
+
+        assertThat(third.get("cached")).isEqualTo(false);
+        verifySearches(3);
+    }
+
+    @Test
+    void doesNotCacheBeforeGenerationSettles() throws Exception {
+        properties.getAggregation().setGenerationCheckIntervalMs(60_000);
+        when(indexService.getWriteGeneration(UserService.INDEX_NAME)).thenReturn(5L);
+
+        aggregate(null);
+        Map<String, Object> second = aggregate(null);
+
+        assertThat(second.get("cached")).isEqualTo(false);
+        verifySearches(2);
+    }
+
+    @Test
+    void skipsCacheWhenGenerationIsUnavailable() throws Exception {
+        when(indexService.getWriteGeneration(UserService.INDEX_NAME)).thenReturn(null);
+
+        aggregate(null);
+        Map<String, Object> second = aggregate(null);
+
+        assertThat(second.get("cached")).isEqualTo(false);
+        verifySearches(2);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.simplees.service;
+
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import com.example.simplees.config.SimpleEsProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * UserBatchLoader测试：只有参数都能完整复制到msearch的搜索才会合并
+ *
+ * @author Simple-ES
+ */
+@ExtendWith(MockitoExtension.class)
+class UserBatchLoaderTest {
+
+    @Spy
+    private SimpleEsProperties properties = new SimpleEsProperties();
+
+    @InjectMocks
+    private UserBatchLoader userBatchLoader;
+
+    @BeforeEach
+    void setUp() {
+        properties.getCoalesce().setEnabled(true);
+        userBatchLoader.afterPropertiesSet();
+    }
+
+    @AfterEach
+    void tearDown() {
+        userBatchLoader.destroy();
+    }
+
+    private static SearchRequest pageRequest(Function<SearchRequest.Builder, SearchRequest.Builder> extra) {
+        SearchRequest.Builder builder = new SearchRequest.Builder()
+            .index("user")
+            .query(q -> q.term(t -> t.field("city").value("北京")))
+            .from(0)
+            .size(10)
+            .sort(s -> s.field(f -> f.field("createTime").order(SortOrder.Desc)))
+            .source(src -> src.filter(f -> f.includes("username")))
+            .trackTotalHits(t -> t.enabled(true))
+            .routing("北京")
+            .requestCache(true);
+        return extra.apply(builder).build();
+    }
+
+    @Test
+    void coalescesPlainPageSearch() {
+        assertThat(userBatchLoader.isCoalescible(pageRequest(b -> b))).isTrue();
+    }
+
+    @Test
+    void doesNotCoalesceLargePages() {
+        int tooLarge = properties.getCoalesce().getMaxSearchSize() + 1;
+
+        assertThat(userBatchLoader.isCoalescible(pageRequest(b -> b.size(tooLarge)))).isFalse();
+    }
+
+    @Test
+    void doesNotCoalesceRequestsWithOptionsMsearchWouldDrop() {
+        assertThat(userBatchLoader.isCoalescible(pageRequest(b -> b
+            .highlight(h -> h.fields("username", f -> f))))).isFalse();
+        assertThat(userBatchLoader.isCoalescible(pageRequest(b -> b
+            .postFilter(q -> q.term(t -> t.field("gender").value("男")))))).isFalse();
+        assertThat(userBatchLoader.isCoalescible(pageRequest(b -> b
+            .collapse(c -> c.field("city"))))).isFalse();
+        assertThat(userBatchLoader.isCoalescible(pageRequest(b -> b.timeout("1s")))).isFalse();
+        assertThat(userBatchLoader.isCoalescible(pageRequest(b -> b.preference("_local")))).isFalse();
+        assertThat(userBatchLoader.isCoalescible(pageRequest(b -> b.minScore(0.5)))).isFalse();
+        assertThat(userBatchLoader.isCoalescible(pageRequest(b -> b.terminateAfter(100L)))).isFalse();
+        assertThat(userBatchLoader.isCoalescible(pageRequest(b -> b.storedFields("username")))).isFalse();
+        assertThat(userBatchLoader.isCoalescible(pageRequest(b -> b
+            .aggregations("city", a -> a.terms(t -> t.field("city")))))).isFalse();
+    }
+
+    @Test
+    void doesNotCoalesceWhenDisabled() {
+        UserBatchLoader disabled = new UserBatchLoader();
+
+        assertThat(disabled.isCoalescible(pageRequest(b -> b))).isFalse();
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.simplees.service;
+
+import com.example.simplees.config.SimpleEsProperties;
+import com.example.simplees.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * UserService缓存回填测试：异步加载期间发生失效时不回填
+ *
+ * @author Simple-ES
+ */
+@ExtendWith(MockitoExtension.class)
+class UserServiceCacheTest {
+
+    @Spy
+    private SimpleEsProperties properties = new SimpleEsProperties();
+
+    @InjectMocks
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        userService.afterPropertiesSet();
+    }
+
+    private static User user(String id, String username) {
+        return User.builder().id(id).username(username).build();
+    }
+
+    @Test
+    void cachesLoadedUserWhenNothingWasEvicted() {
+        long stamp = userService.cacheStamp("1");
+
+        userService.cacheUser(user("1", "loaded"), stamp);
+
+        assertThat(userService.getCachedUser("1").getUsername()).isEqualTo("loaded");
+    }
+
+    @Test
+    void skipsLoadedUserWhenEvictedDuringLoad() {
+        long stamp = userService.cacheStamp("1");
+        userService.evict("1");
+
+        userService.cacheUser(user("1", "stale"), stamp);
+
+        assertThat(userService.getCachedUser("1")).isNull();
+    }
+
+    @Test
+    void skipsLoadedUserWhenAllEvictedDuringLoad() {
+        long stamp = userService.cacheStamp("1");
+        userService.evictAll();
+
+        userService.cacheUser(user("1", "stale"), stamp);
+
+        assertThat(userService.getCachedUser("1")).isNull();
+    }
+
+    @Test
+    void staleLoadDoesNotReplaceNewerEntry() {
+        long stamp = userService.cacheStamp("1");
+        userService.evict("1");
+        userService.cacheUser(user("1", "fresh"), userService.cacheStamp("1"));
+
+        userService.cacheUser(user("1", "stale"), stamp);
+
+        assertThat(userService.getCachedUser("1").getUsername()).isEqualTo("fresh");
+    }
+}
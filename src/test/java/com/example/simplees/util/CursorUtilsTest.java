@@ -0,0 +1,59 @@
+package com.example.simplees.util;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * CursorUtils测试
+ *
+ * @author Simple-ES
+ */
+class CursorUtilsTest {
+
+    @Test
+    void roundTripsAllSortValueKinds() {
+        List<FieldValue> sortValues = Arrays.asList(
+            FieldValue.of(42L),
+            FieldValue.of(1_700_000_000_000L),
+            FieldValue.of(98.5),
+            FieldValue.of(true),
+            FieldValue.of("user-1"),
+            FieldValue.NULL);
+
+        List<FieldValue> decoded = CursorUtils.decode(CursorUtils.encode(sortValues));
+
+        assertThat(decoded).hasSameSizeAs(sortValues);
+        for (int i = 0; i < sortValues.size(); i++) {
+            assertThat(decoded.get(i)._kind()).isEqualTo(sortValues.get(i)._kind());
+            assertThat(decoded.get(i)._get()).isEqualTo(sortValues.get(i)._get());
+        }
+    }
+
+    @Test
+    void encodesAsUrlSafeStringWithoutPadding() {
+        String cursor = CursorUtils.encode(Arrays.asList(FieldValue.of("a/b+c?"), FieldValue.of(1L)));
+
+        assertThat(cursor).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void encodesEmptySortValuesAsNull() {
+        assertThat(CursorUtils.encode(null)).isNull();
+        assertThat(CursorUtils.encode(Collections.emptyList())).isNull();
+    }
+
+    @Test
+    void rejectsInvalidCursor() {
+        assertThatThrownBy(() -> CursorUtils.decode("not a cursor!"))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CursorUtils.decode("e30"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.simplees.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * RequestCoalescer测试
+ *
+ * @author Simple-ES
+ */
+class RequestCoalescerTest {
+
+    /**
+     * 足够长的窗口，保证只有攒满或手动flush才会发送
+     */
+    private static final long LONG_WINDOW_MS = 60_000;
+
+    private ScheduledExecutorService scheduler;
+
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+
+    private final List<Integer> recordedSizes = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private RequestCoalescer<String, String> coalescer(long windowMillis, int maxBatchSize) {
+        return new RequestCoalescer<>("test", (keys, results) -> {
+            batches.add(new ArrayList<>(keys));
+            for (int i = 0; i < keys.size(); i++) {
+                results.get(i).complete("v-" + keys.get(i));
+            }
+        }, scheduler, windowMillis, maxBatchSize, recordedSizes::add);
+    }
+
+    @Test
+    void sendsBatchAsSoonAsMaxBatchSizeIsReached() {
+        RequestCoalescer<String, String> coalescer = coalescer(LONG_WINDOW_MS, 3);
+
+        CompletableFuture<String> a = coalescer.submit("a");
+        CompletableFuture<String> b = coalescer.submit("b");
+        assertThat(batches).isEmpty();
+
+        CompletableFuture<String> c = coalescer.submit("c");
+
+        assertThat(batches).containsExactly(Arrays.asList("a", "b", "c"));
+        assertThat(recordedSizes).containsExactly(3);
+        assertThat(a.join()).isEqualTo("v-a");
+        assertThat(b.join()).isEqualTo("v-b");
+        assertThat(c.join()).isEqualTo("v-c");
+    }
+
+    @Test
+    void sendsDuplicateKeyOnceAndSharesResult() {
+        RequestCoalescer<String, String> coalescer = coalescer(LONG_WINDOW_MS, 10);
+
+        CompletableFuture<String> first = coalescer.submit("a");
+        CompletableFuture<String> second = coalescer.submit("a");
+        coalescer.submit("b");
+        coalescer.flush();
+
+        assertThat(batches).containsExactly(Arrays.asList("a", "b"));
+        assertThat(first.join()).isEqualTo("v-a");
+        assertThat(second.join()).isSameAs(first.join());
+    }
+
+    @Test
+    void duplicateKeyDoesNotCountTowardsMaxBatchSize() {
+        RequestCoalescer<String, String> coalescer = coalescer(LONG_WINDOW_MS, 2);
+
+        coalescer.submit("a");
+        coalescer.submit("a");
+        assertThat(batches).isEmpty();
+
+        coalescer.submit("b");
+        assertThat(batches).containsExactly(Arrays.asList("a", "b"));
+    }
+
+    @Test
+    void sendsPendingRequestsWhenWindowExpires() throws Exception {
+        RequestCoalescer<String, String> coalescer = coalescer(20, 100);
+
+        CompletableFuture<String> a = coalescer.submit("a");
+        CompletableFuture<String> b = coalescer.submit("b");
+
+        assertThat(a.get(5, TimeUnit.SECONDS)).isEqualTo("v-a");
+        assertThat(b.get(5, TimeUnit.SECONDS)).isEqualTo("v-b");
+        assertThat(batches).containsExactly(Arrays.asList("a", "b"));
+    }
+
+    @Test
+    void startsNewWindowAfterBatchIsSent() {
+        RequestCoalescer<String, String> coalescer = coalescer(LONG_WINDOW_MS, 10);
+
+        coalescer.submit("a");
+        coalescer.flush();
+        CompletableFuture<String> again = coalescer.submit("a");
+        coalescer.flush();
+
+        assertThat(batches).containsExactly(Collections.singletonList("a"), Collections.singletonList("a"));
+        assertThat(again.join()).isEqualTo("v-a");
+    }
+
+    @Test
+    void flushWithoutPendingRequestsDoesNotCallLoader() {
+        coalescer(LONG_WINDOW_MS, 10).flush();
+
+        assertThat(batches).isEmpty();
+        assertThat(recordedSizes).isEmpty();
+    }
+
+    @Test
+    void failsAllRequestsWhenLoaderThrows() {
+        IllegalStateException error = new IllegalStateException("boom");
+        RequestCoalescer<String, String> coalescer = new RequestCoalescer<>("test", (keys, results) -> {
+            throw error;
+        }, scheduler, LONG_WINDOW_MS, 10, size -> {
+        });
+
+        CompletableFuture<String> a = coalescer.submit("a");
+        CompletableFuture<String> b = coalescer.submit("b");
+        coalescer.flush();
+
+        assertThatThrownBy(a::join).isInstanceOf(CompletionException.class).hasCause(error);
+        assertThatThrownBy(b::join).isInstanceOf(CompletionException.class).hasCause(error);
+    }
+
+    @Test
+    void failureOfOneKeyDoesNotAffectOthers() {
+        RequestCoalescer<String, String> coalescer = new RequestCoalescer<>("test", (keys, results) -> {
+            for (int i = 0; i < keys.size(); i++) {
+                if ("bad".equals(keys.get(i))) {
+                    results.get(i).completeExceptionally(new IllegalArgumentException(keys.get(i)));
+                } else {
+                    results.get(i).complete("v-" + keys.get(i));
+                }
+            }
+        }, scheduler, LONG_WINDOW_MS, 10, size -> {
+        });
+
+        CompletableFuture<String> good = coalescer.submit("good");
+        CompletableFuture<String> bad = coalescer.submit("bad");
+        coalescer.flush();
+
+        assertThat(good.join()).isEqualTo("v-good");
+        assertThatThrownBy(bad::join).hasCauseInstanceOf(IllegalArgumentException.class);
+    }
+}